@@ -1,2 +1,41 @@
-#!/bin/sh
-$(dirname $0)/target/AccountsManager/bin/AccountsManager "$@"
+#!/bin/bash
+# Runs AccountsManager. If a daemon started with "am.sh daemon" is running, the command is sent
+# to it over the port recorded in ~/.accounts-manager-daemon instead of starting a new JVM.
+binary=$(dirname "$0")/target/AccountsManager/bin/AccountsManager
+port_file=$HOME/.accounts-manager-daemon
+
+escape() {
+  local text=${1//\\/\\\\}
+  printf '%s\n' "${text//$'\n'/\\n}"
+}
+
+if [ "$1" != daemon ] && [ -r "$port_file" ] && read -r port secret < "$port_file" \
+    && { exec 3<>"/dev/tcp/127.0.0.1/$port"; } 2>/dev/null; then
+  {
+    printf '%s\n' "$secret"
+    escape "$PWD"
+    for arg in "$@"; do
+      escape "$arg"
+    done
+    printf '\n'
+  } >&3
+  while IFS= read -r line <&3; do
+    case $line in
+      O*) printf '%b' "${line:1}" ;;
+      E*) printf '%b' "${line:1}" >&2 ;;
+      P*)
+        printf '%b' "${line:1}"
+        IFS= read -r answer
+        escape "$answer" >&3
+        ;;
+      X*) exit "${line:1}" ;;
+      R) break ;;
+    esac
+  done
+  exec 3>&-
+  if [ "$line" != R ]; then
+    echo "Lost connection to the AccountsManager daemon" >&2
+    exit 1
+  fi
+fi
+exec "$binary" "$@"
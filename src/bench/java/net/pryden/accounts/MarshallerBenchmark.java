@@ -0,0 +1,81 @@
+package net.pryden.accounts;
+
+import net.pryden.accounts.bench.NullConsole;
+import net.pryden.accounts.bench.SyntheticMonths;
+import net.pryden.accounts.model.AccountsMonth;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks for reading and writing months of various sizes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class MarshallerBenchmark {
+  @Param({"10", "1000", "100000"})
+  public int size;
+
+  private Marshaller marshaller;
+  private AccountsMonth month;
+  private Path dir;
+  private Path yamlPath;
+  private Path snapshotPath;
+  private Path scratchPath;
+
+  @Setup
+  public void setUp() throws IOException {
+    marshaller = new Marshaller(new NullConsole());
+    month = SyntheticMonths.generate(size);
+    dir = Files.createTempDirectory("marshaller-benchmark");
+    yamlPath = dir.resolve(DiskStorage.ACCOUNTS_FILE_NAME);
+    snapshotPath = dir.resolve(DiskStorage.SNAPSHOT_FILE_NAME);
+    scratchPath = dir.resolve("scratch.yaml");
+    marshaller.writeMonth(yamlPath, snapshotPath, month);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path path : files) {
+        Files.delete(path);
+      }
+    }
+    Files.delete(dir);
+  }
+
+  /** Parses the month's YAML. */
+  @Benchmark
+  public AccountsMonth read() {
+    return marshaller.read(yamlPath, AccountsMonth.class);
+  }
+
+  /** Reads the month through its binary snapshot. */
+  @Benchmark
+  public AccountsMonth readWithSnapshot() {
+    return marshaller.readMonth(yamlPath, snapshotPath);
+  }
+
+  /** Writes the month's YAML. */
+  @Benchmark
+  public void write() {
+    marshaller.write(scratchPath, month);
+  }
+}
@@ -0,0 +1,14 @@
+package net.pryden.accounts.bench;
+
+import net.pryden.accounts.Console;
+
+/** {@link Console} that discards all output, so benchmarks don't measure terminal I/O. */
+public final class NullConsole extends Console {
+  @Override
+  public void print(String message) {}
+
+  @Override
+  public String readString(String prompt) {
+    throw new UnsupportedOperationException("Benchmarks cannot prompt for input");
+  }
+}
@@ -0,0 +1,127 @@
+package net.pryden.accounts.bench;
+
+import com.google.common.collect.ImmutableList;
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.BranchResolutionType;
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.Reconciliation;
+import net.pryden.accounts.model.SubTransaction;
+import net.pryden.accounts.model.Transaction;
+import net.pryden.accounts.model.TransactionCategory;
+import net.pryden.accounts.model.UnreconciledTransaction;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic, but realistic looking, months of any size for benchmarks.
+ *
+ * <p>The same arguments always produce the same month, so results are comparable between runs.
+ */
+public final class SyntheticMonths {
+  public static final YearMonth DATE = YearMonth.of(2015, 10);
+
+  private static final String[] EXPENSES = {
+      "Electricity", "Water", "Cleaning supplies", "Kingdom Hall maintenance", "Literature",
+      "Telephone", "Insurance",
+  };
+
+  private SyntheticMonths() {}
+
+  /**
+   * Returns a closed, reconciled month for {@link #DATE} with at least {@code size} transactions.
+   *
+   * <p>Transactions are generated in groups of five that keep the month's books balanced, so that
+   * every report can be generated: worldwide work and congregation receipts, a deposit of both, an
+   * expense, and a transfer of the worldwide work receipts (plus a resolution) to the branch.
+   */
+  public static AccountsMonth generate(int size) {
+    Random random = new Random(size);
+    List<Transaction> transactions = new ArrayList<>(size + 4);
+    while (transactions.size() < size) {
+      int day = 1 + random.nextInt(DATE.lengthOfMonth());
+      Money worldwide = randomAmount(random);
+      Money congregation = randomAmount(random);
+      Money expense = randomAmount(random);
+      Money resolution = Money.parse("25.00");
+      transactions.add(newReceipt(day, TransactionCategory.WORLDWIDE_WORK, worldwide));
+      transactions.add(newReceipt(day, TransactionCategory.LOCAL_CONGREGATION_EXPENSES,
+          congregation));
+      transactions.add(Transaction.builder()
+          .setDate(day)
+          .setDescription("Deposit to checking account")
+          .setCategory(TransactionCategory.DEPOSIT)
+          .setReceiptsOut(worldwide.plus(congregation))
+          .setCheckingIn(worldwide.plus(congregation))
+          .build());
+      transactions.add(Transaction.builder()
+          .setDate(day)
+          .setDescription(EXPENSES[random.nextInt(EXPENSES.length)])
+          .setCategory(TransactionCategory.EXPENSE)
+          .setCheckingOut(expense)
+          .build());
+      transactions.add(Transaction.builder()
+          .setDate(day)
+          .setDescription("Electronic funds transfer to branch")
+          .setCategory(TransactionCategory.OTHER)
+          .setCheckingOut(worldwide.plus(resolution))
+          .setSubTransactions(ImmutableList.of(
+              SubTransaction.builder()
+                  .setDescription("Worldwide Work")
+                  .setCategory(TransactionCategory.WORLDWIDE_WORK)
+                  .setType(BranchResolutionType.WORLDWIDE_WORK_FROM_CONTRIBUTION_BOXES)
+                  .setAmount(worldwide)
+                  .build(),
+              SubTransaction.builder()
+                  .setDescription("Kingdom Hall and Assembly Hall Worldwide")
+                  .setType(BranchResolutionType.KINGDOM_HALL_AND_ASSEMBLY_HALL_WORLDWIDE)
+                  .setAmount(resolution)
+                  .build()))
+          .build());
+    }
+    return AccountsMonth.builder()
+        .setDate(DATE)
+        .setOpeningBalance(Money.parse("1234.56"))
+        .setReceiptsCarriedForward(Money.ZERO)
+        .setIsClosed(true)
+        .setReconciliation(Reconciliation.builder()
+            .setDateReconciled(DATE.atEndOfMonth())
+            .setStatementBalance(Money.parse("1200.00"))
+            .setReconciledBalance(Money.parse("1234.56"))
+            .setUnreconciledTransactions(ImmutableList.of(
+                UnreconciledTransaction.builder()
+                    .setDate(DATE.atDay(28))
+                    .setDescription("Deposit")
+                    .setAmount(Money.parse("34.56"))
+                    .build()))
+            .build())
+        .build()
+        .withNewTransactions(transactions);
+  }
+
+  /** Returns a single random worldwide work receipt. */
+  public static Transaction generateReceipt(Random random) {
+    return newReceipt(
+        1 + random.nextInt(DATE.lengthOfMonth()),
+        TransactionCategory.WORLDWIDE_WORK,
+        randomAmount(random));
+  }
+
+  private static Transaction newReceipt(int day, TransactionCategory category, Money amount) {
+    return Transaction.builder()
+        .setDate(day)
+        .setDescription(category == TransactionCategory.WORLDWIDE_WORK
+            ? "Contributions - Worldwide Work"
+            : "Contributions - Congregation Expenses")
+        .setCategory(category)
+        .setReceiptsIn(amount)
+        .build();
+  }
+
+  private static Money randomAmount(Random random) {
+    int cents = 1000 + random.nextInt(50000);
+    return Money.parse(String.format("%d.%02d", cents / 100, cents % 100));
+  }
+}
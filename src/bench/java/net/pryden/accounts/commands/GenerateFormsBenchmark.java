@@ -0,0 +1,83 @@
+package net.pryden.accounts.commands;
+
+import net.pryden.accounts.bench.NullConsole;
+import net.pryden.accounts.bench.SyntheticMonths;
+import net.pryden.accounts.model.Config;
+import net.pryden.accounts.reports.BenchmarkReports;
+import net.pryden.accounts.testing.FakeStorage;
+import net.pryden.accounts.testing.TestHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for a full run of {@link GenerateFormsCommand}. PDF forms are filled in by a fake
+ * form helper, so this measures the reports' own work and the text reports' file output.
+ *
+ * <p>The larger size spreads the accounts sheet over several continuation sheets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class GenerateFormsBenchmark {
+  @Param({"10", "1000"})
+  public int size;
+
+  @Param({"1", "4"})
+  public int parallelism;
+
+  private Path rootDir;
+  private GenerateFormsCommand command;
+
+  @Setup
+  public void setUp() throws IOException {
+    rootDir = Files.createTempDirectory("generate-forms-benchmark");
+    Files.createDirectory(rootDir.resolve(SyntheticMonths.DATE.toString()));
+    Config config = TestHelper.create().newFakeConfig().toBuilder()
+        .setRootDir(rootDir.toString())
+        .build();
+    FakeStorage storage = new FakeStorage(config);
+    storage.writeMonth(SyntheticMonths.generate(size));
+    command = new GenerateFormsCommand(
+        storage,
+        SyntheticMonths.DATE,
+        BenchmarkReports.create(config),
+        new NullConsole(),
+        parallelism);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Path monthDir = rootDir.resolve(SyntheticMonths.DATE.toString());
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(monthDir)) {
+      for (Path path : files) {
+        Files.delete(path);
+      }
+    }
+    Files.delete(monthDir);
+    Files.delete(rootDir);
+  }
+
+  @Benchmark
+  public void generateForms() throws IOException {
+    command.run();
+  }
+}
@@ -0,0 +1,53 @@
+package net.pryden.accounts.model;
+
+import net.pryden.accounts.bench.SyntheticMonths;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks for computing totals of, and adding transactions to, months of various sizes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class AccountsMonthBenchmark {
+  @Param({"10", "1000", "100000"})
+  public int size;
+
+  private AccountsMonth month;
+  private AccountsMonth monthWithTotals;
+  private Transaction newTransaction;
+
+  @Setup
+  public void setUp() {
+    month = SyntheticMonths.generate(size);
+    monthWithTotals = month.toBuilder().build();
+    monthWithTotals.computeTotals();
+    newTransaction = SyntheticMonths.generateReceipt(new Random(0));
+  }
+
+  /** Computes totals from scratch, including building the columnar view. */
+  @Benchmark
+  public ComputedTotals computeTotals() {
+    return month.toBuilder().build().computeTotals();
+  }
+
+  /** Adds one transaction to a month whose totals are already known, then gets the totals. */
+  @Benchmark
+  public ComputedTotals withNewTransactions() {
+    return monthWithTotals.withNewTransactions(newTransaction).computeTotals();
+  }
+}
@@ -0,0 +1,75 @@
+package net.pryden.accounts.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks for the basic {@link Money} operations. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class MoneyBenchmark {
+  private static final int COUNT = 1024;
+
+  private String[] strings;
+  private Money[] amounts;
+
+  @Setup
+  public void setUp() {
+    strings = new String[COUNT];
+    amounts = new Money[COUNT];
+    for (int i = 0; i < COUNT; i++) {
+      strings[i] = (i % 7 == 0 ? "(" : "") + (i * 37 % 1000) + "." + (10 + i % 90)
+          + (i % 7 == 0 ? ")" : "");
+      amounts[i] = Money.parse(strings[i]);
+    }
+  }
+
+  @Benchmark
+  public Money parse() {
+    Money last = null;
+    for (String string : strings) {
+      last = Money.parse(string);
+    }
+    return last;
+  }
+
+  @Benchmark
+  public Money plus() {
+    Money sum = Money.ZERO;
+    for (Money amount : amounts) {
+      sum = sum.plus(amount);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public Money accumulate() {
+    MoneyAccumulator sum = new MoneyAccumulator();
+    for (Money amount : amounts) {
+      sum.add(amount);
+    }
+    return sum.total();
+  }
+
+  @Benchmark
+  public String format() {
+    String last = null;
+    for (Money amount : amounts) {
+      last = amount.toFormattedStringPreserveZero();
+    }
+    return last;
+  }
+}
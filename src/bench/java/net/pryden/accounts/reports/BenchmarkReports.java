@@ -0,0 +1,16 @@
+package net.pryden.accounts.reports;
+
+import com.google.common.collect.ImmutableSet;
+import net.pryden.accounts.model.Config;
+
+/** Creates the full set of {@link Report}s for benchmarks, with forms filled by a fake. */
+public final class BenchmarkReports {
+  private BenchmarkReports() {}
+
+  /** Returns every report, as {@link ReportsModule} would, but using {@link FakeFormHelper}. */
+  public static ImmutableSet<Report> create(Config config) {
+    // A new fake per form, so that reports can be generated concurrently.
+    FormHelper.Factory formHelper = (formFilePath, outputFilePath) -> new FakeFormHelper();
+    return new ReportsModule().provideReportFactory(formHelper).create(config);
+  }
+}
@@ -0,0 +1,109 @@
+package net.pryden.accounts.reports;
+
+import net.pryden.accounts.reports.FormHelperImpl.AppearanceMode;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for filling in and saving a real PDF form with {@link FormHelperImpl}, in each
+ * {@link AppearanceMode}. The form is generated, with about as many text fields as a full S-26
+ * accounts sheet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class FormFillBenchmark {
+  private static final int FIELD_COUNT = 350;
+  private static final int FIELDS_PER_ROW = 7;
+
+  @Param({"IMMEDIATE", "DEFERRED", "VIEWER"})
+  public String appearanceMode;
+
+  private Path tempDir;
+  private Path templatePath;
+  private Path outputPath;
+  private FormHelper.Factory factory;
+
+  @Setup
+  public void setUp() throws IOException {
+    tempDir = Files.createTempDirectory("form-fill-benchmark");
+    templatePath = tempDir.resolve("template.pdf");
+    outputPath = tempDir.resolve("output.pdf");
+    writeTemplate(templatePath);
+    factory = FormHelperImpl.factory(AppearanceMode.valueOf(appearanceMode));
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(templatePath);
+    Files.deleteIfExists(outputPath);
+    Files.deleteIfExists(outputPath.resolveSibling(outputPath.getFileName() + ".bak"));
+    Files.delete(tempDir);
+  }
+
+  @Benchmark
+  public void fillAndSave() throws IOException {
+    try (FormHelper form = factory.create(templatePath.toString(), outputPath)) {
+      for (int i = 0; i < FIELD_COUNT; i++) {
+        form.setValue("Field" + i, "Contributions - Worldwide Work " + i);
+      }
+      form.save();
+    }
+  }
+
+  /** Writes a form with {@link #FIELD_COUNT} empty text fields laid out in a grid. */
+  private static void writeTemplate(Path path) throws IOException {
+    try (PDDocument document = new PDDocument()) {
+      PDPage page = new PDPage(PDRectangle.LETTER);
+      document.addPage(page);
+      PDAcroForm form = new PDAcroForm(document);
+      document.getDocumentCatalog().setAcroForm(form);
+      PDResources resources = new PDResources();
+      resources.put(COSName.getPDFName("Helv"), PDType1Font.HELVETICA);
+      form.setDefaultResources(resources);
+      form.setDefaultAppearance("/Helv 0 Tf 0 g");
+
+      float width = PDRectangle.LETTER.getWidth() / FIELDS_PER_ROW;
+      float height = PDRectangle.LETTER.getHeight() / (FIELD_COUNT / FIELDS_PER_ROW + 1);
+      for (int i = 0; i < FIELD_COUNT; i++) {
+        PDTextField field = new PDTextField(form);
+        field.setPartialName("Field" + i);
+        field.setDefaultAppearance("/Helv 8 Tf 0 g");
+        PDAnnotationWidget widget = field.getWidgets().get(0);
+        widget.setRectangle(new PDRectangle(
+            (i % FIELDS_PER_ROW) * width, (i / FIELDS_PER_ROW) * height, width, height));
+        widget.setPage(page);
+        page.getAnnotations().add(widget);
+        form.getFields().add(field);
+      }
+      document.save(path.toFile());
+    }
+  }
+}
@@ -0,0 +1,279 @@
+package net.pryden.accounts;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.BaseEncoding;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves commands from a long-running process, so that running many commands in a row does not
+ * pay for starting a JVM, loading classes and warming up Jackson and the PDF template cache every
+ * time.
+ *
+ * <p>The daemon listens on a loopback TCP port and records the port, together with a random
+ * secret, in a port file in the user's home directory that only the user can read. {@code am.sh}
+ * uses the port file to send its arguments to the daemon instead of starting a new JVM. Each
+ * request gets its own object graph, so config changes and per-command state behave exactly as
+ * they do in a fresh process; only static caches are shared between requests. Requests are served
+ * one at a time, so a client that connects must send its secret, directory and arguments within a
+ * few seconds or be disconnected; only then may it take as long as it likes to answer prompts.
+ *
+ * <p>The protocol is line based, in UTF-8. Backslashes and newlines inside a line are escaped as
+ * {@code \\} and {@code \n}. The client sends the secret, its working directory and then each
+ * argument on its own line, followed by an empty line. The daemon replies with lines starting with
+ * a single letter:
+ *
+ * <ul>
+ *   <li>{@code O} and {@code E}: text to print on standard output or standard error.
+ *   <li>{@code P}: a prompt to print; the client replies with a line of input.
+ *   <li>{@code X}: the exit status of the command. This is always the last line.
+ *   <li>{@code R}: the client should run the command itself instead. This is sent when the client
+ *       is in a different working directory from the daemon, since relative paths in the
+ *       arguments would otherwise be resolved against the wrong directory.
+ * </ul>
+ */
+final class AccountsDaemon {
+  static final String DAEMON_COMMAND = "daemon";
+  static final String STOP_COMMAND = "stop-daemon";
+  static final String PORT_FILE_NAME = ".accounts-manager-daemon";
+  static final long DEFAULT_IDLE_MINUTES = 120;
+  static final String IDLE_MINUTES_PROPERTY = "accounts.daemonIdleMinutes";
+  static final long DEFAULT_HANDSHAKE_TIMEOUT_MILLIS = 5000;
+
+  /** Runs a single command with the given arguments, writing its output to the console. */
+  interface CommandRunner {
+    void run(ImmutableList<String> args, Console console) throws Exception;
+  }
+
+  private final Path portFile;
+  private final Path workingDir;
+  private final long idleTimeoutMillis;
+  private final int handshakeTimeoutMillis;
+  private final CommandRunner runner;
+  private final String secret;
+  private ServerSocket serverSocket;
+  private boolean stopped;
+
+  AccountsDaemon(
+      Path portFile,
+      Path workingDir,
+      long idleTimeoutMillis,
+      long handshakeTimeoutMillis,
+      CommandRunner runner) {
+    this.portFile = portFile;
+    this.workingDir = workingDir;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.handshakeTimeoutMillis = (int) Math.min(handshakeTimeoutMillis, Integer.MAX_VALUE);
+    this.runner = runner;
+    byte[] secretBytes = new byte[16];
+    new SecureRandom().nextBytes(secretBytes);
+    this.secret = BaseEncoding.base16().lowerCase().encode(secretBytes);
+  }
+
+  /** Creates a daemon for the current user and working directory. */
+  static AccountsDaemon create(CommandRunner runner) {
+    return new AccountsDaemon(
+        Paths.get(System.getProperty("user.home"), PORT_FILE_NAME),
+        Paths.get("").toAbsolutePath(),
+        TimeUnit.MINUTES.toMillis(Long.getLong(IDLE_MINUTES_PROPERTY, DEFAULT_IDLE_MINUTES)),
+        DEFAULT_HANDSHAKE_TIMEOUT_MILLIS,
+        runner);
+  }
+
+  /** Starts listening on a free loopback port, and writes the port file. Returns the port. */
+  int start() throws IOException {
+    if (isAnotherDaemonRunning()) {
+      throw new IllegalStateException("A daemon is already running (see " + portFile + ")");
+    }
+    serverSocket = new ServerSocket();
+    serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    writePortFile(serverSocket.getLocalPort());
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Serves requests until a client asks the daemon to stop, or no request arrives for the idle
+   * timeout. Deletes the port file before returning.
+   */
+  void serve() throws IOException {
+    try {
+      serverSocket.setSoTimeout((int) Math.min(idleTimeoutMillis, Integer.MAX_VALUE));
+      while (!stopped) {
+        Socket socket;
+        try {
+          socket = serverSocket.accept();
+        } catch (SocketTimeoutException ex) {
+          break;
+        }
+        try {
+          handle(socket);
+        } catch (IOException | UncheckedIOException ex) {
+          // The client went away or was too slow to send its request; carry on with the next one.
+        } finally {
+          socket.close();
+        }
+      }
+    } finally {
+      serverSocket.close();
+      Files.deleteIfExists(portFile);
+    }
+  }
+
+  private boolean isAnotherDaemonRunning() throws IOException {
+    if (!Files.exists(portFile)) {
+      return false;
+    }
+    List<String> parts =
+        Splitter.on(' ').splitToList(new String(Files.readAllBytes(portFile), UTF_8).trim());
+    Socket socket = new Socket();
+    try {
+      socket.connect(
+          new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(parts.get(0))));
+      return true;
+    } catch (IOException | RuntimeException ex) {
+      // A stale port file from a daemon that did not shut down cleanly.
+      return false;
+    } finally {
+      socket.close();
+    }
+  }
+
+  private void writePortFile(int port) throws IOException {
+    Path tempFile = portFile.resolveSibling(portFile.getFileName() + ".tmp");
+    Files.deleteIfExists(tempFile);
+    if (Files.getFileStore(portFile.getParent()).supportsFileAttributeView("posix")) {
+      Files.createFile(tempFile,
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    }
+    Files.write(tempFile, (port + " " + secret + "\n").getBytes(UTF_8));
+    Files.move(tempFile, portFile, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void handle(Socket socket) throws IOException {
+    BufferedReader in =
+        new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+    Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), UTF_8));
+    // Until the request has been read, a client that sends nothing would block every other one.
+    socket.setSoTimeout(handshakeTimeoutMillis);
+    String clientSecret = in.readLine();
+    if (clientSecret == null
+        || !MessageDigest.isEqual(clientSecret.getBytes(UTF_8), secret.getBytes(UTF_8))) {
+      return;
+    }
+    String clientDir = in.readLine();
+    ImmutableList.Builder<String> builder = ImmutableList.builder();
+    String line;
+    while ((line = in.readLine()) != null && !line.isEmpty()) {
+      builder.add(unescape(line));
+    }
+    if (clientDir == null || line == null) {
+      return;
+    }
+    ImmutableList<String> args = builder.build();
+
+    if (!Paths.get(unescape(clientDir)).equals(workingDir)) {
+      send(out, 'R', "");
+      return;
+    }
+    if (args.equals(ImmutableList.of(STOP_COMMAND))) {
+      send(out, 'O', "Stopping the daemon.\n");
+      send(out, 'X', "0");
+      stopped = true;
+      return;
+    }
+    // The client has proved who it is, so it may take as long as it likes to answer prompts.
+    socket.setSoTimeout(0);
+    int status = 0;
+    try {
+      runner.run(args, new SocketConsole(in, out));
+    } catch (Exception ex) {
+      send(out, 'E', Throwables.getStackTraceAsString(ex));
+      status = 1;
+    }
+    send(out, 'X', String.valueOf(status));
+  }
+
+  private static void send(Writer out, char kind, String text) throws IOException {
+    out.write(kind);
+    out.write(escape(text));
+    out.write('\n');
+    out.flush();
+  }
+
+  static String escape(String text) {
+    return text.replace("\\", "\\\\").replace("\n", "\\n");
+  }
+
+  static String unescape(String line) {
+    StringBuilder result = new StringBuilder(line.length());
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == '\\' && i + 1 < line.length()) {
+        i++;
+        c = line.charAt(i) == 'n' ? '\n' : line.charAt(i);
+      }
+      result.append(c);
+    }
+    return result.toString();
+  }
+
+  /** Implementation of {@link Console} that talks to a client of the daemon. */
+  private static final class SocketConsole extends Console {
+    private final BufferedReader in;
+    private final Writer out;
+
+    SocketConsole(BufferedReader in, Writer out) {
+      this.in = in;
+      this.out = out;
+    }
+
+    @Override
+    public synchronized void print(String message) {
+      try {
+        send(out, 'O', message);
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    }
+
+    @Override
+    public synchronized String readString(String prompt) {
+      try {
+        send(out, 'P', prompt);
+        String line = in.readLine();
+        if (line == null) {
+          throw new EOFException("The client disconnected");
+        }
+        return unescape(line);
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    }
+  }
+}
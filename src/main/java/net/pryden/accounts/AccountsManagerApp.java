@@ -1,6 +1,7 @@
 package net.pryden.accounts;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import dagger.Component;
 import dagger.Module;
 import dagger.Provides;
@@ -10,8 +11,10 @@ import net.pryden.accounts.commands.CommandsModule;
 import net.pryden.accounts.commands.CurrentCommand;
 import net.pryden.accounts.reports.ReportsModule;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.nio.file.Paths;
 import java.time.Clock;
 
 /**
@@ -34,9 +37,11 @@ final class AccountsManagerApp {
   @Module
   static final class TopLevelModule {
     private final ImmutableList<String> args;
+    private final Console console;
 
-    TopLevelModule(String[] args) {
-      this.args = ImmutableList.copyOf(args);
+    TopLevelModule(ImmutableList<String> args, Console console) {
+      this.args = args;
+      this.console = console;
     }
 
     @Provides
@@ -58,25 +63,79 @@ final class AccountsManagerApp {
 
     @Provides
     Console provideConsole() {
-      return new SystemConsole();
+      return console;
     }
   }
 
+  /** Commands that don't read any files, and so don't need the marshaller to be warmed up. */
+  private static final ImmutableSet<String> COMMANDS_WITHOUT_FILES =
+      ImmutableSet.of("help", AccountsDaemon.STOP_COMMAND);
+
   public static void main(String[] args) throws Exception {
+    ImmutableList<String> argList = ImmutableList.copyOf(args);
+    if (!argList.isEmpty() && argList.get(0).equals(AccountsDaemon.DAEMON_COMMAND)) {
+      Marshaller.warmUpInBackground();
+      AccountsDaemon daemon = AccountsDaemon.create((commandArgs, console) ->
+          runCommand(commandArgs, console, commandArgs.contains(StartupTimings.FLAG)
+              ? StartupTimings.start()
+              : null));
+      int port = daemon.start();
+      System.out.printf("Serving commands on port %d until \"%s\" is run.\n",
+          port, AccountsDaemon.STOP_COMMAND);
+      daemon.serve();
+      return;
+    }
+    StartupTimings timings =
+        argList.contains(StartupTimings.FLAG) ? StartupTimings.sinceJvmStart() : null;
+    if (!argList.isEmpty() && !COMMANDS_WITHOUT_FILES.contains(argList.get(0))) {
+      Marshaller.warmUpInBackground();
+    }
+    runCommand(argList, new SystemConsole(), timings);
+  }
+
+  /**
+   * Runs one command in a new object graph. If {@code timings} is not null, the time taken by each
+   * phase is printed afterwards. If the arguments include {@value ScriptedConsole#FLAG_PREFIX},
+   * prompts are answered from that file instead of by {@code console}.
+   */
+  static void runCommand(
+      ImmutableList<String> args, Console console, @Nullable StartupTimings timings)
+      throws Exception {
+    ImmutableList.Builder<String> commandArgs = ImmutableList.builder();
+    for (String arg : args) {
+      if (arg.startsWith(ScriptedConsole.FLAG_PREFIX)) {
+        console = ScriptedConsole.load(
+            console, Paths.get(arg.substring(ScriptedConsole.FLAG_PREFIX.length())));
+      } else if (timings == null || !arg.equals(StartupTimings.FLAG)) {
+        commandArgs.add(arg);
+      }
+    }
     Root root = DaggerAccountsManagerApp_Root.builder()
-        .topLevelModule(new TopLevelModule(args))
+        .topLevelModule(new TopLevelModule(commandArgs.build(), console))
         .build();
-    root.app().run();
+    if (timings == null) {
+      root.app().run();
+      return;
+    }
+    timings.mark("Build object graph");
+    AccountsManagerApp app = root.app();
+    timings.mark("Read config and create command");
+    app.run();
+    timings.mark("Run command");
+    timings.print(console);
   }
 
   private final Command command;
+  private final DeferredWrites deferredWrites;
 
   @Inject
-  AccountsManagerApp(@CurrentCommand Command command) {
+  AccountsManagerApp(@CurrentCommand Command command, DeferredWrites deferredWrites) {
     this.command = command;
+    this.deferredWrites = deferredWrites;
   }
 
   void run() throws Exception {
     command.run();
+    deferredWrites.flush();
   }
 }
@@ -36,13 +36,37 @@ public abstract class Console {
       if (result != null) {
         return result;
       }
-      printf("Unable to parse \"%s\" as an integer. Please enter a different value.\n", line);
+      rejectResponse(String.format(
+          "Unable to parse \"%s\" as an integer. Please enter a different value.\n", line));
+    }
+  }
+
+  /**
+   * Prints the given prompt to the console, then reads an integer response from {@code min} to
+   * {@code max} (inclusive).
+   */
+  public final int readInt(String prompt, int min, int max) {
+    while (true) {
+      int result = readInt(prompt);
+      if (result >= min && result <= max) {
+        return result;
+      }
+      rejectResponse(String.format(
+          "%d is not between %d and %d. Please enter a different value.\n", result, min, max));
     }
   }
 
   /** Prints the given prompt to the console, and then reads a string response. */
   public abstract String readString(String prompt);
 
+  /**
+   * Reports that a response could not be understood, before the prompt is shown again.
+   * Implementations that cannot give a different response the next time should throw instead.
+   */
+  protected void rejectResponse(String message) {
+    print(message);
+  }
+
   /** Prints the given prompt to the console, and then reads a Money response. */
   public final Money readMoney(String prompt) {
     return readMoney(prompt, null);
@@ -61,8 +85,9 @@ public abstract class Console {
       try {
         return Money.parse(line);
       } catch (IllegalArgumentException ex) {
-        printf("Unable to parse \"%s\" as an amount of money. Please enter a different value.\n",
-            line);
+        rejectResponse(String.format(
+            "Unable to parse \"%s\" as an amount of money. Please enter a different value.\n",
+            line));
       }
     }
   }
@@ -71,12 +96,24 @@ public abstract class Console {
    * Prints the given prompt to the console, and then reads a LocalDate response.
    */
   public final LocalDate readDate(String prompt) {
+    return readDate(prompt, null);
+  }
+
+  /**
+   * Prints the given prompt to the console, and then reads a LocalDate response. If the user's
+   * response is empty returns the {@code defaultValue} instead.
+   */
+  public final LocalDate readDate(String prompt, @Nullable LocalDate defaultValue) {
     while (true) {
       String line = readString(prompt);
+      if (defaultValue != null && line.isEmpty()) {
+        return defaultValue;
+      }
       try {
         return LocalDate.parse(line);
       } catch (DateTimeParseException ex) {
-        printf("Unable to parse \"%s\" as a date. Please enter a different value.\n", line);
+        rejectResponse(String.format(
+            "Unable to parse \"%s\" as a date. Please enter a different value.\n", line));
       }
     }
   }
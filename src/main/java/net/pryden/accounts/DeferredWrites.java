@@ -0,0 +1,33 @@
+package net.pryden.accounts;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Writes of derived data, such as the month index, that are put off until the command has
+ * finished, so that they happen once per command instead of once per month read.
+ */
+@Singleton
+final class DeferredWrites {
+  private final Set<Flushable> pending = new LinkedHashSet<>();
+
+  @Inject
+  DeferredWrites() {}
+
+  /** Arranges for {@code flushable} to be flushed when the command has finished. */
+  synchronized void add(Flushable flushable) {
+    pending.add(flushable);
+  }
+
+  /** Flushes everything that was added since the last call. */
+  synchronized void flush() throws IOException {
+    for (Flushable flushable : pending) {
+      flushable.flush();
+    }
+    pending.clear();
+  }
+}
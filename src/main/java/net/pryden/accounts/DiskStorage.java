@@ -1,53 +1,345 @@
 package net.pryden.accounts;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multiset;
 import net.pryden.accounts.Annotations.UserHomeDir;
+import net.pryden.accounts.Marshaller.ChecksummedMonth;
+import net.pryden.accounts.Marshaller.MarshallingException;
+import net.pryden.accounts.MonthIndex.FileStamp;
 import net.pryden.accounts.model.AccountsMonth;
 import net.pryden.accounts.model.Config;
+import net.pryden.accounts.model.Transaction;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
 
 /**
  * {@link Storage} implementation that stores data in YAML files on disk.
+ *
+ * <p>When a write only adds transactions to a month that was recently read through this instance
+ * (one of the last {@value #MAX_KNOWN_MONTHS}), the new transactions are appended to the month's
+ * {@link MonthJournal} instead of rewriting the whole YAML file. Every
+ * {@value #MAX_JOURNAL_RECORDS} records, or whenever a month is changed in any other way, the
+ * journal is compacted back into the YAML file.
+ *
+ * <p>Every month that is written is also added to the {@link SearchIndex} kept in the root
+ * directory.
  */
 @Singleton
 final class DiskStorage implements Storage {
   static final String CONFIG_FILE_NAME = ".accounts-manager.yaml";
   static final String ACCOUNTS_FILE_NAME = "accounts.yaml";
+  static final String SNAPSHOT_FILE_NAME = "accounts.snapshot";
+
+  /** The maximum number of months that {@link #readMonths} will parse at the same time. */
+  private static final int MAX_READ_PARALLELISM = 8;
+
+  /** The number of journal records a month may have before it is compacted. */
+  static final int MAX_JOURNAL_RECORDS = 32;
+
+  /**
+   * The number of recently read or written months to remember, so that adding transactions to
+   * one of them can append to its journal. Older months are simply written in full.
+   */
+  static final int MAX_KNOWN_MONTHS = 24;
 
   private final Path configPath;
   private final String rootDir;
   private final Marshaller marshaller;
+  private final Map<YearMonth, KnownMonth> knownMonths =
+      Collections.synchronizedMap(new KnownMonths());
+  private final SearchIndex searchIndex;
 
   @Inject
   DiskStorage(@UserHomeDir String userHomeDir, Config config, Marshaller marshaller) {
     this.configPath = Paths.get(userHomeDir, CONFIG_FILE_NAME);
     this.rootDir = config.rootDir();
     this.marshaller = marshaller;
+    this.searchIndex = new SearchIndex(this);
+  }
+
+  /** Returns the index used to search the transactions of the months stored here. */
+  SearchIndex searchIndex() {
+    return searchIndex;
+  }
+
+  /** Returns the path to the root directory where each month's files are stored. */
+  Path rootDir() {
+    return Paths.get(rootDir);
+  }
+
+  /** Returns the path to the directory that holds the given month's files. */
+  Path monthDir(YearMonth date) {
+    return Paths.get(rootDir, date.toString());
+  }
+
+  /** Returns the path to the file that stores the given month. */
+  Path monthPath(YearMonth date) {
+    return Paths.get(rootDir, date.toString(), ACCOUNTS_FILE_NAME);
+  }
+
+  /** Returns the path to the binary snapshot cached alongside the given month's file. */
+  Path snapshotPath(YearMonth date) {
+    return Paths.get(rootDir, date.toString(), SNAPSHOT_FILE_NAME);
+  }
+
+  /**
+   * Returns a stamp that changes whenever the given month's YAML file or its journal changes.
+   *
+   * @throws IOException if the month does not exist
+   */
+  FileStamp stampMonth(YearMonth date) throws IOException {
+    FileStamp yamlStamp = FileStamp.of(monthPath(date));
+    Path journalPath = new MonthJournal(monthDir(date)).path();
+    if (!Files.exists(journalPath)) {
+      return yamlStamp;
+    }
+    FileStamp journalStamp = FileStamp.of(journalPath);
+    return FileStamp.create(
+        yamlStamp.size() + journalStamp.size(),
+        Math.max(yamlStamp.lastModified(), journalStamp.lastModified()));
+  }
+
+  /**
+   * Returns a checksum of the given month's YAML file together with its journal. This is the same
+   * checksum as {@link #readChecksummedMonth} returns, computed without parsing the month.
+   */
+  long checksumMonth(YearMonth date) throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(Files.readAllBytes(monthPath(date)));
+    return MonthJournal.Contents.monthChecksum(
+        crc.getValue(), new MonthJournal(monthDir(date)).completeLength());
   }
 
   @Override
   public AccountsMonth readMonth(YearMonth date) {
-    Path monthPath = Paths.get(rootDir, date.toString(), ACCOUNTS_FILE_NAME);
-    return marshaller.read(monthPath, AccountsMonth.class);
+    return readChecksummedMonth(date).month();
+  }
+
+  /**
+   * Reads the given month, together with the checksum of its files that {@link #checksumMonth}
+   * would return. The checksum is taken from the bytes that were read, so the files are not read
+   * again.
+   */
+  ChecksummedMonth readChecksummedMonth(YearMonth date) {
+    return readMonth(date, true);
+  }
+
+  /**
+   * Reads the given month without remembering it, so that a later write of the month is not
+   * appended to its journal. This is for reading months that will not be changed.
+   */
+  AccountsMonth readMonthOnce(YearMonth date) {
+    return readMonth(date, false).month();
+  }
+
+  private ChecksummedMonth readMonth(YearMonth date, boolean remember) {
+    Path monthPath = monthPath(date);
+    MonthJournal journal = new MonthJournal(monthDir(date));
+    try {
+      FileStamp yamlStamp = FileStamp.of(monthPath);
+      ChecksummedMonth loaded = marshaller.readChecksummedMonth(monthPath, snapshotPath(date));
+      MonthJournal.Contents contents = journal.recover(loaded.checksum());
+      AccountsMonth month = loaded.month();
+      for (ImmutableList<Transaction> record : contents.records()) {
+        month = month.withNewTransactions(record);
+      }
+      if (remember) {
+        knownMonths.put(date, new KnownMonth(month, yamlStamp, contents));
+      }
+      return ChecksummedMonth.create(month, contents.monthChecksum());
+    } catch (IOException ex) {
+      throw new MarshallingException(ex);
+    }
+  }
+
+  @Override
+  public ImmutableList<AccountsMonth> readMonths(YearMonth from, YearMonth to) {
+    ImmutableList.Builder<AccountsMonth> months = ImmutableList.builder();
+    for (ChecksummedMonth month : readChecksummedMonths(monthsBetween(from, to))) {
+      months.add(month.month());
+    }
+    return months.build();
+  }
+
+  @Override
+  public void forEachMonth(YearMonth from, YearMonth to, Consumer<AccountsMonth> action) {
+    for (YearMonth date : monthsBetween(from, to)) {
+      action.accept(readMonthOnce(date));
+    }
+  }
+
+  /**
+   * Reads the given months, parsing them concurrently on a bounded pool when there is more than
+   * one. The results are returned in the same order as {@code dates}, with the checksums that
+   * {@link #readChecksummedMonth} returns.
+   */
+  ImmutableList<ChecksummedMonth> readChecksummedMonths(List<YearMonth> dates) {
+    ForkJoinPool pool = ReadPool.INSTANCE;
+    if (dates.size() <= 1 || pool.getParallelism() <= 1) {
+      ImmutableList.Builder<ChecksummedMonth> months = ImmutableList.builder();
+      for (YearMonth date : dates) {
+        months.add(readChecksummedMonth(date));
+      }
+      return months.build();
+    }
+    List<ForkJoinTask<ChecksummedMonth>> tasks = new ArrayList<>(dates.size());
+    for (YearMonth date : dates) {
+      tasks.add(pool.submit(() -> readChecksummedMonth(date)));
+    }
+    ImmutableList.Builder<ChecksummedMonth> months = ImmutableList.builder();
+    for (ForkJoinTask<ChecksummedMonth> task : tasks) {
+      months.add(task.join());
+    }
+    return months.build();
+  }
+
+  /** Returns every month from {@code from} to {@code to}, inclusive. */
+  static ImmutableList<YearMonth> monthsBetween(YearMonth from, YearMonth to) {
+    Preconditions.checkArgument(!from.isAfter(to), "Month %s is after month %s", from, to);
+    ImmutableList.Builder<YearMonth> dates = ImmutableList.builder();
+    for (YearMonth date = from; !date.isAfter(to); date = date.plusMonths(1)) {
+      dates.add(date);
+    }
+    return dates.build();
   }
 
   @Override
   public void writeMonth(AccountsMonth month) {
-    File monthDir = Paths.get(rootDir, month.date().toString()).toFile();
-    if (!monthDir.exists()) {
-      monthDir.mkdirs();
+    writeChecksummedMonth(month);
+  }
+
+  /**
+   * Writes the given month, and returns the checksum of its files afterwards that
+   * {@link #checksumMonth} would return, without reading them back.
+   */
+  long writeChecksummedMonth(AccountsMonth month) {
+    YearMonth date = month.date();
+    MonthJournal journal = new MonthJournal(monthDir(date));
+    try {
+      KnownMonth known = knownMonths.get(date);
+      if (known != null
+          && known.journal.records().size() < MAX_JOURNAL_RECORDS
+          && isUnchangedOnDisk(known, journal)) {
+        Optional<ImmutableList<Transaction>> added = addedTransactions(known.month, month);
+        if (added.isPresent()) {
+          if (added.get().isEmpty()) {
+            return known.journal.monthChecksum();
+          }
+          MonthJournal.Contents contents = journal.append(known.journal, added.get());
+          knownMonths.put(date, new KnownMonth(month, known.yamlStamp, contents));
+          searchIndex.update(month);
+          return contents.monthChecksum();
+        }
+      }
+
+      File monthDir = monthDir(date).toFile();
+      if (!monthDir.exists()) {
+        monthDir.mkdirs();
+      }
+      journal.beginCompaction();
+      long checksum = marshaller.writeMonth(monthPath(date), snapshotPath(date), month);
+      journal.finishCompaction();
+      MonthJournal.Contents contents = MonthJournal.Contents.empty().withBaseChecksum(checksum);
+      knownMonths.put(date, new KnownMonth(month, FileStamp.of(monthPath(date)), contents));
+      searchIndex.update(month);
+      return contents.monthChecksum();
+    } catch (IOException ex) {
+      throw new MarshallingException(ex);
     }
-    Path monthPath = Paths.get(monthDir.getPath(), ACCOUNTS_FILE_NAME);
-    marshaller.write(monthPath, month);
+  }
+
+  /**
+   * Returns whether the month's files are still exactly as they were when {@code known} was
+   * recorded, so that it is safe to append to the journal.
+   */
+  private boolean isUnchangedOnDisk(KnownMonth known, MonthJournal journal) throws IOException {
+    long journalLength = Files.exists(journal.path()) ? Files.size(journal.path()) : 0;
+    return journalLength == known.journal.length()
+        && FileStamp.of(monthPath(known.month.date())).equals(known.yamlStamp);
+  }
+
+  /**
+   * If {@code month} is {@code previous} with some transactions added to it, returns the added
+   * transactions. Returns {@link Optional#empty()} if the month was changed in any other way.
+   */
+  static Optional<ImmutableList<Transaction>> addedTransactions(
+      AccountsMonth previous, AccountsMonth month) {
+    Multiset<Transaction> remaining = HashMultiset.create(previous.transactions());
+    ImmutableList.Builder<Transaction> added = ImmutableList.builder();
+    for (Transaction transaction : month.transactions()) {
+      if (!remaining.remove(transaction)) {
+        added.add(transaction);
+      }
+    }
+    if (!remaining.isEmpty()) {
+      return Optional.empty();
+    }
+    ImmutableList<Transaction> delta = added.build();
+    // Replaying the journal has to reproduce this exact month, including the other fields and the
+    // order of transactions that compare as equal.
+    if (!previous.withNewTransactions(delta).equals(month)) {
+      return Optional.empty();
+    }
+    return Optional.of(delta);
   }
 
   @Override
   public void updateConfig(Config updatedConfig) {
     marshaller.write(configPath, updatedConfig);
   }
+
+  /** Keeps the {@link #MAX_KNOWN_MONTHS} most recently used months. */
+  private static final class KnownMonths extends LinkedHashMap<YearMonth, KnownMonth> {
+    private static final long serialVersionUID = 1L;
+
+    KnownMonths() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<YearMonth, KnownMonth> eldest) {
+      return size() > MAX_KNOWN_MONTHS;
+    }
+  }
+
+  /** The last version of a month that this instance read or wrote. */
+  private static final class KnownMonth {
+    final AccountsMonth month;
+    final FileStamp yamlStamp;
+    final MonthJournal.Contents journal;
+
+    KnownMonth(AccountsMonth month, FileStamp yamlStamp, MonthJournal.Contents journal) {
+      this.month = month;
+      this.yamlStamp = yamlStamp;
+      this.journal = journal;
+    }
+  }
+
+  /**
+   * The pool that {@link #readChecksummedMonths} parses months on, shared by every call and only
+   * created when it is first needed. Its threads are daemon threads, so it is never shut down.
+   */
+  private static final class ReadPool {
+    static final ForkJoinPool INSTANCE = new ForkJoinPool(
+        Math.min(MAX_READ_PARALLELISM, Runtime.getRuntime().availableProcessors()));
+  }
 }
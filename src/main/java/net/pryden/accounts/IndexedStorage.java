@@ -0,0 +1,257 @@
+package net.pryden.accounts;
+
+import com.google.common.collect.ImmutableList;
+import net.pryden.accounts.Marshaller.ChecksummedMonth;
+import net.pryden.accounts.MonthIndex.Entry;
+import net.pryden.accounts.MonthIndex.FileStamp;
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.ComputedTotals;
+import net.pryden.accounts.model.Config;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * {@link Storage} implementation that layers a {@link MonthIndex} over {@link DiskStorage}.
+ *
+ * <p>Every month that is read or written through this class is recorded in the index, together
+ * with its totals. Later lookups of a month whose file has not changed since it was indexed are
+ * answered from the index (for {@link #readTotals}) or from an in-memory cache of recently read
+ * months (for {@link #readMonth}) instead of parsing the month's YAML file again. A file that was
+ * modified too shortly before it was indexed or cached could have been changed again without its
+ * stamp changing, so for those the checksum of the file is compared as well.
+ *
+ * <p>Changes to the index are saved through {@link DeferredWrites}, once the command has finished.
+ */
+@Singleton
+final class IndexedStorage implements Storage, Flushable {
+  static final String INDEX_FILE_NAME = ".accounts-index";
+
+  /** The number of parsed months to keep in memory. */
+  private static final int MAX_CACHED_MONTHS = 24;
+
+  private final DiskStorage disk;
+  private final DeferredWrites deferredWrites;
+  private final MonthIndex index;
+  private boolean indexChanged;
+  private final MonthCache cache = new MonthCache();
+
+  @Inject
+  IndexedStorage(DiskStorage disk, DeferredWrites deferredWrites) {
+    this.disk = disk;
+    this.deferredWrites = deferredWrites;
+    this.index = MonthIndex.load(disk.rootDir().resolve(INDEX_FILE_NAME));
+  }
+
+  @Override
+  public synchronized AccountsMonth readMonth(YearMonth date) {
+    long now = System.currentTimeMillis();
+    FileStamp stamp = stampOf(date);
+    AccountsMonth cached = cachedMonth(date, stamp, now);
+    if (cached != null) {
+      return cached;
+    }
+    ChecksummedMonth month = disk.readChecksummedMonth(date);
+    if (stamp != null) {
+      remember(date, month.month(), stamp, now, month.checksum());
+    }
+    return month.month();
+  }
+
+  @Override
+  public synchronized ImmutableList<AccountsMonth> readMonths(YearMonth from, YearMonth to) {
+    ImmutableList<YearMonth> dates = DiskStorage.monthsBetween(from, to);
+    long now = System.currentTimeMillis();
+    Map<YearMonth, AccountsMonth> found = new HashMap<>();
+    Map<YearMonth, FileStamp> stamps = new HashMap<>();
+    List<YearMonth> misses = new ArrayList<>();
+    for (YearMonth date : dates) {
+      FileStamp stamp = stampOf(date);
+      AccountsMonth cached = cachedMonth(date, stamp, now);
+      if (cached != null) {
+        found.put(date, cached);
+      } else {
+        stamps.put(date, stamp);
+        misses.add(date);
+      }
+    }
+    if (!misses.isEmpty()) {
+      // The months come back in the same order as the dates they were read for.
+      List<ChecksummedMonth> read = disk.readChecksummedMonths(misses);
+      for (int i = 0; i < misses.size(); i++) {
+        YearMonth date = misses.get(i);
+        ChecksummedMonth month = read.get(i);
+        FileStamp stamp = stamps.get(date);
+        if (stamp != null) {
+          remember(date, month.month(), stamp, now, month.checksum());
+        }
+        found.put(date, month.month());
+      }
+    }
+    ImmutableList.Builder<AccountsMonth> months = ImmutableList.builder();
+    for (YearMonth date : dates) {
+      months.add(found.get(date));
+    }
+    return months.build();
+  }
+
+  /**
+   * Months that are not already cached are read without being cached, so that reading a long
+   * range of months does not push the recently used ones out of the cache.
+   */
+  @Override
+  public synchronized void forEachMonth(
+      YearMonth from, YearMonth to, Consumer<AccountsMonth> action) {
+    for (YearMonth date : DiskStorage.monthsBetween(from, to)) {
+      AccountsMonth cached = cachedMonth(date, stampOf(date), System.currentTimeMillis());
+      if (cached != null) {
+        action.accept(cached);
+      } else {
+        action.accept(disk.readMonthOnce(date));
+      }
+    }
+  }
+
+  @Override
+  public synchronized ComputedTotals readTotals(YearMonth date) {
+    long now = System.currentTimeMillis();
+    FileStamp stamp = stampOf(date);
+    Entry entry = index.get(date);
+    if (stamp != null && entry != null) {
+      if (entry.isCurrent(stamp)) {
+        return entry.totals();
+      }
+      // The file has been touched, or its stamp is too recent to tell, but if its contents are
+      // unchanged the entry is still good.
+      if (entry.checksum() == checksumOf(date)) {
+        index.put(entry.withStamp(stamp, now));
+        indexChanged();
+        return entry.totals();
+      }
+    }
+    return readMonth(date).computeTotals();
+  }
+
+  @Override
+  public synchronized void writeMonth(AccountsMonth month) {
+    long checksum = disk.writeChecksummedMonth(month);
+    long now = System.currentTimeMillis();
+    FileStamp stamp = stampOf(month.date());
+    if (stamp != null) {
+      remember(month.date(), month, stamp, now, checksum);
+    }
+  }
+
+  @Override
+  public void updateConfig(Config updatedConfig) {
+    disk.updateConfig(updatedConfig);
+  }
+
+  /** Saves the index, if it has changed since it was last saved. */
+  @Override
+  public synchronized void flush() throws IOException {
+    if (indexChanged) {
+      index.save();
+      indexChanged = false;
+    }
+  }
+
+  /**
+   * Caches and indexes {@code month} under {@code date}, the month whose files it was read from or
+   * written to, which is not necessarily the date recorded in the file.
+   */
+  private void remember(
+      YearMonth date, AccountsMonth month, FileStamp stamp, long stampedAt, long checksum) {
+    cache.put(date, new CachedMonth(month, stamp, stampedAt, checksum));
+    index.put(Entry.create(
+        date, stamp, stampedAt, checksum, month.isClosed(), month.computeTotals()));
+    indexChanged();
+  }
+
+  /**
+   * Returns the cached copy of the given month if its files, which now have {@code stamp} as of
+   * {@code now}, are unchanged since it was cached. Otherwise returns {@code null}.
+   */
+  @Nullable
+  private AccountsMonth cachedMonth(YearMonth date, @Nullable FileStamp stamp, long now) {
+    CachedMonth cached = cache.get(date);
+    if (stamp == null || cached == null || !cached.stamp.equals(stamp)) {
+      return null;
+    }
+    if (stamp.isRacy(cached.stampedAt)) {
+      if (checksumOf(date) != cached.checksum) {
+        return null;
+      }
+      cached.stampedAt = now;
+    }
+    return cached.month;
+  }
+
+  private void indexChanged() {
+    if (!indexChanged) {
+      indexChanged = true;
+      deferredWrites.add(this);
+    }
+  }
+
+  @Nullable
+  private FileStamp stampOf(YearMonth date) {
+    try {
+      return disk.stampMonth(date);
+    } catch (IOException ex) {
+      // Most likely the month doesn't exist; let DiskStorage report that.
+      return null;
+    }
+  }
+
+  private long checksumOf(YearMonth date) {
+    try {
+      return disk.checksumMonth(date);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /** Keeps the {@link #MAX_CACHED_MONTHS} most recently used months. */
+  private static final class MonthCache extends LinkedHashMap<YearMonth, CachedMonth> {
+    private static final long serialVersionUID = 1L;
+
+    MonthCache() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<YearMonth, CachedMonth> eldest) {
+      return size() > MAX_CACHED_MONTHS;
+    }
+  }
+
+  /**
+   * A parsed month together with the stamp and checksum of the files it was parsed from, and the
+   * time at or before which they had that stamp.
+   */
+  private static final class CachedMonth {
+    final AccountsMonth month;
+    final FileStamp stamp;
+    final long checksum;
+    long stampedAt;
+
+    CachedMonth(AccountsMonth month, FileStamp stamp, long stampedAt, long checksum) {
+      this.month = month;
+      this.stamp = stamp;
+      this.stampedAt = stampedAt;
+      this.checksum = checksum;
+    }
+  }
+}
@@ -1,42 +1,237 @@
 package net.pryden.accounts;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.ComputedTotals;
+import net.pryden.accounts.model.Config;
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.MonthSnapshot;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
 
 /**
  * Low-level implementation of reading or writing value objects from disk.
  *
- * <p>This implementation is just a thin wrapper over the Jackson API.
+ * <p>This implementation is just a thin wrapper over the Jackson API. Files at least as large as
+ * the mapped read threshold are memory-mapped and parsed straight from the mapped buffer; smaller
+ * files are read with ordinary stream I/O. The threshold defaults to
+ * {@value #DEFAULT_MAPPED_READ_THRESHOLD} bytes and can be changed with the
+ * {@value #MAPPED_READ_THRESHOLD_PROPERTY} system property.
+ *
+ * <p>All instances share a single {@link ObjectMapper}, and an {@link ObjectReader} and
+ * {@link ObjectWriter} per type. These are immutable and resolve their (de)serializers when they
+ * are created, so the cost of introspecting the model classes and their AutoValue builders is
+ * only paid once per process. {@link #warmUpInBackground} pays it for the readers and writers
+ * ahead of time, while the rest of the program starts up.
  */
 @Singleton
 public final class Marshaller {
+  static final long DEFAULT_MAPPED_READ_THRESHOLD = 64 * 1024;
+  static final String MAPPED_READ_THRESHOLD_PROPERTY = "accounts.mappedReadThreshold";
+  static final String WARM_UP_PROPERTY = "accounts.warmUp";
+
+  /** The model types that are read as top-level values. */
+  private static final ImmutableList<Class<?>> MODEL_TYPES =
+      ImmutableList.of(Config.class, AccountsMonth.class, ComputedTotals.class);
+
+  private static final ConcurrentMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<Class<?>, ObjectReader> JSON_READERS =
+      new ConcurrentHashMap<>();
+
   private final Console console;
-  private final ObjectMapper jackson;
+  private final long mappedReadThreshold;
+  private final AtomicLong readCount = new AtomicLong();
+  private final AtomicLong mappedReadCount = new AtomicLong();
+  private final AtomicLong bytesMapped = new AtomicLong();
 
   @Inject
   Marshaller(Console console) {
+    this(console, Long.getLong(MAPPED_READ_THRESHOLD_PROPERTY, DEFAULT_MAPPED_READ_THRESHOLD));
+  }
+
+  Marshaller(Console console, long mappedReadThreshold) {
     this.console = console;
-    this.jackson = new ObjectMapper(new YAMLFactory());
+    this.mappedReadThreshold = mappedReadThreshold;
+  }
+
+  /**
+   * Creates the readers and writers for every model type on a background thread, unless the
+   * {@value #WARM_UP_PROPERTY} system property is set to {@code false}. Any lookup that arrives
+   * while a reader or writer is being created waits for it rather than creating another.
+   */
+  static void warmUpInBackground() {
+    if (!Boolean.parseBoolean(System.getProperty(WARM_UP_PROPERTY, "true"))) {
+      return;
+    }
+    Thread thread = new Thread(Marshaller::warmUp, "marshaller-warm-up");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /** Creates the readers and writers for every model type. */
+  static void warmUp() {
+    for (Class<?> type : MODEL_TYPES) {
+      readerFor(type);
+    }
+    // Writers are looked up by the runtime class of the value being written, so create them for
+    // the AutoValue classes of placeholder values.
+    AccountsMonth month = AccountsMonth.builder()
+        .setDate(YearMonth.of(2000, 1))
+        .setOpeningBalance(Money.ZERO)
+        .setReceiptsCarriedForward(Money.ZERO)
+        .build();
+    Config config = Config.builder()
+        .setCongregationName("")
+        .setCongregationCity("")
+        .setCongregationState("")
+        .setAccountsSheetFormPath("")
+        .setFundsTransferFormPath("")
+        .setAccountsReportFormPath("")
+        .setRootDir("")
+        .setUseMonthIndex(false)
+        .setCurrentMonth(month.date())
+        .build();
+    for (Object value : ImmutableList.of(config, month, month.computeTotals())) {
+      writerFor(value.getClass());
+    }
+  }
+
+  /** Returns whether the writer for values whose runtime class is {@code type} exists yet. */
+  static boolean hasWriterFor(Class<?> type) {
+    return WRITERS.containsKey(type);
   }
 
   /** Reads an object from disk at the specified path. */
   public <T> T read(Path path, Class<T> type) {
     try {
-      return jackson.readValue(path.toFile(), type);
+      readCount.incrementAndGet();
+      if (shouldMap(path)) {
+        return readerFor(type).readValue(new ByteBufferBackedInputStream(map(path)));
+      }
+      return readerFor(type).readValue(path.toFile());
     } catch (IOException ex) {
       throw new MarshallingException(ex);
     }
   }
 
-  /** Writes an object to disk at the specified path. */
+  /**
+   * Writes an object to disk at the specified path. The file is replaced atomically, so a crash
+   * part way through leaves the previous contents intact.
+   */
   public <T> void write(Path path, T value) {
     try {
-      jackson.writeValue(path.toFile(), value);
+      writeAtomically(path, writerFor(value.getClass()).writeValueAsBytes(value));
+    } catch (IOException ex) {
+      throw new MarshallingException(ex);
+    }
+  }
+
+  /**
+   * Reads an {@link AccountsMonth} from the YAML file at {@code path}. If {@code snapshotPath}
+   * holds a {@link MonthSnapshot} that was derived from the current contents of that file, the
+   * month is decoded from the snapshot instead of parsing the YAML. Otherwise the YAML is parsed
+   * and the snapshot is rewritten for next time.
+   */
+  public AccountsMonth readMonth(Path path, Path snapshotPath) {
+    return readChecksummedMonth(path, snapshotPath).month();
+  }
+
+  /**
+   * Like {@link #readMonth}, but also returns the checksum of the YAML file the month was read
+   * from.
+   */
+  ChecksummedMonth readChecksummedMonth(Path path, Path snapshotPath) {
+    ByteBuffer yaml;
+    try {
+      readCount.incrementAndGet();
+      yaml = shouldMap(path) ? map(path) : ByteBuffer.wrap(Files.readAllBytes(path));
+    } catch (IOException ex) {
+      throw new MarshallingException(ex);
+    }
+    long checksum = checksumOf(yaml);
+    Optional<AccountsMonth> snapshot = readSnapshot(snapshotPath, checksum);
+    if (snapshot.isPresent()) {
+      return ChecksummedMonth.create(snapshot.get(), checksum);
+    }
+    AccountsMonth month;
+    try {
+      month = readerFor(AccountsMonth.class).readValue(new ByteBufferBackedInputStream(yaml));
+    } catch (IOException ex) {
+      throw new MarshallingException(ex);
+    }
+    writeSnapshot(snapshotPath, month, checksum);
+    return ChecksummedMonth.create(month, checksum);
+  }
+
+  /**
+   * Writes an {@link AccountsMonth} as YAML to {@code path}, and writes a matching
+   * {@link MonthSnapshot} to {@code snapshotPath}. The YAML file is replaced atomically.
+   *
+   * @return the checksum of the YAML that was written
+   */
+  public long writeMonth(Path path, Path snapshotPath, AccountsMonth month) {
+    byte[] yaml;
+    try {
+      yaml = writerFor(month.getClass()).writeValueAsBytes(month);
+      writeAtomically(path, yaml);
+    } catch (IOException ex) {
+      throw new MarshallingException(ex);
+    }
+    long checksum = checksumOf(ByteBuffer.wrap(yaml));
+    writeSnapshot(snapshotPath, month, checksum);
+    return checksum;
+  }
+
+  /** Returns the number of files that have been read by this instance. */
+  public long readCount() {
+    return readCount.get();
+  }
+
+  /** Returns the number of files that have been read by memory-mapping them. */
+  public long mappedReadCount() {
+    return mappedReadCount.get();
+  }
+
+  /** Returns the total number of bytes that have been memory-mapped for reading. */
+  public long bytesMapped() {
+    return bytesMapped.get();
+  }
+
+  /**
+   * Parses a single JSON value, such as a line of a JSON-lines file. Numbers with a fraction are
+   * parsed exactly, so that they can be used as amounts of money.
+   */
+  public static <T> T readJson(String json, Class<T> type) {
+    try {
+      return JSON_READERS.computeIfAbsent(type, Jackson.JSON_MAPPER::reader).readValue(json);
     } catch (IOException ex) {
       throw new MarshallingException(ex);
     }
@@ -45,12 +240,119 @@ public final class Marshaller {
   /** Dumps an object to the console. */
   public <T> void dumpToConsole(T value) {
     try {
-      console.print(jackson.writeValueAsString(value));
+      console.print(writerFor(value.getClass()).writeValueAsString(value));
     } catch (IOException ex) {
       throw new MarshallingException(ex);
     }
   }
 
+  private static ObjectReader readerFor(Class<?> type) {
+    return READERS.computeIfAbsent(type, Jackson.MAPPER::reader);
+  }
+
+  /**
+   * Returns the writer for values whose runtime class is {@code type}. This has to be the concrete
+   * AutoValue class rather than the abstract model type, since the two order properties
+   * differently.
+   */
+  private static ObjectWriter writerFor(Class<?> type) {
+    return WRITERS.computeIfAbsent(type, Jackson.MAPPER::writerFor);
+  }
+
+  private boolean shouldMap(Path path) throws IOException {
+    return Files.size(path) >= mappedReadThreshold;
+  }
+
+  private ByteBuffer map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      // The mapping remains valid after the channel is closed.
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      mappedReadCount.incrementAndGet();
+      bytesMapped.addAndGet(buffer.capacity());
+      return buffer;
+    }
+  }
+
+  /**
+   * Replaces the file at {@code path} with {@code contents}. The contents are written and synced
+   * to a temporary file in the same directory, which is then renamed over the original.
+   */
+  private static void writeAtomically(Path path, byte[] contents) throws IOException {
+    Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(tempPath,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.wrap(contents);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(tempPath, path,
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Computes the checksum of the buffer's remaining contents without consuming them. */
+  private static long checksumOf(ByteBuffer contents) {
+    CRC32 crc = new CRC32();
+    crc.update(contents.duplicate());
+    return crc.getValue();
+  }
+
+  private static Optional<AccountsMonth> readSnapshot(Path snapshotPath, long checksum) {
+    if (!Files.exists(snapshotPath)) {
+      return Optional.empty();
+    }
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+      return MonthSnapshot.read(in, checksum);
+    } catch (IOException | RuntimeException ex) {
+      // The snapshot is only a cache of the YAML file, so a damaged one is simply ignored.
+      return Optional.empty();
+    }
+  }
+
+  private static void writeSnapshot(Path snapshotPath, AccountsMonth month, long checksum) {
+    Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+        MonthSnapshot.write(month, checksum, out);
+      }
+      Files.move(tempPath, snapshotPath,
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | IllegalArgumentException ex) {
+      // Failing to write the snapshot is harmless: the month will just be read from YAML. Any
+      // older snapshot no longer matches the YAML checksum, so it will be ignored too.
+      try {
+        Files.deleteIfExists(tempPath);
+      } catch (IOException ignored) {
+        // Nothing more to do.
+      }
+    }
+  }
+
+  /** An {@link AccountsMonth} together with the checksum of the YAML it was read from. */
+  @AutoValue
+  abstract static class ChecksummedMonth {
+    static ChecksummedMonth create(AccountsMonth month, long checksum) {
+      return new AutoValue_Marshaller_ChecksummedMonth(month, checksum);
+    }
+
+    abstract AccountsMonth month();
+    abstract long checksum();
+  }
+
+  /**
+   * Holds the shared {@link ObjectMapper}s. They are in their own class so that Jackson is only
+   * loaded once something is actually read or written, and not by commands such as {@code help}.
+   */
+  private static final class Jackson {
+    static final ObjectMapper MAPPER = new ObjectMapper(new YAMLFactory());
+    static final ObjectMapper JSON_MAPPER =
+        new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+  }
+
   /** Exception that indicates an error when reading or writing objects from disk. */
   public static final class MarshallingException extends RuntimeException {
     MarshallingException(Throwable t) {
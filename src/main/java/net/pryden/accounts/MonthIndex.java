@@ -0,0 +1,239 @@
+package net.pryden.accounts;
+
+import com.google.auto.value.AutoValue;
+import net.pryden.accounts.model.ComputedTotals;
+import net.pryden.accounts.model.Money;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compact on-disk index of the months stored under a single root directory. For each month it
+ * records a stamp identifying the version of the month's file that was indexed, along with a few
+ * values derived from that file (its closed flag and its {@link ComputedTotals}).
+ *
+ * <p>A stamp only identifies a version of a file if the file could not have been changed again
+ * within the same modification time. So each entry also records when it was made, and an entry
+ * whose file was modified too shortly before that (see {@link FileStamp#isRacy}) must have its
+ * checksum verified before it is trusted.
+ *
+ * <p>The index is purely derived data: if it is missing, corrupt, or written by an incompatible
+ * version it is simply discarded and rebuilt as months are read.
+ *
+ * <p>This class is not thread-safe; callers are expected to synchronize access.
+ */
+final class MonthIndex {
+  private static final int MAGIC = 0x414d4958; // "AMIX"
+  private static final int VERSION = 2;
+
+  private final Path indexPath;
+  private final TreeMap<YearMonth, Entry> entries;
+
+  private MonthIndex(Path indexPath, TreeMap<YearMonth, Entry> entries) {
+    this.indexPath = indexPath;
+    this.entries = entries;
+  }
+
+  /**
+   * Loads the index stored at {@code indexPath}. Returns an empty index if the file does not
+   * exist or cannot be understood.
+   */
+  static MonthIndex load(Path indexPath) {
+    TreeMap<YearMonth, Entry> entries = new TreeMap<>();
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(indexPath)))) {
+      if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          Entry entry = readEntry(in);
+          entries.put(entry.date(), entry);
+        }
+      }
+    } catch (NoSuchFileException ex) {
+      // No index yet, start from scratch.
+    } catch (IOException | RuntimeException ex) {
+      // The index is only a cache, so a damaged one is thrown away rather than reported.
+      entries.clear();
+    }
+    return new MonthIndex(indexPath, entries);
+  }
+
+  /** Returns the entry for the given month, or {@code null} if it has not been indexed. */
+  @Nullable
+  Entry get(YearMonth date) {
+    return entries.get(date);
+  }
+
+  /** Adds or replaces the entry for the entry's month. */
+  void put(Entry entry) {
+    entries.put(entry.date(), entry);
+  }
+
+  /** Returns all the entries in this index, ordered by month. */
+  Map<YearMonth, Entry> entries() {
+    return entries;
+  }
+
+  /**
+   * Writes the index back to disk. The new contents are written to a temporary file first and
+   * then moved into place, so a reader never sees a partially written index.
+   */
+  void save() throws IOException {
+    Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entries.size());
+      for (Entry entry : entries.values()) {
+        writeEntry(out, entry);
+      }
+    }
+    Files.move(tempPath, indexPath,
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static Entry readEntry(DataInputStream in) throws IOException {
+    YearMonth date = YearMonth.of(in.readInt(), in.readByte());
+    FileStamp stamp = FileStamp.create(in.readLong(), in.readLong());
+    long indexedAt = in.readLong();
+    long checksum = in.readLong();
+    boolean isClosed = in.readBoolean();
+    ComputedTotals totals = readTotals(in);
+    return Entry.create(date, stamp, indexedAt, checksum, isClosed, totals);
+  }
+
+  private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+    out.writeInt(entry.date().getYear());
+    out.writeByte(entry.date().getMonthValue());
+    out.writeLong(entry.stamp().size());
+    out.writeLong(entry.stamp().lastModified());
+    out.writeLong(entry.indexedAt());
+    out.writeLong(entry.checksum());
+    out.writeBoolean(entry.isClosed());
+    writeTotals(out, entry.totals());
+  }
+
+  /** Reads totals in the format written by {@link #writeTotals}. */
+  static ComputedTotals readTotals(DataInputStream in) throws IOException {
+    return ComputedTotals.builder()
+        .setTotalCongregationReceipts(readMoney(in))
+        .setTotalWorldwideReceipts(readMoney(in))
+        .setTotalReceiptsIn(readMoney(in))
+        .setTotalReceiptsOut(readMoney(in))
+        .setTotalCheckingIn(readMoney(in))
+        .setTotalCheckingOut(readMoney(in))
+        .setTotalCongregationExpenses(readMoney(in))
+        .setTotalWorldwideTransfer(readMoney(in))
+        .setReceiptsOutstandingBalance(readMoney(in))
+        .setCheckingBalance(readMoney(in))
+        .setTotalOfAllBalances(readMoney(in))
+        .build();
+  }
+
+  /** Writes every field of {@code totals} to {@code out}. */
+  static void writeTotals(DataOutputStream out, ComputedTotals totals) throws IOException {
+    writeMoney(out, totals.totalCongregationReceipts());
+    writeMoney(out, totals.totalWorldwideReceipts());
+    writeMoney(out, totals.totalReceiptsIn());
+    writeMoney(out, totals.totalReceiptsOut());
+    writeMoney(out, totals.totalCheckingIn());
+    writeMoney(out, totals.totalCheckingOut());
+    writeMoney(out, totals.totalCongregationExpenses());
+    writeMoney(out, totals.totalWorldwideTransfer());
+    writeMoney(out, totals.receiptsOutstandingBalance());
+    writeMoney(out, totals.checkingBalance());
+    writeMoney(out, totals.totalOfAllBalances());
+  }
+
+  private static Money readMoney(DataInputStream in) throws IOException {
+    return Money.parse(in.readUTF());
+  }
+
+  private static void writeMoney(DataOutputStream out, Money value) throws IOException {
+    out.writeUTF(value.toFormattedStringPreserveZero());
+  }
+
+  /** Identifies a particular version of a file on disk by its size and modification time. */
+  @AutoValue
+  abstract static class FileStamp {
+    /**
+     * The coarsest resolution of modification times that is expected, which is that of FAT file
+     * systems. HFS+ and some network file systems only record whole seconds.
+     */
+    static final long MODIFIED_TIME_RESOLUTION_MILLIS = 2000;
+
+    static FileStamp create(long size, long lastModified) {
+      return new AutoValue_MonthIndex_FileStamp(size, lastModified);
+    }
+
+    /** Returns the stamp of the file at {@code path}. */
+    static FileStamp of(Path path) throws IOException {
+      return create(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+    }
+
+    abstract long size();
+    abstract long lastModified();
+
+    /**
+     * Returns whether the file might have been changed since it had this stamp without its stamp
+     * changing, if the stamp was taken at {@code recordedMillis}: that is, whether the file was
+     * modified within the resolution of modification times before then, so that a change of the
+     * same size made soon afterwards could have the same modification time.
+     */
+    boolean isRacy(long recordedMillis) {
+      return recordedMillis - lastModified() <= MODIFIED_TIME_RESOLUTION_MILLIS;
+    }
+  }
+
+  /** A single month's entry in the index. */
+  @AutoValue
+  abstract static class Entry {
+    static Entry create(
+        YearMonth date,
+        FileStamp stamp,
+        long indexedAt,
+        long checksum,
+        boolean isClosed,
+        ComputedTotals totals) {
+      return new AutoValue_MonthIndex_Entry(date, stamp, indexedAt, checksum, isClosed, totals);
+    }
+
+    abstract YearMonth date();
+    abstract FileStamp stamp();
+
+    /**
+     * Returns the time, in milliseconds since the epoch, at or before which the file was read and
+     * found to have {@link #stamp()}.
+     */
+    abstract long indexedAt();
+
+    abstract long checksum();
+    abstract boolean isClosed();
+    abstract ComputedTotals totals();
+
+    /**
+     * Returns a copy of this entry that refers to a new stamp of the same file contents, taken at
+     * {@code newIndexedAt}.
+     */
+    Entry withStamp(FileStamp newStamp, long newIndexedAt) {
+      return create(date(), newStamp, newIndexedAt, checksum(), isClosed(), totals());
+    }
+
+    /** Returns whether the file can be assumed to be unchanged because it has {@code stamp}. */
+    boolean isCurrent(FileStamp stamp) {
+      return stamp().equals(stamp) && !stamp.isRacy(indexedAt());
+    }
+  }
+}
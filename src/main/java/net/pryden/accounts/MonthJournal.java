@@ -0,0 +1,279 @@
+package net.pryden.accounts;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import net.pryden.accounts.model.Transaction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Append-only journal of the transactions added to a month since its YAML file was last written.
+ *
+ * <p>The journal starts with a header line recording the checksum of the YAML file it applies
+ * to, followed by one line per record. Each record is a JSON array of the transactions passed to
+ * a single {@code withNewTransactions} call. A final line without a trailing newline was torn by
+ * a crash part way through an append, and is ignored.
+ *
+ * <p>Folding the journal back into the YAML file ("compaction") is done by renaming the journal
+ * out of the way, replacing the YAML file atomically, and then deleting the renamed journal. If
+ * a crash interrupts that sequence, {@link #recover} can tell from the checksums which side of
+ * the YAML replacement it happened on.
+ */
+final class MonthJournal {
+  static final String JOURNAL_FILE_NAME = "accounts.journal";
+  static final String COMPACTING_FILE_NAME = "accounts.journal.compacting";
+
+  private static final String HEADER_PREFIX = "accounts-journal base=";
+
+  private final Path journalPath;
+  private final Path compactingPath;
+
+  MonthJournal(Path monthDir) {
+    this.journalPath = monthDir.resolve(JOURNAL_FILE_NAME);
+    this.compactingPath = monthDir.resolve(COMPACTING_FILE_NAME);
+  }
+
+  /** Returns the path to the journal file. */
+  Path path() {
+    return journalPath;
+  }
+
+  /**
+   * Finishes any interrupted compaction and reads the journal records that apply on top of the
+   * YAML file with checksum {@code yamlChecksum}.
+   *
+   * @throws IOException if the journal cannot be read, or if it was written against a different
+   *     version of the YAML file (which means the file was edited by hand while the journal still
+   *     held changes)
+   */
+  Contents recover(long yamlChecksum) throws IOException {
+    if (Files.exists(compactingPath)) {
+      Contents compacting = read(compactingPath);
+      if (compacting.baseChecksum() == yamlChecksum) {
+        // The YAML file was never replaced, so the journal still applies to it.
+        Files.move(compactingPath, journalPath,
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } else {
+        // The YAML file was replaced, and already contains everything in the journal.
+        Files.delete(compactingPath);
+      }
+    }
+    Contents contents = read(journalPath);
+    if (contents.length() == 0) {
+      return Contents.empty().withBaseChecksum(yamlChecksum);
+    }
+    if (contents.baseChecksum() != yamlChecksum) {
+      throw new IOException(journalPath + " has pending changes for a different version of "
+          + DiskStorage.ACCOUNTS_FILE_NAME + ", which appears to have been edited by hand. "
+          + "Resolve the conflict and delete the journal to continue.");
+    }
+    return contents;
+  }
+
+  /**
+   * Returns the length of the journal up to the end of its last complete line, which is the part
+   * that {@link #recover} applies, or zero if there is no journal.
+   */
+  long completeLength() throws IOException {
+    byte[] bytes;
+    try {
+      bytes = Files.readAllBytes(journalPath);
+    } catch (NoSuchFileException ex) {
+      return 0;
+    }
+    for (int i = bytes.length - 1; i >= 0; i--) {
+      if (bytes[i] == '\n') {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Appends a record containing {@code transactions} to a journal whose current contents are
+   * {@code current}, creating the journal if it is empty. The record is synced to disk before this
+   * method returns.
+   *
+   * @return the contents of the journal after the append
+   */
+  Contents append(Contents current, List<Transaction> transactions) throws IOException {
+    byte[] record = encode(transactions);
+    ImmutableList<ImmutableList<Transaction>> records = ImmutableList.<ImmutableList<Transaction>>
+        builder()
+        .addAll(current.records())
+        .add(ImmutableList.copyOf(transactions))
+        .build();
+    if (current.length() == 0) {
+      byte[] header = (HEADER_PREFIX + Long.toHexString(current.baseChecksum()) + "\n")
+          .getBytes(StandardCharsets.UTF_8);
+      Path tempPath = journalPath.resolveSibling(JOURNAL_FILE_NAME + ".tmp");
+      writeAndSync(tempPath, 0, header, record);
+      Files.move(tempPath, journalPath,
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      return Contents.create(
+          current.baseChecksum(), records, (long) header.length + record.length);
+    }
+    writeAndSync(journalPath, current.length(), record);
+    return Contents.create(current.baseChecksum(), records, current.length() + record.length);
+  }
+
+  /**
+   * Marks the start of a compaction by moving the journal aside. Does nothing if there is no
+   * journal.
+   */
+  void beginCompaction() throws IOException {
+    if (Files.exists(journalPath)) {
+      Files.move(journalPath, compactingPath,
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+
+  /** Marks the end of a compaction, once the YAML file has been replaced. */
+  void finishCompaction() throws IOException {
+    Files.deleteIfExists(compactingPath);
+  }
+
+  /**
+   * Writes {@code chunks} to the file at {@code path} starting at {@code position}, discarding
+   * anything after that position (such as a torn record), and syncs the file.
+   */
+  private static void writeAndSync(Path path, long position, byte[]... chunks)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      channel.truncate(position);
+      channel.position(position);
+      for (byte[] chunk : chunks) {
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+      channel.force(false);
+    }
+  }
+
+  private static byte[] encode(List<Transaction> transactions) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Json.WRITER.writeValue(out, transactions.toArray(new Transaction[0]));
+    out.write('\n');
+    return out.toByteArray();
+  }
+
+  private static Contents read(Path path) throws IOException {
+    byte[] bytes;
+    try {
+      bytes = Files.readAllBytes(path);
+    } catch (NoSuchFileException ex) {
+      return Contents.empty();
+    }
+    int end = indexOf(bytes, 0, (byte) '\n');
+    if (end < 0) {
+      // Not even the header made it to disk.
+      return Contents.empty();
+    }
+    String header = new String(bytes, 0, end, StandardCharsets.UTF_8);
+    if (!header.startsWith(HEADER_PREFIX)) {
+      throw new IOException("Not a journal file: " + path);
+    }
+    long baseChecksum;
+    try {
+      baseChecksum = Long.parseUnsignedLong(header.substring(HEADER_PREFIX.length()), 16);
+    } catch (NumberFormatException ex) {
+      throw new IOException("Not a journal file: " + path, ex);
+    }
+
+    ImmutableList.Builder<ImmutableList<Transaction>> records = ImmutableList.builder();
+    int start = end + 1;
+    while ((end = indexOf(bytes, start, (byte) '\n')) >= 0) {
+      try {
+        records.add(ImmutableList.copyOf(
+            Json.READER.<Transaction[]>readValue(bytes, start, end - start)));
+      } catch (IOException ex) {
+        if (end + 1 < bytes.length) {
+          throw new IOException("Corrupt record in journal " + path, ex);
+        }
+        // Garbage at the very end of the file is treated like any other torn record.
+        break;
+      }
+      start = end + 1;
+    }
+    return Contents.create(baseChecksum, records.build(), start);
+  }
+
+  private static int indexOf(byte[] bytes, int from, byte value) {
+    for (int i = from; i < bytes.length; i++) {
+      if (bytes[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Holder for the record reader and writer, which are only created once a journal is used. */
+  private static final class Json {
+    static final ObjectMapper MAPPER = new ObjectMapper();
+    static final ObjectReader READER = MAPPER.reader(Transaction[].class);
+    static final ObjectWriter WRITER = MAPPER.writerFor(Transaction[].class);
+  }
+
+  /** The records read from, or written to, a journal. */
+  @AutoValue
+  abstract static class Contents {
+    private static final Contents EMPTY = create(0, ImmutableList.of(), 0);
+
+    static Contents create(
+        long baseChecksum, ImmutableList<ImmutableList<Transaction>> records, long length) {
+      return new AutoValue_MonthJournal_Contents(baseChecksum, records, length);
+    }
+
+    /** Returns the contents of a journal that does not exist yet. */
+    static Contents empty() {
+      return EMPTY;
+    }
+
+    /** The checksum of the YAML file that the records apply to. */
+    abstract long baseChecksum();
+
+    /** The records, in the order they were appended. */
+    abstract ImmutableList<ImmutableList<Transaction>> records();
+
+    /** The length of the valid part of the journal file, or zero if there is no journal. */
+    abstract long length();
+
+    /**
+     * Returns a checksum of the month that these contents apply to, as computed by
+     * {@link #monthChecksum(long, long)}.
+     */
+    long monthChecksum() {
+      return monthChecksum(baseChecksum(), length());
+    }
+
+    /**
+     * Combines the checksum of a month's YAML file with the length of the journal applied on top
+     * of it. The journal is tied to the YAML file by its header and is only ever appended to, so
+     * its length is enough to tell its versions apart.
+     */
+    static long monthChecksum(long yamlChecksum, long journalLength) {
+      return yamlChecksum * 31 + journalLength;
+    }
+
+    /** Returns a copy of these contents for a journal that will be based on a new YAML file. */
+    Contents withBaseChecksum(long newBaseChecksum) {
+      return create(newBaseChecksum, records(), length());
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package net.pryden.accounts;
+
+import net.pryden.accounts.model.ComputedTotals;
+
+import java.time.Month;
+import java.time.YearMonth;
+
+/**
+ * API for totals that cover a run of months, such as year-to-date totals.
+ */
+public interface Rollups {
+  /**
+   * Returns the totals of every month from {@code from} to {@code to} (inclusive). The column
+   * totals are summed over all the months, and the balances are those at the end of {@code to}.
+   */
+  ComputedTotals totalsBetween(YearMonth from, YearMonth to);
+
+  /**
+   * Returns the totals from the start of the year that contains {@code date} up to and including
+   * {@code date}, for a year that starts in {@code firstMonth}. For example, the service year
+   * starts in {@link Month#SEPTEMBER}.
+   */
+  default ComputedTotals yearToDate(YearMonth date, Month firstMonth) {
+    return totalsBetween(startOfYear(date, firstMonth), date);
+  }
+
+  /** Returns the first month of the year that contains {@code date}. */
+  static YearMonth startOfYear(YearMonth date, Month firstMonth) {
+    YearMonth start = YearMonth.of(date.getYear(), firstMonth);
+    return start.isAfter(date) ? start.minusYears(1) : start;
+  }
+}
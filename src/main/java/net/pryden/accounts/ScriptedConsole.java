@@ -0,0 +1,128 @@
+package net.pryden.accounts;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link Console} that answers prompts from an answers file instead of asking
+ * the user, so that commands can be run unattended. Everything else is printed to the console it
+ * wraps, along with each prompt and the answer given to it.
+ *
+ * <p>The answers file is a YAML map from prompts to answers, selected with {@value #FLAG_PREFIX}.
+ * A prompt is answered by the entry whose key is the whole prompt, or failing that by the entry
+ * with the longest key that the prompt starts with; whitespace at the end of keys and prompts is
+ * ignored. So a {@code "Confirm closing month"} entry answers the prompt
+ * {@code "Confirm closing month 2015-10 [Y/n] "}. An answer that is a single value is given every
+ * time its prompt is asked. An answer that is a list is given one item at a time, for prompts such
+ * as reconcile's "Does the statement contain this transaction?" that are asked repeatedly.
+ *
+ * <p>A prompt without an answer, or a response that the command cannot understand, stops the
+ * command with an exception rather than waiting for input that will never come.
+ */
+final class ScriptedConsole extends Console {
+  static final String FLAG_PREFIX = "--answers=";
+
+  private static final CharMatcher TRAILING = CharMatcher.WHITESPACE;
+
+  private final Console output;
+  private final ImmutableMap<String, Answer> answers;
+
+  ScriptedConsole(Console output, Map<?, ?> answers) {
+    this.output = output;
+    ImmutableMap.Builder<String, Answer> builder = ImmutableMap.builder();
+    for (Map.Entry<?, ?> entry : answers.entrySet()) {
+      builder.put(
+          TRAILING.trimTrailingFrom(String.valueOf(entry.getKey())),
+          Answer.of(entry.getValue()));
+    }
+    this.answers = builder.build();
+  }
+
+  /** Creates a console that answers prompts from the YAML file at {@code path}. */
+  static ScriptedConsole load(Console output, Path path) {
+    Map<?, ?> answers = new Marshaller(output).read(path, Map.class);
+    if (answers == null) {
+      throw new IllegalArgumentException("There are no answers in " + path);
+    }
+    return new ScriptedConsole(output, answers);
+  }
+
+  @Override
+  public void print(String message) {
+    output.print(message);
+  }
+
+  @Override
+  public String readString(String prompt) {
+    String key = TRAILING.trimTrailingFrom(prompt);
+    // Looking up each prefix of the prompt, longest first, finds an exact match before any
+    // shorter prefix.
+    for (int end = key.length(); end > 0; end--) {
+      Answer answer = answers.get(key.substring(0, end));
+      if (answer != null) {
+        String response = answer.next(key);
+        output.print(prompt + response + "\n");
+        return response;
+      }
+    }
+    throw new IllegalStateException("The answers file has no answer for the prompt: " + key);
+  }
+
+  @Override
+  protected void rejectResponse(String message) {
+    throw new IllegalArgumentException(TRAILING.trimTrailingFrom(message));
+  }
+
+  /** The answers for a single prompt. */
+  private static final class Answer {
+    private final ImmutableList<String> responses;
+    private final boolean repeats;
+    private int next;
+
+    private Answer(ImmutableList<String> responses, boolean repeats) {
+      this.responses = responses;
+      this.repeats = repeats;
+    }
+
+    static Answer of(Object value) {
+      if (value instanceof List) {
+        ImmutableList.Builder<String> responses = ImmutableList.builder();
+        for (Object item : (List<?>) value) {
+          responses.add(toResponse(item));
+        }
+        return new Answer(responses.build(), false);
+      }
+      return new Answer(ImmutableList.of(toResponse(value)), true);
+    }
+
+    /**
+     * Converts a YAML value to the text that would have been typed. YAML reads unquoted values
+     * such as {@code yes} as booleans, which are turned back into answers to a confirmation.
+     */
+    private static String toResponse(Object value) {
+      if (value == null) {
+        return "";
+      }
+      if (value instanceof Boolean) {
+        return (Boolean) value ? "y" : "n";
+      }
+      return value.toString();
+    }
+
+    String next(String prompt) {
+      if (repeats) {
+        return responses.get(0);
+      }
+      if (next == responses.size()) {
+        throw new IllegalStateException(String.format(
+            "The answers file only has %d answers for the prompt: %s", responses.size(), prompt));
+      }
+      return responses.get(next++);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package net.pryden.accounts;
+
+import com.google.auto.value.AutoValue;
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.TransactionCategory;
+
+import java.time.LocalDate;
+
+/**
+ * A transaction or sub-transaction found by {@link TransactionSearch}.
+ */
+@AutoValue
+public abstract class SearchHit {
+  SearchHit() {}
+
+  static SearchHit create(
+      LocalDate date, String description, TransactionCategory category, Money amount) {
+    return new AutoValue_SearchHit(date, description, category, amount);
+  }
+
+  /** The date of the transaction. */
+  public abstract LocalDate date();
+
+  /**
+   * The description of the transaction. For a sub-transaction, this is the description of the
+   * transaction followed by that of the sub-transaction.
+   */
+  public abstract String description();
+
+  /** The category of the transaction or sub-transaction. */
+  public abstract TransactionCategory category();
+
+  /**
+   * The amount of the transaction: the first of its receipts in, checking in, receipts out and
+   * checking out columns that is not zero. For a sub-transaction, its own amount.
+   */
+  public abstract Money amount();
+}
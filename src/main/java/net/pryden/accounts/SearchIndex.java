@@ -0,0 +1,449 @@
+package net.pryden.accounts;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import net.pryden.accounts.Marshaller.MarshallingException;
+import net.pryden.accounts.MonthIndex.FileStamp;
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.SubTransaction;
+import net.pryden.accounts.model.Transaction;
+import net.pryden.accounts.model.TransactionCategory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * {@link TransactionSearch} implementation backed by an inverted index of the words in every
+ * month's transaction descriptions.
+ *
+ * <p>The index is saved next to the months as a log of segments, one per version of a month: the
+ * month's stamp, the transactions and sub-transactions that can be found, and a sorted list of
+ * words, each with the transactions that contain it. {@link DiskStorage#writeMonth} appends a new
+ * segment for the month it has written without having to read the rest of the index, and a later
+ * segment for a month replaces any earlier ones when the index is loaded. The log's header records
+ * its size when it was last rewritten, and once it has grown well beyond that, whether by searches
+ * or by writes, it is loaded and rewritten with one segment per month. Since that only happens
+ * after the log has doubled, the cost of rewriting it is proportional to what was appended.
+ *
+ * <p>Before each search the stamps of the months being searched are compared with their segments,
+ * and any month that has no segment or has been changed by other means is read and indexed again.
+ * Otherwise no month file is read at all. Like the month index, the search index is purely derived
+ * data, and is discarded if it cannot be read.
+ */
+final class SearchIndex implements TransactionSearch {
+  static final String INDEX_FILE_NAME = ".accounts-search";
+
+  private static final int MAGIC = 0x414d5349; // "AMSI"
+  private static final int VERSION = 2;
+  private static final int HEADER_LENGTH = 16;
+
+  /**
+   * The number of bytes the log may have beyond twice its size when it was last rewritten, before
+   * it is rewritten again.
+   */
+  static final long MAX_EXTRA_LOG_BYTES = 64 * 1024;
+
+  private final DiskStorage disk;
+  private final Path indexPath;
+  @Nullable private TreeMap<YearMonth, Segment> segments;
+  private long indexedMonthCount;
+
+  SearchIndex(DiskStorage disk) {
+    this.disk = disk;
+    this.indexPath = disk.rootDir().resolve(INDEX_FILE_NAME);
+  }
+
+  @Override
+  public synchronized ImmutableList<SearchHit> search(String query, YearMonth from, YearMonth to) {
+    List<String> terms = tokenize(query);
+    if (terms.isEmpty()) {
+      throw new IllegalArgumentException("The query has no words to search for: " + query);
+    }
+    loadIfNecessary();
+    ImmutableList.Builder<SearchHit> hits = ImmutableList.builder();
+    for (YearMonth date : storedMonthsBetween(from, to)) {
+      Segment segment = segments.get(date);
+      FileStamp stamp = stampOf(date);
+      if (segment == null || !segment.stamp.equals(stamp)) {
+        indexedMonthCount++;
+        segment = Segment.of(disk.readMonth(date), stamp);
+        add(segment);
+      }
+      segment.search(terms, hits);
+    }
+    return hits.build();
+  }
+
+  /** Indexes a month that has just been written. */
+  synchronized void update(AccountsMonth month) {
+    try {
+      add(Segment.of(month, disk.stampMonth(month.date())));
+    } catch (IOException ex) {
+      // The month's stamp will not match whatever the index has, so it is indexed again by the
+      // next search.
+    }
+  }
+
+  /** Returns the number of months that have had to be read in order to index them. */
+  synchronized long indexedMonthCount() {
+    return indexedMonthCount;
+  }
+
+  /** Splits text into lower-case words, ignoring everything other than letters and digits. */
+  static List<String> tokenize(String text) {
+    List<String> words = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean isWordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (isWordChar && start < 0) {
+        start = i;
+      } else if (!isWordChar && start >= 0) {
+        words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+    return words;
+  }
+
+  /** Returns the months from {@code from} to {@code to} that have a file in the root directory. */
+  private ImmutableSortedSet<YearMonth> storedMonthsBetween(YearMonth from, YearMonth to) {
+    ImmutableSortedSet.Builder<YearMonth> dates = ImmutableSortedSet.naturalOrder();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(disk.rootDir())) {
+      for (Path path : stream) {
+        YearMonth date;
+        try {
+          date = YearMonth.parse(path.getFileName().toString());
+        } catch (DateTimeParseException ex) {
+          continue;
+        }
+        if (!date.isBefore(from) && !date.isAfter(to) && Files.exists(disk.monthPath(date))) {
+          dates.add(date);
+        }
+      }
+    } catch (NoSuchFileException ex) {
+      // No months have been stored yet.
+    } catch (IOException ex) {
+      throw new MarshallingException(ex);
+    }
+    return dates.build();
+  }
+
+  private FileStamp stampOf(YearMonth date) {
+    try {
+      return disk.stampMonth(date);
+    } catch (IOException ex) {
+      throw new MarshallingException(ex);
+    }
+  }
+
+  private void loadIfNecessary() {
+    if (segments != null) {
+      return;
+    }
+    segments = new TreeMap<>();
+    boolean needsRewrite = false;
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(indexPath)))) {
+      long fileSize = Files.size(indexPath);
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        needsRewrite = true;
+      } else {
+        needsRewrite = isTooLarge(fileSize, in.readLong());
+        int first;
+        while ((first = in.read()) >= 0) {
+          int length = (first << 24) | (in.readUnsignedByte() << 16) | in.readUnsignedShort();
+          if (length < 0 || length > fileSize) {
+            throw new IOException("Bad segment length: " + length);
+          }
+          byte[] bytes = new byte[length];
+          in.readFully(bytes);
+          Segment segment = Segment.read(bytes);
+          segments.put(segment.date, segment);
+        }
+      }
+    } catch (NoSuchFileException ex) {
+      // Nothing indexed yet, start from scratch.
+    } catch (IOException | RuntimeException ex) {
+      // A segment that was only partly written is dropped along with everything after it; those
+      // months are simply indexed again.
+      needsRewrite = true;
+    }
+    if (needsRewrite) {
+      rewrite();
+    }
+  }
+
+  /**
+   * Records a new segment for a month. It is appended to the log, unless the log has grown too
+   * large, in which case the log is rewritten, loading it first if necessary.
+   */
+  private void add(Segment segment) {
+    if (segments == null && isLogTooLarge()) {
+      // Loading the log rewrites it, so the segment can then be appended as usual.
+      loadIfNecessary();
+    }
+    if (segments != null) {
+      segments.put(segment.date, segment);
+      if (isLogTooLarge()) {
+        rewrite();
+        return;
+      }
+    }
+    append(segment);
+  }
+
+  /** Returns whether the log needs rewriting, reading only its header. */
+  private boolean isLogTooLarge() {
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(indexPath))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return true;
+      }
+      return isTooLarge(Files.size(indexPath), in.readLong());
+    } catch (NoSuchFileException ex) {
+      return false;
+    } catch (IOException ex) {
+      return true;
+    }
+  }
+
+  private static boolean isTooLarge(long logSize, long rewrittenSize) {
+    return logSize > 2 * rewrittenSize + MAX_EXTRA_LOG_BYTES;
+  }
+
+  /** Appends a segment to the log, starting a new log if there is none yet. */
+  private void append(Segment segment) {
+    try (OutputStream out = Files.newOutputStream(
+        indexPath, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      if (Files.size(indexPath) == 0) {
+        out.write(header(0));
+      }
+      out.write(segment.toRecord());
+    } catch (IOException ex) {
+      // Ignored, since the index is only a cache: the month will be indexed again next time.
+    }
+  }
+
+  /**
+   * Replaces the log with one that has a single segment for each month. The new log is written to
+   * a temporary file first and then moved into place, so a reader never sees a partial log.
+   */
+  private void rewrite() {
+    Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+    try {
+      List<byte[]> records = new ArrayList<>(segments.size());
+      long size = HEADER_LENGTH;
+      for (Segment segment : segments.values()) {
+        byte[] record = segment.toRecord();
+        records.add(record);
+        size += record.length;
+      }
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
+        out.write(header(size));
+        for (byte[] record : records) {
+          out.write(record);
+        }
+      }
+      Files.move(tempPath, indexPath,
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      // Ignored, since the index is only a cache.
+    }
+  }
+
+  /** Returns the header of a log whose size, when it was last rewritten, was {@code size}. */
+  private static byte[] header(long size) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_LENGTH);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeLong(size);
+    return bytes.toByteArray();
+  }
+
+  /** The index of a single version of a month. */
+  private static final class Segment {
+    final YearMonth date;
+    final FileStamp stamp;
+    final ImmutableList<SearchHit> hits;
+    /** Maps each word to the (ascending) positions in {@link #hits} of the entries that use it. */
+    final TreeMap<String, int[]> postings;
+
+    Segment(
+        YearMonth date,
+        FileStamp stamp,
+        ImmutableList<SearchHit> hits,
+        TreeMap<String, int[]> postings) {
+      this.date = date;
+      this.stamp = stamp;
+      this.hits = hits;
+      this.postings = postings;
+    }
+
+    /** Indexes every transaction and sub-transaction of {@code month}. */
+    static Segment of(AccountsMonth month, FileStamp stamp) {
+      ImmutableList.Builder<SearchHit> hits = ImmutableList.builder();
+      TreeMap<String, List<Integer>> words = new TreeMap<>();
+      int position = 0;
+      for (Transaction transaction : month.transactions()) {
+        hits.add(SearchHit.create(
+            month.date().atDay(transaction.date()),
+            transaction.description(),
+            transaction.category(),
+            amountOf(transaction)));
+        addWords(words, position, transaction.description(), transaction.summaryDescription());
+        position++;
+        for (SubTransaction sub : transaction.subTransactions()) {
+          hits.add(SearchHit.create(
+              month.date().atDay(transaction.date()),
+              transaction.description() + ": " + sub.description(),
+              sub.category(),
+              sub.amount()));
+          addWords(words, position, sub.description());
+          position++;
+        }
+      }
+      TreeMap<String, int[]> postings = new TreeMap<>();
+      for (Map.Entry<String, List<Integer>> entry : words.entrySet()) {
+        postings.put(entry.getKey(), entry.getValue().stream().mapToInt(i -> i).toArray());
+      }
+      return new Segment(month.date(), stamp, hits.build(), postings);
+    }
+
+    private static Money amountOf(Transaction transaction) {
+      for (Money amount : ImmutableList.of(
+          transaction.receiptsIn(),
+          transaction.checkingIn(),
+          transaction.receiptsOut(),
+          transaction.checkingOut())) {
+        if (!amount.isZero()) {
+          return amount;
+        }
+      }
+      return Money.ZERO;
+    }
+
+    private static void addWords(
+        TreeMap<String, List<Integer>> words, int position, String... texts) {
+      for (String text : texts) {
+        for (String word : tokenize(text)) {
+          List<Integer> positions = words.computeIfAbsent(word, w -> new ArrayList<>());
+          if (positions.isEmpty() || positions.get(positions.size() - 1) != position) {
+            positions.add(position);
+          }
+        }
+      }
+    }
+
+    /** Adds the entries that contain every one of {@code terms}, or a word starting with it. */
+    void search(List<String> terms, ImmutableList.Builder<SearchHit> results) {
+      BitSet matches = null;
+      for (String term : terms) {
+        BitSet termMatches = new BitSet(hits.size());
+        SortedMap<String, int[]> prefixed = postings.tailMap(term);
+        for (Map.Entry<String, int[]> entry : prefixed.entrySet()) {
+          if (!entry.getKey().startsWith(term)) {
+            break;
+          }
+          for (int position : entry.getValue()) {
+            termMatches.set(position);
+          }
+        }
+        if (matches == null) {
+          matches = termMatches;
+        } else {
+          matches.and(termMatches);
+        }
+        if (matches.isEmpty()) {
+          return;
+        }
+      }
+      for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+        results.add(hits.get(i));
+      }
+    }
+
+    /** Returns this segment as a length-prefixed record for the log. */
+    byte[] toRecord() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(0); // Filled in with the length below.
+      out.writeInt(date.getYear());
+      out.writeByte(date.getMonthValue());
+      out.writeLong(stamp.size());
+      out.writeLong(stamp.lastModified());
+      out.writeInt(hits.size());
+      for (SearchHit hit : hits) {
+        out.writeByte(hit.date().getDayOfMonth());
+        out.writeUTF(hit.description());
+        out.writeByte(hit.category().ordinal());
+        out.writeUTF(hit.amount().toFormattedStringPreserveZero());
+      }
+      out.writeInt(postings.size());
+      for (Map.Entry<String, int[]> entry : postings.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeInt(entry.getValue().length);
+        for (int position : entry.getValue()) {
+          out.writeInt(position);
+        }
+      }
+      out.flush();
+      byte[] record = bytes.toByteArray();
+      int length = record.length - 4;
+      record[0] = (byte) (length >>> 24);
+      record[1] = (byte) (length >>> 16);
+      record[2] = (byte) (length >>> 8);
+      record[3] = (byte) length;
+      return record;
+    }
+
+    /** Reads a segment from a record written by {@link #toRecord}, without its length. */
+    static Segment read(byte[] record) throws IOException {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+      YearMonth date = YearMonth.of(in.readInt(), in.readByte());
+      FileStamp stamp = FileStamp.create(in.readLong(), in.readLong());
+      int hitCount = in.readInt();
+      ImmutableList.Builder<SearchHit> hits = ImmutableList.builder();
+      for (int i = 0; i < hitCount; i++) {
+        hits.add(SearchHit.create(
+            date.atDay(in.readByte()),
+            in.readUTF(),
+            TransactionCategory.values()[in.readByte()],
+            Money.parse(in.readUTF())));
+      }
+      int wordCount = in.readInt();
+      TreeMap<String, int[]> postings = new TreeMap<>();
+      for (int i = 0; i < wordCount; i++) {
+        String word = in.readUTF();
+        int[] positions = new int[in.readInt()];
+        for (int j = 0; j < positions.length; j++) {
+          positions[j] = in.readInt();
+        }
+        postings.put(word, positions);
+      }
+      return new Segment(date, stamp, hits.build(), postings);
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package net.pryden.accounts;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long each phase of running a command takes, so that slow start-up can be tracked
+ * down. Enabled by passing {@value #FLAG} with any command.
+ *
+ * <p>This class is not thread-safe.
+ */
+final class StartupTimings {
+  static final String FLAG = "--timings";
+
+  private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+  private long lastMark = System.nanoTime();
+
+  private StartupTimings() {}
+
+  /** Starts timing now, for a command run by an already warm process. */
+  static StartupTimings start() {
+    return new StartupTimings();
+  }
+
+  /**
+   * Starts timing now, with a first phase covering the time from when the JVM started until this
+   * method was called. The time taken to look up the JVM's start time is not counted.
+   */
+  static StartupTimings sinceJvmStart() {
+    long nowMillis = System.currentTimeMillis();
+    StartupTimings timings = new StartupTimings();
+    timings.phaseMillis.put(
+        "JVM start", nowMillis - ManagementFactory.getRuntimeMXBean().getStartTime());
+    timings.lastMark = System.nanoTime();
+    return timings;
+  }
+
+  /** Records that the named phase has just finished. */
+  void mark(String phase) {
+    long now = System.nanoTime();
+    phaseMillis.put(phase, TimeUnit.NANOSECONDS.toMillis(now - lastMark));
+    lastMark = now;
+  }
+
+  /** Prints the time taken by each phase, and in total. */
+  void print(Console console) {
+    console.print("Timings:\n");
+    long total = 0;
+    for (Map.Entry<String, Long> phase : phaseMillis.entrySet()) {
+      console.printf("    %-32s %6d ms\n", phase.getKey() + ":", phase.getValue());
+      total += phase.getValue();
+    }
+    console.printf("    %-32s %6d ms\n", "Total:", total);
+  }
+}
@@ -1,19 +1,64 @@
 package net.pryden.accounts;
 
+import com.google.common.collect.ImmutableList;
 import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.ComputedTotals;
 import net.pryden.accounts.model.Config;
 
+import java.nio.file.Path;
 import java.time.YearMonth;
+import java.util.function.Consumer;
 
 /**
  * Very simple data storage API.
  */
 public interface Storage {
+  /**
+   * Factory for {@link Storage} instances, for commands that work with more than one
+   * congregation's accounts at once.
+   */
+  interface Factory {
+    /** Reads the global configuration object stored at {@code configFilePath}. */
+    Config readConfig(Path configFilePath);
+
+    /**
+     * Returns a {@link Storage} for the accounts configured by {@code config}. The returned
+     * instance must not be used to update the configuration.
+     */
+    Storage create(Config config);
+  }
+
   /**
    * Reads the {@link AccountsMonth} for the given month from storage.
    */
   AccountsMonth readMonth(YearMonth date);
 
+  /**
+   * Reads every {@link AccountsMonth} from {@code from} to {@code to} (inclusive) from storage,
+   * returning them in date order. Implementations may load the months concurrently.
+   */
+  ImmutableList<AccountsMonth> readMonths(YearMonth from, YearMonth to);
+
+  /**
+   * Reads every {@link AccountsMonth} from {@code from} to {@code to} (inclusive) in date order,
+   * passing each one to {@code action} before the next is read. Unlike {@link #readMonths}, only
+   * one month needs to be in memory at a time, so implementations should not hold on to the
+   * months after {@code action} returns.
+   */
+  default void forEachMonth(YearMonth from, YearMonth to, Consumer<AccountsMonth> action) {
+    for (YearMonth date = from; !date.isAfter(to); date = date.plusMonths(1)) {
+      action.accept(readMonth(date));
+    }
+  }
+
+  /**
+   * Reads the {@link ComputedTotals} for the given month. Implementations that keep an index may
+   * be able to answer this without reading the whole month.
+   */
+  default ComputedTotals readTotals(YearMonth date) {
+    return readMonth(date).computeTotals();
+  }
+
   /**
    * Writes the given {@link AccountsMonth} to storage.
    */
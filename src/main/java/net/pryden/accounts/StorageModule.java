@@ -5,6 +5,7 @@ import dagger.Provides;
 import net.pryden.accounts.Annotations.UserHomeDir;
 import net.pryden.accounts.model.Config;
 
+import javax.inject.Provider;
 import javax.inject.Singleton;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -24,7 +25,44 @@ final class StorageModule {
 
   @Provides
   @Singleton
-  Storage provideStorage(DiskStorage storage) {
-    return storage;
+  Storage provideStorage(
+      Config config,
+      Provider<DiskStorage> diskStorage,
+      Provider<IndexedStorage> indexedStorage) {
+    if (config.useMonthIndex()) {
+      return indexedStorage.get();
+    }
+    return diskStorage.get();
+  }
+
+  @Provides
+  Rollups provideRollups(TotalsRollup rollup) {
+    return rollup;
+  }
+
+  @Provides
+  TransactionSearch provideTransactionSearch(DiskStorage disk) {
+    return disk.searchIndex();
+  }
+
+  @Provides
+  @Singleton
+  Storage.Factory provideStorageFactory(
+      Marshaller marshaller, @UserHomeDir String userHomeDir, DeferredWrites deferredWrites) {
+    return new Storage.Factory() {
+      @Override
+      public Config readConfig(Path configFilePath) {
+        return marshaller.read(configFilePath, Config.class);
+      }
+
+      @Override
+      public Storage create(Config config) {
+        DiskStorage disk = new DiskStorage(userHomeDir, config, marshaller);
+        if (config.useMonthIndex()) {
+          return new IndexedStorage(disk, deferredWrites);
+        }
+        return disk;
+      }
+    };
   }
 }
@@ -1,9 +1,17 @@
 package net.pryden.accounts;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+
 /**
- * Implementation of {@link Console} that uses the {@link System#console()}.
+ * Implementation of {@link Console} that uses the {@link System#console()}. When there is no
+ * console, because the input has been redirected, responses are read from standard input instead.
  */
 final class SystemConsole extends Console {
+  private BufferedReader stdin;
+
   @Override
   public void print(String message) {
     System.out.print(message);
@@ -11,6 +19,23 @@ final class SystemConsole extends Console {
 
   @Override
   public String readString(String prompt) {
-    return System.console().readLine(prompt);
+    java.io.Console console = System.console();
+    if (console != null) {
+      return console.readLine(prompt);
+    }
+    print(prompt);
+    System.out.flush();
+    try {
+      if (stdin == null) {
+        stdin = new BufferedReader(new InputStreamReader(System.in));
+      }
+      String line = stdin.readLine();
+      if (line == null) {
+        throw new IllegalStateException("No response to the prompt: " + prompt.trim());
+      }
+      return line;
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
   }
 }
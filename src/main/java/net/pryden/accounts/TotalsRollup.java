@@ -0,0 +1,176 @@
+package net.pryden.accounts;
+
+import com.google.common.base.Preconditions;
+import net.pryden.accounts.Marshaller.MarshallingException;
+import net.pryden.accounts.MonthIndex.FileStamp;
+import net.pryden.accounts.model.ComputedTotals;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link Rollups} implementation that keeps running totals of every month it has seen.
+ *
+ * <p>For each month the rollup records the month's own {@link ComputedTotals}, the stamp of the
+ * month's file they were computed from, and a prefix total: the column totals of that month and
+ * every month before it without a gap, together with the month's own balances. The totals of any
+ * range are then the difference between two prefix totals, so only months whose files have changed
+ * since the last query are read. When a month changes, the prefix totals after it are recomputed
+ * from the recorded month totals, without reading those months again.
+ *
+ * <p>The rollup is saved next to the months, so that it survives from one run to the next. Like
+ * the month index it is purely derived data, and is discarded if it cannot be read.
+ */
+@Singleton
+final class TotalsRollup implements Rollups {
+  static final String ROLLUP_FILE_NAME = ".accounts-rollup";
+
+  private static final int MAGIC = 0x414d5255; // "AMRU"
+  private static final int VERSION = 1;
+
+  private final DiskStorage disk;
+  private final Storage storage;
+  private final Path rollupPath;
+  private final TreeMap<YearMonth, Entry> entries;
+  private long computedMonthCount;
+
+  @Inject
+  TotalsRollup(DiskStorage disk, Storage storage) {
+    this.disk = disk;
+    this.storage = storage;
+    this.rollupPath = disk.rootDir().resolve(ROLLUP_FILE_NAME);
+    this.entries = load(rollupPath);
+  }
+
+  @Override
+  public synchronized ComputedTotals totalsBetween(YearMonth from, YearMonth to) {
+    Preconditions.checkArgument(!to.isBefore(from), "%s is before %s", to, from);
+    YearMonth firstChanged = null;
+    for (YearMonth date = from; !date.isAfter(to); date = date.plusMonths(1)) {
+      FileStamp stamp = stampOf(date);
+      Entry entry = entries.get(date);
+      if (entry == null || !entry.stamp.equals(stamp)) {
+        computedMonthCount++;
+        entries.put(date, new Entry(stamp, storage.readTotals(date), null));
+        if (firstChanged == null) {
+          firstChanged = date;
+        }
+      }
+    }
+    if (firstChanged != null) {
+      updatePrefixTotals(firstChanged);
+      save();
+    }
+    Entry first = entries.get(from);
+    Entry last = entries.get(to);
+    return first.month.followedBy(last.prefix.withoutColumnsOf(first.prefix));
+  }
+
+  /** Returns the number of months whose totals have had to be computed. */
+  synchronized long computedMonthCount() {
+    return computedMonthCount;
+  }
+
+  /** Recomputes the prefix totals of every month from {@code firstChanged} on. */
+  private void updatePrefixTotals(YearMonth firstChanged) {
+    Entry previous = entries.get(firstChanged.minusMonths(1));
+    YearMonth previousDate = firstChanged.minusMonths(1);
+    for (Map.Entry<YearMonth, Entry> mapEntry : entries.tailMap(firstChanged).entrySet()) {
+      Entry entry = mapEntry.getValue();
+      ComputedTotals prefix =
+          previous != null && previousDate.equals(mapEntry.getKey().minusMonths(1))
+              ? previous.prefix.followedBy(entry.month)
+              : entry.month;
+      Entry updated = new Entry(entry.stamp, entry.month, prefix);
+      mapEntry.setValue(updated);
+      previous = updated;
+      previousDate = mapEntry.getKey();
+    }
+  }
+
+  private FileStamp stampOf(YearMonth date) {
+    try {
+      return disk.stampMonth(date);
+    } catch (IOException ex) {
+      throw new MarshallingException(ex);
+    }
+  }
+
+  private static TreeMap<YearMonth, Entry> load(Path rollupPath) {
+    TreeMap<YearMonth, Entry> entries = new TreeMap<>();
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(rollupPath)))) {
+      if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          YearMonth date = YearMonth.of(in.readInt(), in.readByte());
+          FileStamp stamp = FileStamp.create(in.readLong(), in.readLong());
+          ComputedTotals month = MonthIndex.readTotals(in);
+          ComputedTotals prefix = MonthIndex.readTotals(in);
+          entries.put(date, new Entry(stamp, month, prefix));
+        }
+      }
+    } catch (NoSuchFileException ex) {
+      // Nothing rolled up yet, start from scratch.
+    } catch (IOException | RuntimeException ex) {
+      // The rollup is only a cache, so a damaged one is thrown away rather than reported.
+      entries.clear();
+    }
+    return entries;
+  }
+
+  private void save() {
+    Path tempPath = rollupPath.resolveSibling(rollupPath.getFileName() + ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(entries.size());
+        for (Map.Entry<YearMonth, Entry> mapEntry : entries.entrySet()) {
+          Entry entry = mapEntry.getValue();
+          out.writeInt(mapEntry.getKey().getYear());
+          out.writeByte(mapEntry.getKey().getMonthValue());
+          out.writeLong(entry.stamp.size());
+          out.writeLong(entry.stamp.lastModified());
+          MonthIndex.writeTotals(out, entry.month);
+          MonthIndex.writeTotals(out, entry.prefix);
+        }
+      }
+      Files.move(tempPath, rollupPath,
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /**
+   * A single month's entry in the rollup. The prefix total is {@code null} only until
+   * {@link #updatePrefixTotals} has run.
+   */
+  private static final class Entry {
+    final FileStamp stamp;
+    final ComputedTotals month;
+    @Nullable final ComputedTotals prefix;
+
+    Entry(FileStamp stamp, ComputedTotals month, @Nullable ComputedTotals prefix) {
+      this.stamp = stamp;
+      this.month = month;
+      this.prefix = prefix;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package net.pryden.accounts;
+
+import com.google.common.collect.ImmutableList;
+
+import java.time.YearMonth;
+
+/**
+ * API for finding transactions by their descriptions, across all months.
+ */
+public interface TransactionSearch {
+  /**
+   * Returns every transaction and sub-transaction from {@code from} to {@code to} (inclusive)
+   * whose descriptions contain every word of {@code query}, in date order. Words are compared
+   * without regard to case, and each word of the query also matches longer words that start with
+   * it.
+   */
+  ImmutableList<SearchHit> search(String query, YearMonth from, YearMonth to);
+}
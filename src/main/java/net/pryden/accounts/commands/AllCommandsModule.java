@@ -47,21 +47,51 @@ public final class AllCommandsModule {
     return command;
   }
 
+  @Provides(type = Type.MAP)
+  @ForCommand("export")
+  Command provideExportCommand(ExportCommand command) {
+    return command;
+  }
+
   @Provides(type = Type.MAP)
   @ForCommand("generate-forms")
   Command provideGenerateFormsCommand(GenerateFormsCommand command) {
     return command;
   }
 
+  @Provides(type = Type.MAP)
+  @ForCommand("generate-forms-batch")
+  Command provideGenerateFormsBatchCommand(GenerateFormsBatchCommand command) {
+    return command;
+  }
+
   @Provides(type = Type.MAP)
   @ForCommand("help")
   Command provideHelpCommand(HelpCommand command) {
     return command;
   }
 
+  @Provides(type = Type.MAP)
+  @ForCommand("import")
+  Command provideImportCommand(ImportCommand command) {
+    return command;
+  }
+
   @Provides(type = Type.MAP)
   @ForCommand("reconcile")
   Command provideReconcileCommand(ReconcileCommand command) {
     return command;
   }
+
+  @Provides(type = Type.MAP)
+  @ForCommand("search")
+  Command provideSearchCommand(SearchCommand command) {
+    return command;
+  }
+
+  @Provides(type = Type.MAP)
+  @ForCommand("totals")
+  Command provideTotalsCommand(TotalsCommand command) {
+    return command;
+  }
 }
@@ -0,0 +1,251 @@
+package net.pryden.accounts.commands;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import net.pryden.accounts.model.Money;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The lines of a bank statement, read from a file downloaded from the bank.
+ *
+ * <p>Two formats are understood:
+ *
+ * <ul>
+ *   <li>OFX (also known as QFX or Money/Quicken format), in either the older SGML form or the
+ *       newer XML form. The statement's closing date and balance are taken from its ledger
+ *       balance.
+ *   <li>CSV with a header row. The columns used are found by name: a date column, a description
+ *       column (named "description", "memo", "payee" or "name"), and either an amount column or a
+ *       pair of debit and credit (or withdrawal and deposit) columns. Other columns are ignored.
+ * </ul>
+ *
+ * <p>Amounts are positive for money paid into the account and negative for money paid out, as in
+ * {@link net.pryden.accounts.model.UnreconciledTransaction#amount()}.
+ */
+@AutoValue
+abstract class BankStatement {
+  private static final Pattern OFX_TAG = Pattern.compile("<(/?)([A-Za-z0-9.]+)>([^<]*)");
+  private static final ImmutableList<DateTimeFormatter> CSV_DATE_FORMATS = ImmutableList.of(
+      DateTimeFormatter.ISO_LOCAL_DATE,
+      DateTimeFormatter.ofPattern("M/d/uuuu"),
+      DateTimeFormatter.ofPattern("M/d/uu"));
+
+  /** A single transaction on the statement. */
+  @AutoValue
+  abstract static class Line {
+    static Line create(LocalDate date, Money amount, String description) {
+      return new AutoValue_BankStatement_Line(date, amount, description);
+    }
+
+    abstract LocalDate date();
+    abstract Money amount();
+    abstract String description();
+  }
+
+  static BankStatement create(
+      ImmutableList<Line> lines,
+      Optional<LocalDate> closingDate,
+      Optional<Money> closingBalance) {
+    return new AutoValue_BankStatement(lines, closingDate, closingBalance);
+  }
+
+  abstract ImmutableList<Line> lines();
+
+  /** The date of the statement's closing balance, if the statement records it. */
+  abstract Optional<LocalDate> closingDate();
+
+  /** The statement's closing balance, if the statement records it. */
+  abstract Optional<Money> closingBalance();
+
+  /**
+   * Reads the statement in the given file. Files whose names end in {@code .ofx} or {@code .qfx}
+   * are read as OFX, and anything else as CSV.
+   *
+   * @throws IllegalArgumentException if the file cannot be understood
+   */
+  static BankStatement read(Path path) throws IOException {
+    String text = readText(path);
+    if (text.startsWith("\uFEFF")) {
+      text = text.substring(1);
+    }
+    String name = path.getFileName().toString().toLowerCase(Locale.US);
+    try {
+      if (name.endsWith(".ofx") || name.endsWith(".qfx")) {
+        return parseOfx(text);
+      }
+      return parseCsv(text);
+    } catch (DateTimeParseException ex) {
+      throw new IllegalArgumentException(
+          String.format("Cannot read %s: %s", path, ex.getMessage()), ex);
+    }
+  }
+
+  /** Reads the file as UTF-8, falling back to Latin-1, which is what many banks still use. */
+  private static String readText(Path path) throws IOException {
+    byte[] bytes = Files.readAllBytes(path);
+    try {
+      return UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+    } catch (CharacterCodingException ex) {
+      return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+  }
+
+  static BankStatement parseOfx(String text) {
+    ImmutableList.Builder<Line> lines = ImmutableList.builder();
+    LocalDate closingDate = null;
+    Money closingBalance = null;
+    boolean inTransaction = false;
+    boolean inLedgerBalance = false;
+    LocalDate date = null;
+    Money amount = null;
+    String name = "";
+    String memo = "";
+    Matcher matcher = OFX_TAG.matcher(text);
+    while (matcher.find()) {
+      boolean isEnd = !matcher.group(1).isEmpty();
+      String tag = matcher.group(2).toUpperCase(Locale.US);
+      String value = matcher.group(3).trim();
+      if (tag.equals("STMTTRN")) {
+        if (isEnd) {
+          if (date == null || amount == null) {
+            throw new IllegalArgumentException("Statement transaction without a date or amount");
+          }
+          lines.add(Line.create(date, amount, name.isEmpty() ? memo : name));
+        }
+        inTransaction = !isEnd;
+        date = null;
+        amount = null;
+        name = "";
+        memo = "";
+      } else if (tag.equals("LEDGERBAL")) {
+        inLedgerBalance = !isEnd;
+      } else if (isEnd || value.isEmpty()) {
+        continue;
+      } else if (inTransaction) {
+        switch (tag) {
+          case "DTPOSTED":
+            date = parseOfxDate(value);
+            break;
+          case "TRNAMT":
+            amount = Money.parse(value);
+            break;
+          case "NAME":
+            name = unescapeOfx(value);
+            break;
+          case "MEMO":
+            memo = unescapeOfx(value);
+            break;
+          default:
+            break;
+        }
+      } else if (inLedgerBalance) {
+        if (tag.equals("BALAMT")) {
+          closingBalance = Money.parse(value);
+        } else if (tag.equals("DTASOF")) {
+          closingDate = parseOfxDate(value);
+        }
+      }
+    }
+    return create(
+        lines.build(), Optional.ofNullable(closingDate), Optional.ofNullable(closingBalance));
+  }
+
+  /** Parses an OFX date, which starts with YYYYMMDD and may be followed by a time and zone. */
+  private static LocalDate parseOfxDate(String value) {
+    if (value.length() < 8) {
+      throw new DateTimeParseException("Cannot parse OFX date", value, 0);
+    }
+    return LocalDate.parse(value.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE);
+  }
+
+  private static String unescapeOfx(String value) {
+    return value.replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+  }
+
+  static BankStatement parseCsv(String text) throws IOException {
+    CsvReader reader = new CsvReader(new BufferedReader(new StringReader(text)));
+    List<String> header = reader.readRow();
+    if (header == null) {
+      throw new IllegalArgumentException("The statement is empty");
+    }
+    int dateColumn = findColumn(header, "date", "posted date", "posting date", "transaction date");
+    int descriptionColumn = findColumn(header, "description", "memo", "payee", "name");
+    int amountColumn = findColumn(header, "amount");
+    int debitColumn = findColumn(header, "debit", "withdrawal", "withdrawals");
+    int creditColumn = findColumn(header, "credit", "deposit", "deposits");
+    if (dateColumn < 0 || (amountColumn < 0 && (debitColumn < 0 || creditColumn < 0))) {
+      throw new IllegalArgumentException(
+          "The statement needs a date column and either an amount column or debit and credit "
+              + "columns, but its columns are: " + header);
+    }
+
+    ImmutableList.Builder<Line> lines = ImmutableList.builder();
+    List<String> row;
+    while ((row = reader.readRow()) != null) {
+      if (row.size() == 1 && row.get(0).trim().isEmpty()) {
+        continue;
+      }
+      LocalDate date = parseCsvDate(column(row, dateColumn));
+      Money amount;
+      if (amountColumn >= 0) {
+        amount = parseCsvMoney(column(row, amountColumn));
+      } else {
+        // Some banks show debits as negative amounts, and others as positive ones.
+        Money debit = parseCsvMoney(column(row, debitColumn));
+        amount = parseCsvMoney(column(row, creditColumn))
+            .minus(debit.isNegative() ? debit.negate() : debit);
+      }
+      lines.add(Line.create(date, amount, column(row, descriptionColumn)));
+    }
+    return create(lines.build(), Optional.empty(), Optional.empty());
+  }
+
+  private static int findColumn(List<String> header, String... names) {
+    for (String name : names) {
+      for (int i = 0; i < header.size(); i++) {
+        if (header.get(i).trim().equalsIgnoreCase(name)) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static String column(List<String> row, int index) {
+    return index >= 0 && index < row.size() ? row.get(index).trim() : "";
+  }
+
+  private static LocalDate parseCsvDate(String value) {
+    for (DateTimeFormatter format : CSV_DATE_FORMATS) {
+      try {
+        return LocalDate.parse(value, format);
+      } catch (DateTimeParseException ex) {
+        // Try the next format.
+      }
+    }
+    throw new DateTimeParseException("Cannot parse statement date", value, 0);
+  }
+
+  private static Money parseCsvMoney(String value) {
+    String number = value.replace("$", "").replace(",", "");
+    return number.isEmpty() ? Money.ZERO : Money.parse(number);
+  }
+}
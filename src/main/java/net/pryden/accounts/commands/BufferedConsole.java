@@ -0,0 +1,25 @@
+package net.pryden.accounts.commands;
+
+import net.pryden.accounts.Console;
+
+/**
+ * A {@link Console} that appends everything printed to a buffer, so that output produced on
+ * another thread can be printed later in a predictable order. It cannot read input.
+ */
+final class BufferedConsole extends Console {
+  private final StringBuilder output;
+
+  BufferedConsole(StringBuilder output) {
+    this.output = output;
+  }
+
+  @Override
+  public void print(String message) {
+    output.append(message);
+  }
+
+  @Override
+  public String readString(String prompt) {
+    throw new UnsupportedOperationException("Cannot read input from a buffered console");
+  }
+}
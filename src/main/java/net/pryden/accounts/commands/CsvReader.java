@@ -0,0 +1,75 @@
+package net.pryden.accounts.commands;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads comma-separated values one row at a time. Fields may be quoted, and quoted fields may
+ * contain commas, doubled quotes and line breaks.
+ */
+final class CsvReader {
+  private final BufferedReader reader;
+  private int lineNumber;
+
+  CsvReader(BufferedReader reader) {
+    this.reader = reader;
+  }
+
+  /** Returns the line number (starting from 1) of the last line of the last row read. */
+  int lineNumber() {
+    return lineNumber;
+  }
+
+  /** Returns the fields of the next row, or {@code null} at the end of the input. */
+  @Nullable
+  List<String> readRow() throws IOException {
+    String line = reader.readLine();
+    if (line == null) {
+      return null;
+    }
+    lineNumber++;
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    int i = 0;
+    while (true) {
+      if (i == line.length()) {
+        if (!quoted) {
+          break;
+        }
+        line = reader.readLine();
+        if (line == null) {
+          // Callers report errors with the line number, so it is not repeated here.
+          throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        lineNumber++;
+        field.append('\n');
+        i = 0;
+        continue;
+      }
+      char c = line.charAt(i++);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i < line.length() && line.charAt(i) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+}
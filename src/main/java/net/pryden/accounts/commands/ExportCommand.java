@@ -0,0 +1,284 @@
+package net.pryden.accounts.commands;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.pryden.accounts.Console;
+import net.pryden.accounts.Storage;
+import net.pryden.accounts.commands.Annotations.CommandArgs;
+import net.pryden.accounts.commands.Annotations.CurrentMonth;
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.SubTransaction;
+import net.pryden.accounts.model.Transaction;
+
+import javax.inject.Inject;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.YearMonth;
+import java.util.Locale;
+
+/**
+ * Writes every transaction in a range of months to a CSV or JSON-lines file, for other programs
+ * to read.
+ *
+ * <p>There is a row for each transaction, with the same columns as {@link ImportCommand} reads
+ * plus the receipts and checking balances after the transaction. Each month's balances start from
+ * its opening balance and receipts carried forward. A transaction's sub-transactions follow it as
+ * rows with a {@code type} and an {@code amount}, which break down the transaction's amount and
+ * so do not change the balances. {@link ImportCommand} attaches such rows to the transaction above
+ * them, so an exported file can be imported again.
+ *
+ * <p>The months are read one at a time through {@link Storage#forEachMonth}, and the rows are
+ * written through a single buffered writer as each month is read, so the memory needed does not
+ * grow with the number of months exported.
+ */
+final class ExportCommand implements Command {
+  static final String FILE_ARG = "file";
+  static final String FORMAT_ARG = "format";
+  static final String FROM_ARG = "from";
+  static final String TO_ARG = "to";
+
+  static final ImmutableList<String> COLUMNS = ImmutableList.of(
+      "date",
+      "description",
+      "summary-description",
+      "category",
+      "type",
+      "receipts-in",
+      "receipts-out",
+      "checking-in",
+      "checking-out",
+      "amount",
+      "receipts-balance",
+      "checking-balance");
+
+  /** The index of the first column that holds an amount of money. */
+  private static final int FIRST_AMOUNT_COLUMN = COLUMNS.indexOf("receipts-in");
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Console console;
+  private final Storage storage;
+  private final YearMonth currentMonth;
+  private final ImmutableMap<String, String> args;
+
+  @Inject
+  ExportCommand(
+      Console console,
+      Storage storage,
+      @CurrentMonth YearMonth currentMonth,
+      @CommandArgs ImmutableMap<String, String> args) {
+    this.console = console;
+    this.storage = storage;
+    this.currentMonth = currentMonth;
+    this.args = args;
+  }
+
+  @Override
+  public void run() throws Exception {
+    String file = args.get(FILE_ARG);
+    if (file == null) {
+      throw new IllegalArgumentException("Missing --" + FILE_ARG + " argument");
+    }
+    if (!args.containsKey(FROM_ARG)) {
+      throw new IllegalArgumentException("Missing --" + FROM_ARG + " argument");
+    }
+    YearMonth from = YearMonth.parse(args.get(FROM_ARG));
+    YearMonth to = args.containsKey(TO_ARG) ? YearMonth.parse(args.get(TO_ARG)) : currentMonth;
+    if (to.isBefore(from)) {
+      throw new IllegalArgumentException(
+          String.format("--%s=%s is before --%s=%s", TO_ARG, to, FROM_ARG, from));
+    }
+    Path path = Paths.get(file);
+    RowWriter rows;
+    String format = args.getOrDefault(FORMAT_ARG, formatOf(path));
+    switch (format) {
+      case "csv":
+        rows = new CsvRowWriter();
+        break;
+      case "jsonl":
+        rows = new JsonRowWriter();
+        break;
+      default:
+        throw new IllegalArgumentException(
+            String.format("Unknown --%s=%s (expected csv or jsonl)", FORMAT_ARG, format));
+    }
+
+    int[] count = new int[1];
+    try (Writer writer = new BufferedWriter(
+        new OutputStreamWriter(Files.newOutputStream(path), UTF_8), BUFFER_SIZE)) {
+      rows.writeHeader(writer);
+      storage.forEachMonth(from, to, month -> {
+        try {
+          count[0] += writeMonth(month, rows, writer);
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+      });
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+    console.printf("Exported %d transactions from %s to %s into %s\n", count[0], from, to, path);
+  }
+
+  private static String formatOf(Path path) {
+    String name = path.getFileName().toString().toLowerCase(Locale.US);
+    return name.endsWith(".jsonl") || name.endsWith(".json") ? "jsonl" : "csv";
+  }
+
+  /** Writes the rows for one month, returning the number of transactions written. */
+  private static int writeMonth(AccountsMonth month, RowWriter rows, Writer writer)
+      throws IOException {
+    Money receiptsBalance = month.receiptsCarriedForward();
+    Money checkingBalance = month.openingBalance();
+    String[] row = new String[COLUMNS.size()];
+    for (Transaction transaction : month.transactions()) {
+      receiptsBalance =
+          receiptsBalance.plus(transaction.receiptsIn()).minus(transaction.receiptsOut());
+      checkingBalance =
+          checkingBalance.plus(transaction.checkingIn()).minus(transaction.checkingOut());
+
+      row[0] = month.date().atDay(transaction.date()).toString();
+      row[1] = transaction.description();
+      row[2] = transaction.summaryDescription().equals(transaction.description())
+          ? null
+          : transaction.summaryDescription();
+      row[3] = transaction.category().serializedForm();
+      row[4] = null;
+      row[5] = transaction.receiptsIn().toPlainString();
+      row[6] = transaction.receiptsOut().toPlainString();
+      row[7] = transaction.checkingIn().toPlainString();
+      row[8] = transaction.checkingOut().toPlainString();
+      row[9] = null;
+      row[10] = receiptsBalance.toPlainString();
+      row[11] = checkingBalance.toPlainString();
+      rows.writeRow(writer, row);
+
+      for (SubTransaction subTransaction : transaction.subTransactions()) {
+        row[1] = subTransaction.description();
+        row[2] = null;
+        row[3] = subTransaction.category().serializedForm();
+        row[4] = subTransaction.type().name();
+        for (int i = FIRST_AMOUNT_COLUMN; i < row.length; i++) {
+          row[i] = null;
+        }
+        row[9] = subTransaction.amount().toPlainString();
+        rows.writeRow(writer, row);
+      }
+    }
+    return month.transactions().size();
+  }
+
+  /** Writes rows in one of the output formats. Columns whose values are null are left empty. */
+  private interface RowWriter {
+    void writeHeader(Writer writer) throws IOException;
+
+    void writeRow(Writer writer, String[] row) throws IOException;
+  }
+
+  private static final class CsvRowWriter implements RowWriter {
+    @Override
+    public void writeHeader(Writer writer) throws IOException {
+      writeRow(writer, COLUMNS.toArray(new String[COLUMNS.size()]));
+    }
+
+    @Override
+    public void writeRow(Writer writer, String[] row) throws IOException {
+      for (int i = 0; i < row.length; i++) {
+        if (i > 0) {
+          writer.write(',');
+        }
+        if (row[i] != null) {
+          writeField(writer, row[i]);
+        }
+      }
+      writer.write('\n');
+    }
+
+    private static void writeField(Writer writer, String value) throws IOException {
+      boolean needsQuotes = false;
+      for (int i = 0; i < value.length() && !needsQuotes; i++) {
+        char c = value.charAt(i);
+        needsQuotes = c == ',' || c == '"' || c == '\r' || c == '\n';
+      }
+      if (!needsQuotes) {
+        writer.write(value);
+        return;
+      }
+      writer.write('"');
+      writer.write(value.replace("\"", "\"\""));
+      writer.write('"');
+    }
+  }
+
+  /**
+   * Writes each row as a JSON object on its own line. Empty columns are left out, and amounts are
+   * written as numbers.
+   */
+  private static final class JsonRowWriter implements RowWriter {
+    @Override
+    public void writeHeader(Writer writer) {}
+
+    @Override
+    public void writeRow(Writer writer, String[] row) throws IOException {
+      writer.write('{');
+      boolean first = true;
+      for (int i = 0; i < row.length; i++) {
+        if (row[i] == null) {
+          continue;
+        }
+        if (!first) {
+          writer.write(',');
+        }
+        first = false;
+        writeString(writer, COLUMNS.get(i));
+        writer.write(':');
+        if (i >= FIRST_AMOUNT_COLUMN) {
+          writer.write(row[i]);
+        } else {
+          writeString(writer, row[i]);
+        }
+      }
+      writer.write("}\n");
+    }
+
+    private static void writeString(Writer writer, String value) throws IOException {
+      writer.write('"');
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        switch (c) {
+          case '"':
+            writer.write("\\\"");
+            break;
+          case '\\':
+            writer.write("\\\\");
+            break;
+          case '\n':
+            writer.write("\\n");
+            break;
+          case '\r':
+            writer.write("\\r");
+            break;
+          case '\t':
+            writer.write("\\t");
+            break;
+          default:
+            if (c < 0x20) {
+              writer.write(String.format("\\u%04x", (int) c));
+            } else {
+              writer.write(c);
+            }
+        }
+      }
+      writer.write('"');
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package net.pryden.accounts.commands;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import net.pryden.accounts.Console;
+import net.pryden.accounts.Storage;
+import net.pryden.accounts.commands.Annotations.CommandArgs;
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.Config;
+import net.pryden.accounts.reports.Report;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the forms for a range of months, for one or more congregations, in a single run.
+ *
+ * <p>The months of each congregation are read up front with {@link Storage#readMonths}, which
+ * parses them concurrently. Each (congregation, month) pair is then generated as a separate task on
+ * a work-stealing pool. The output of each task is buffered and printed in order, followed by how
+ * long it took. As with
+ * {@link GenerateFormsCommand}, a failure does not stop the other tasks, and the first failure is
+ * rethrown once they have all finished.
+ */
+final class GenerateFormsBatchCommand implements Command {
+  static final String CONFIGS_ARG = "configs";
+  static final String FROM_ARG = "from";
+  static final String TO_ARG = "to";
+
+  private final Console console;
+  private final Config config;
+  private final Storage.Factory storageFactory;
+  private final Report.Factory reportFactory;
+  private final ImmutableMap<String, String> args;
+
+  @Inject
+  GenerateFormsBatchCommand(
+      Console console,
+      Config config,
+      Storage.Factory storageFactory,
+      Report.Factory reportFactory,
+      @CommandArgs ImmutableMap<String, String> args) {
+    this.console = console;
+    this.config = config;
+    this.storageFactory = storageFactory;
+    this.reportFactory = reportFactory;
+    this.args = args;
+  }
+
+  @Override
+  public void run() throws IOException {
+    long start = System.nanoTime();
+    ImmutableList<Item> items = createItems();
+    int parallelism = args.containsKey(GenerateFormsCommand.PARALLELISM_ARG)
+        ? Integer.parseInt(args.get(GenerateFormsCommand.PARALLELISM_ARG))
+        : Runtime.getRuntime().availableProcessors();
+    if (parallelism < 1) {
+      throw new IllegalArgumentException(
+          "--" + GenerateFormsCommand.PARALLELISM_ARG + " must be at least 1");
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    List<Exception> failures = new ArrayList<>();
+    try {
+      List<ForkJoinTask<?>> tasks = new ArrayList<>(items.size());
+      for (Item item : items) {
+        tasks.add(pool.submit(item));
+      }
+      for (int i = 0; i < items.size(); i++) {
+        tasks.get(i).join();
+        Item item = items.get(i);
+        console.print(item.output.toString());
+        if (item.failure != null) {
+          failures.add(item.failure);
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    console.printf("Generated forms for %d of %d months in %d ms\n",
+        items.size() - failures.size(),
+        items.size(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    GenerateFormsCommand.throwFailures(failures);
+  }
+
+  private ImmutableList<Item> createItems() {
+    ImmutableList<Config> configs;
+    if (args.containsKey(CONFIGS_ARG)) {
+      ImmutableList.Builder<Config> builder = ImmutableList.builder();
+      for (String path : Splitter.on(',').trimResults().omitEmptyStrings()
+          .split(args.get(CONFIGS_ARG))) {
+        builder.add(storageFactory.readConfig(Paths.get(path)));
+      }
+      configs = builder.build();
+    } else {
+      configs = ImmutableList.of(config);
+    }
+
+    ImmutableList.Builder<Item> items = ImmutableList.builder();
+    for (Config itemConfig : configs) {
+      YearMonth from = args.containsKey(FROM_ARG)
+          ? YearMonth.parse(args.get(FROM_ARG))
+          : itemConfig.currentMonth();
+      YearMonth to = args.containsKey(TO_ARG) ? YearMonth.parse(args.get(TO_ARG)) : from;
+      if (to.isBefore(from)) {
+        throw new IllegalArgumentException(
+            String.format("--%s=%s is before --%s=%s", TO_ARG, to, FROM_ARG, from));
+      }
+      // The storage and reports are shared by all the months of a congregation.
+      Storage storage = storageFactory.create(itemConfig);
+      ImmutableSet<Report> reports = reportFactory.create(itemConfig);
+      ImmutableList<AccountsMonth> months = readMonthsIfPossible(storage, from, to);
+      int i = 0;
+      for (YearMonth date = from; !date.isAfter(to); date = date.plusMonths(1), i++) {
+        items.add(new Item(itemConfig.congregationName(), date, storage, reports,
+            months != null ? months.get(i) : null));
+      }
+    }
+    return items.build();
+  }
+
+  /**
+   * Reads the months from {@code from} to {@code to}, or returns {@code null} if any of them cannot
+   * be read. In that case each item reads its own month instead, so that the months that can be
+   * read are still generated and the others fail on their own.
+   */
+  @Nullable
+  private static ImmutableList<AccountsMonth> readMonthsIfPossible(
+      Storage storage, YearMonth from, YearMonth to) {
+    try {
+      return storage.readMonths(from, to);
+    } catch (RuntimeException ex) {
+      return null;
+    }
+  }
+
+  /** Generates the forms for one month of one congregation. */
+  private static final class Item implements Runnable {
+    private final String congregationName;
+    private final YearMonth date;
+    private final Storage storage;
+    private final ImmutableSet<Report> reports;
+    @Nullable private final AccountsMonth month;
+    private final StringBuilder output = new StringBuilder();
+    @Nullable private Exception failure;
+
+    Item(
+        String congregationName,
+        YearMonth date,
+        Storage storage,
+        ImmutableSet<Report> reports,
+        @Nullable AccountsMonth month) {
+      this.congregationName = congregationName;
+      this.date = date;
+      this.storage = storage;
+      this.reports = reports;
+      this.month = month;
+    }
+
+    @Override
+    public void run() {
+      Console console = new BufferedConsole(output);
+      console.printf("== %s, %s ==\n", congregationName, date);
+      long start = System.nanoTime();
+      try {
+        GenerateFormsCommand.generateReports(
+            month != null ? month : storage.readMonth(date), reports, console, 1);
+      } catch (IOException | RuntimeException ex) {
+        failure = ex;
+      }
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      if (failure == null) {
+        console.printf("Done in %d ms\n", elapsedMillis);
+      } else {
+        console.printf("Failed after %d ms: %s\n", elapsedMillis, failure.getMessage());
+      }
+    }
+  }
+}
@@ -1,36 +1,185 @@
 package net.pryden.accounts.commands;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.pryden.accounts.Console;
 import net.pryden.accounts.Storage;
+import net.pryden.accounts.commands.Annotations.CommandArgs;
 import net.pryden.accounts.commands.Annotations.CurrentMonth;
 import net.pryden.accounts.model.AccountsMonth;
 import net.pryden.accounts.reports.Report;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Generates every report that is applicable to the current month.
+ *
+ * <p>By default the reports are generated one after another, each writing straight to the
+ * console, and the first failure stops the command. Reports share nothing but the (immutable)
+ * month, so with {@code --parallelism=N} up to N of them are generated at once instead. Then each
+ * report's console output is buffered and printed in the usual report order, as soon as that
+ * report and all the ones before it have finished. A failing report does not stop the others from
+ * being generated; once they have all finished the first failure is rethrown, with any later ones
+ * attached as suppressed exceptions.
+ */
 final class GenerateFormsCommand implements Command {
+  static final String PARALLELISM_ARG = "parallelism";
+
   private final Storage storage;
   private final YearMonth currentMonth;
   private final ImmutableSet<Report> reports;
+  private final Console console;
+  private final int parallelism;
 
   @Inject
   GenerateFormsCommand(
       Storage storage,
       @CurrentMonth YearMonth currentMonth,
-      ImmutableSet<Report> reports) {
+      ImmutableSet<Report> reports,
+      Console console,
+      @CommandArgs ImmutableMap<String, String> args) {
+    this(storage, currentMonth, reports, console, parseParallelism(args));
+  }
+
+  GenerateFormsCommand(
+      Storage storage,
+      YearMonth currentMonth,
+      ImmutableSet<Report> reports,
+      Console console,
+      int parallelism) {
     this.storage = storage;
     this.currentMonth = currentMonth;
     this.reports = reports;
+    this.console = console;
+    this.parallelism = parallelism;
+  }
+
+  private static int parseParallelism(ImmutableMap<String, String> args) {
+    if (!args.containsKey(PARALLELISM_ARG)) {
+      return 1;
+    }
+    int parallelism = Integer.parseInt(args.get(PARALLELISM_ARG));
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("--" + PARALLELISM_ARG + " must be at least 1");
+    }
+    return parallelism;
   }
 
   @Override
   public void run() throws IOException {
-    AccountsMonth month = storage.readMonth(currentMonth);
+    generateReports(storage.readMonth(currentMonth), reports, console, parallelism);
+  }
+
+  /**
+   * Generates every report in {@code reports} that is applicable to {@code month}, running up to
+   * {@code parallelism} of them at once, as described on this class.
+   */
+  static void generateReports(
+      AccountsMonth month, ImmutableSet<Report> reports, Console console, int parallelism)
+      throws IOException {
+    if (parallelism == 1) {
+      for (Report report : reports) {
+        if (report.isApplicableFor(month)) {
+          report.generate(month, console);
+        }
+      }
+      return;
+    }
+
+    ImmutableList.Builder<ReportRun> builder = ImmutableList.builder();
     for (Report report : reports) {
       if (report.isApplicableFor(month)) {
-        report.generate(month);
+        builder.add(new ReportRun(report, month));
+      }
+    }
+    ImmutableList<ReportRun> runs = builder.build();
+    if (runs.isEmpty()) {
+      return;
+    }
+    runConcurrently(runs, console, parallelism);
+    List<Exception> failures = new ArrayList<>();
+    for (ReportRun run : runs) {
+      if (run.failure != null) {
+        failures.add(run.failure);
+      }
+    }
+    throwFailures(failures);
+  }
+
+  private static void runConcurrently(
+      ImmutableList<ReportRun> runs, Console console, int parallelism) throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(parallelism, runs.size()),
+        new ThreadFactoryBuilder().setNameFormat("generate-forms-%d").setDaemon(true).build());
+    try {
+      List<Future<?>> futures = new ArrayList<>(runs.size());
+      for (ReportRun run : runs) {
+        futures.add(executor.submit(run));
+      }
+      for (int i = 0; i < runs.size(); i++) {
+        futures.get(i).get();
+        console.print(runs.get(i).output.toString());
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while generating reports", ex);
+    } catch (ExecutionException ex) {
+      // ReportRun catches everything its report throws, so this should never happen.
+      throw new IllegalStateException(ex.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Throws the first of {@code failures}, with the rest attached as suppressed exceptions. Does
+   * nothing if there are no failures. Each failure must be an {@link IOException} or a
+   * {@link RuntimeException}.
+   */
+  static void throwFailures(List<Exception> failures) throws IOException {
+    if (failures.isEmpty()) {
+      return;
+    }
+    Exception first = failures.get(0);
+    for (Exception failure : failures.subList(1, failures.size())) {
+      first.addSuppressed(failure);
+    }
+    if (first instanceof IOException) {
+      throw (IOException) first;
+    }
+    throw (RuntimeException) first;
+  }
+
+  /** Generates a single report, recording its console output and any failure. */
+  private static final class ReportRun implements Runnable {
+    private final Report report;
+    private final AccountsMonth month;
+    private final StringBuilder output = new StringBuilder();
+    @Nullable private Exception failure;
+
+    ReportRun(Report report, AccountsMonth month) {
+      this.report = report;
+      this.month = month;
+    }
+
+    @Override
+    public void run() {
+      try {
+        report.generate(month, new BufferedConsole(output));
+      } catch (IOException | RuntimeException ex) {
+        failure = ex;
+        output.append(String.format("Failed: %s\n", ex.getMessage()));
       }
     }
   }
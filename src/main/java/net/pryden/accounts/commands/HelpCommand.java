@@ -1,14 +1,21 @@
 package net.pryden.accounts.commands;
 
+import net.pryden.accounts.Console;
+
 import javax.inject.Inject;
 
 final class HelpCommand implements Command {
-  @Inject HelpCommand() {}
+  private final Console console;
+
+  @Inject
+  HelpCommand(Console console) {
+    this.console = console;
+  }
 
   @Override
   public void run() {
     // TODO(dpryden): It would be slick if help could be auto-generated.
-    System.out.print(
+    console.print(
         "Usage: AccountsManager <command> [args]\n"
             + "\n"
             + "Commands:\n"
@@ -18,14 +25,65 @@ final class HelpCommand implements Command {
             + "    close-month: Close the current month and compute totals.\n"
             + "    dump-config: Dump the current config data to console.\n"
             + "    dump-month: Dump the current month data to console.\n"
+            + "    export: Write the transactions of a range of months to a CSV or JSON-lines file.\n"
             + "    generate-forms: Generate PDF forms in the current month's folder.\n"
+            + "    generate-forms-batch: Generate PDF forms for many months and congregations.\n"
+            + "    import: Add many transactions at once from a CSV or JSON-lines file.\n"
             + "    reconcile: Reconcile a bank statement with the accounts data.\n"
+            + "    search: Find transactions by the words in their descriptions.\n"
+            + "    totals: Show the totals of a range of months (default: year to date).\n"
             + "    help: Show this help.\n"
+            + "    daemon: Keep running, and serve commands sent by am.sh.\n"
+            + "    stop-daemon: Stop a running daemon.\n"
             + "\n"
             + "Common arguments:\n"
             + "    --month=YYYY-MM    Set the current month.\n"
             + "                       (if not set, the value from the config file is used \n"
             + "                       instead)\n"
+            + "    --timings          Print how long each phase of running the command took.\n"
+            + "    --answers=FILE     Answer prompts from a YAML file instead of asking.\n"
+            + "\n"
+            + "export arguments:\n"
+            + "    --file=FILE        The file to write.\n"
+            + "    --format=FORMAT    csv or jsonl (default: csv, or jsonl if the file name\n"
+            + "                       ends in .jsonl or .json).\n"
+            + "    --from=YYYY-MM     First month to export.\n"
+            + "    --to=YYYY-MM       Last month to export (default: the current month).\n"
+            + "\n"
+            + "generate-forms arguments:\n"
+            + "    --parallelism=N    Generate up to N forms at the same time (default 1).\n"
+            + "\n"
+            + "generate-forms-batch arguments:\n"
+            + "    --from=YYYY-MM     First month to generate (default: the current month).\n"
+            + "    --to=YYYY-MM       Last month to generate (default: the same as --from).\n"
+            + "    --configs=FILE,... Config files of the congregations to generate forms\n"
+            + "                       for (default: the usual config file).\n"
+            + "    --parallelism=N    Generate up to N months at the same time (default: the\n"
+            + "                       number of processors).\n"
+            + "\n"
+            + "import arguments:\n"
+            + "    --file=FILE        The file to import (see the user guide for its columns).\n"
+            + "    --format=FORMAT    csv or jsonl (default: csv, or jsonl if the file name\n"
+            + "                       ends in .jsonl or .json).\n"
+            + "\n"
+            + "reconcile arguments:\n"
+            + "    --statement=FILE   Match the transactions against a statement downloaded\n"
+            + "                       from the bank (.ofx, .qfx or .csv), instead of asking\n"
+            + "                       about each one.\n"
+            + "    --date-tolerance=N Match statement lines up to N days from the date of the\n"
+            + "                       transaction (default 5).\n"
+            + "\n"
+            + "search arguments:\n"
+            + "    --query=WORDS      Words that every transaction found must contain. A word\n"
+            + "                       also matches longer words that start with it.\n"
+            + "    --from=YYYY-MM     First month to search (default: the earliest month).\n"
+            + "    --to=YYYY-MM       Last month to search (default: the current month).\n"
+            + "\n"
+            + "totals arguments:\n"
+            + "    --from=YYYY-MM     First month to total (default: the start of the year).\n"
+            + "    --to=YYYY-MM       Last month to total (default: the current month).\n"
+            + "    --year-start=M     Month number the year starts in, for the default --from\n"
+            + "                       (default 1; use 9 for the service year).\n"
             + "\n");
   }
 }
@@ -0,0 +1,374 @@
+package net.pryden.accounts.commands;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.pryden.accounts.Console;
+import net.pryden.accounts.Marshaller;
+import net.pryden.accounts.Marshaller.MarshallingException;
+import net.pryden.accounts.Storage;
+import net.pryden.accounts.commands.Annotations.CommandArgs;
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.BranchResolutionType;
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.SubTransaction;
+import net.pryden.accounts.model.Transaction;
+import net.pryden.accounts.model.TransactionCategory;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Imports many transactions at once from a CSV or JSON-lines file.
+ *
+ * <p>Each row has a {@code date} (YYYY-MM-DD), a {@code description}, an optional
+ * {@code summary-description} and a {@code category} code, as understood by
+ * {@link TransactionCategory#fromCode(String)}. The amounts are given either in the same
+ * {@code receipts-in}, {@code receipts-out}, {@code checking-in} and {@code checking-out} columns
+ * as in the month files, or as a single {@code amount} that goes in the columns that
+ * {@code add-receipts}, {@code add-expense} or {@code add-deposit} would use for the category. CSV
+ * files name their columns in a header row; each line of a JSON-lines file is an object with those
+ * keys.
+ *
+ * <p>A row with a {@code type} is a sub-transaction of the transaction in the row above it, as
+ * written by {@link ExportCommand}. It has the same {@code date}, its own {@code description} and
+ * {@code category}, a {@link BranchResolutionType} name as its {@code type} and an
+ * {@code amount}. Other columns, such as the balances in an exported file, are ignored.
+ *
+ * <p>The file is read a row at a time, and the transactions are grouped by month. Nothing is
+ * written unless every row is valid and every month exists. Each month then gets all of its new
+ * transactions in a single {@link AccountsMonth#withNewTransactions} call and a single write.
+ */
+final class ImportCommand implements Command {
+  static final String FILE_ARG = "file";
+  static final String FORMAT_ARG = "format";
+
+  private static final ImmutableList<String> TRANSACTION_AMOUNT_COLUMNS =
+      ImmutableList.of("receipts-in", "receipts-out", "checking-in", "checking-out");
+
+  /** The number of invalid rows that are reported before giving up on the file. */
+  private static final int MAX_REPORTED_ERRORS = 20;
+
+  private final Console console;
+  private final Storage storage;
+  private final ImmutableMap<String, String> args;
+
+  @Inject
+  ImportCommand(
+      Console console,
+      Storage storage,
+      @CommandArgs ImmutableMap<String, String> args) {
+    this.console = console;
+    this.storage = storage;
+    this.args = args;
+  }
+
+  @Override
+  public void run() throws Exception {
+    String file = args.get(FILE_ARG);
+    if (file == null) {
+      throw new IllegalArgumentException("Missing --" + FILE_ARG + " argument");
+    }
+    Path path = Paths.get(file);
+    String format = args.getOrDefault(FORMAT_ARG, formatOf(path));
+
+    TreeMap<YearMonth, List<Transaction>> transactionsByMonth = new TreeMap<>();
+    int transactionCount = 0;
+    int errorCount = 0;
+    // The month's list that the last transaction was added to, and its date, for attaching
+    // sub-transactions to it.
+    List<Transaction> lastTransactions = null;
+    LocalDate lastDate = null;
+    try (BufferedReader reader = Files.newBufferedReader(path, UTF_8)) {
+      RowReader rows = newRowReader(format, reader);
+      while (errorCount < MAX_REPORTED_ERRORS) {
+        Map<String, String> row;
+        try {
+          row = rows.readRow();
+          if (row == null) {
+            break;
+          }
+          LocalDate date = parseDate(row);
+          if (optional(row, "type") != null) {
+            if (lastTransactions == null || !date.equals(lastDate)) {
+              throw new IllegalArgumentException(
+                  "A sub-transaction must follow its transaction, with the same date");
+            }
+            Transaction parent = lastTransactions.get(lastTransactions.size() - 1);
+            lastTransactions.set(lastTransactions.size() - 1, parent.toBuilder()
+                .setSubTransactions(ImmutableList.<SubTransaction>builder()
+                    .addAll(parent.subTransactions())
+                    .add(toSubTransaction(row))
+                    .build())
+                .build());
+            continue;
+          }
+          lastTransactions = null;
+          Transaction transaction = toTransaction(date, row);
+          lastTransactions =
+              transactionsByMonth.computeIfAbsent(YearMonth.from(date), month -> new ArrayList<>());
+          lastTransactions.add(transaction);
+          lastDate = date;
+          transactionCount++;
+        } catch (IllegalArgumentException | DateTimeParseException | MarshallingException ex) {
+          console.printf("Line %d: %s\n", rows.lineNumber(), messageOf(ex));
+          errorCount++;
+        }
+      }
+    }
+    if (errorCount > 0) {
+      throw new IllegalArgumentException(
+          "Nothing was imported, because of the errors listed above in " + path);
+    }
+    if (transactionsByMonth.isEmpty()) {
+      console.printf("There are no transactions in %s\n", path);
+      return;
+    }
+
+    // Read every month before writing any of them, so that a missing month stops the import
+    // before it has changed anything.
+    List<AccountsMonth> updatedMonths = new ArrayList<>(transactionsByMonth.size());
+    for (Map.Entry<YearMonth, List<Transaction>> entry : transactionsByMonth.entrySet()) {
+      updatedMonths.add(storage.readMonth(entry.getKey()).withNewTransactions(entry.getValue()));
+    }
+    if (!console.readConfirmation("Importing %d transactions into %d months (%s to %s)",
+        transactionCount,
+        transactionsByMonth.size(),
+        transactionsByMonth.firstKey(),
+        transactionsByMonth.lastKey())) {
+      return;
+    }
+    for (AccountsMonth month : updatedMonths) {
+      storage.writeMonth(month);
+    }
+    console.printf("Imported %d transactions\n", transactionCount);
+  }
+
+  private static String formatOf(Path path) {
+    String name = path.getFileName().toString().toLowerCase(Locale.US);
+    return name.endsWith(".jsonl") || name.endsWith(".json") ? "jsonl" : "csv";
+  }
+
+  private RowReader newRowReader(String format, BufferedReader reader) throws IOException {
+    switch (format) {
+      case "csv":
+        return new CsvRowReader(new CsvReader(reader));
+      case "jsonl":
+        return new JsonRowReader(reader);
+      default:
+        throw new IllegalArgumentException(
+            String.format("Unknown --%s=%s (expected csv or jsonl)", FORMAT_ARG, format));
+    }
+  }
+
+  private static String messageOf(Exception ex) {
+    if (ex instanceof MarshallingException && ex.getCause() != null) {
+      return ex.getCause().getMessage();
+    }
+    return ex.getMessage();
+  }
+
+  private static LocalDate parseDate(Map<String, String> row) {
+    return LocalDate.parse(required(row, "date"));
+  }
+
+  /** Converts a row to a transaction, checking that it makes sense. */
+  static Transaction toTransaction(LocalDate date, Map<String, String> row) {
+    TransactionCategory category = TransactionCategory.fromCode(required(row, "category"));
+    Money receiptsIn = money(row, "receipts-in");
+    Money receiptsOut = money(row, "receipts-out");
+    Money checkingIn = money(row, "checking-in");
+    Money checkingOut = money(row, "checking-out");
+    Money amount = money(row, "amount");
+    boolean hasColumns = !(receiptsIn.isZero()
+        && receiptsOut.isZero()
+        && checkingIn.isZero()
+        && checkingOut.isZero());
+    if (hasColumns && !amount.isZero()) {
+      throw new IllegalArgumentException(
+          "Give either an amount or the receipts and checking columns, not both");
+    }
+    if (!hasColumns) {
+      switch (category) {
+        case WORLDWIDE_WORK:
+        case LOCAL_CONGREGATION_EXPENSES:
+          receiptsIn = amount;
+          break;
+        case EXPENSE:
+          checkingOut = amount;
+          break;
+        case DEPOSIT:
+          receiptsOut = amount;
+          checkingIn = amount;
+          break;
+        default:
+          throw new IllegalArgumentException(String.format(
+              "Transactions in category %s need the receipts and checking columns", category));
+      }
+      if (amount.isZero()) {
+        throw new IllegalArgumentException("The transaction has no amount");
+      }
+    }
+
+    Transaction.Builder builder = Transaction.builder()
+        .setDate(date.getDayOfMonth())
+        .setDescription(required(row, "description"))
+        .setCategory(category)
+        .setReceiptsIn(receiptsIn)
+        .setReceiptsOut(receiptsOut)
+        .setCheckingIn(checkingIn)
+        .setCheckingOut(checkingOut);
+    String summaryDescription = optional(row, "summary-description");
+    if (summaryDescription != null) {
+      builder.setSummaryDescription(summaryDescription);
+    }
+    return builder.build();
+  }
+
+  /** Converts a row with a {@code type} to a sub-transaction, checking that it makes sense. */
+  static SubTransaction toSubTransaction(Map<String, String> row) {
+    for (String column : TRANSACTION_AMOUNT_COLUMNS) {
+      if (!money(row, column).isZero()) {
+        throw new IllegalArgumentException(
+            "A sub-transaction has an amount, not the receipts and checking columns");
+      }
+    }
+    String type = required(row, "type");
+    BranchResolutionType resolutionType;
+    try {
+      resolutionType = BranchResolutionType.valueOf(type.toUpperCase(Locale.US));
+    } catch (IllegalArgumentException ex) {
+      throw new IllegalArgumentException("Unknown sub-transaction type: " + type, ex);
+    }
+    Money amount = money(row, "amount");
+    if (amount.isZero()) {
+      throw new IllegalArgumentException("The sub-transaction has no amount");
+    }
+    return SubTransaction.builder()
+        .setDescription(required(row, "description"))
+        .setCategory(TransactionCategory.fromCode(required(row, "category")))
+        .setType(resolutionType)
+        .setAmount(amount)
+        .build();
+  }
+
+  private static String required(Map<String, String> row, String key) {
+    String value = optional(row, key);
+    if (value == null) {
+      throw new IllegalArgumentException("Missing " + key);
+    }
+    return value;
+  }
+
+  @Nullable
+  private static String optional(Map<String, String> row, String key) {
+    String value = row.get(key);
+    return value == null || value.trim().isEmpty() ? null : value.trim();
+  }
+
+  private static Money money(Map<String, String> row, String key) {
+    String value = optional(row, key);
+    return value == null ? Money.ZERO : Money.parse(value);
+  }
+
+  /** Reads the rows of the file one at a time, as maps from column names to values. */
+  private interface RowReader {
+    /** Returns the next row, or {@code null} at the end of the file. */
+    @Nullable
+    Map<String, String> readRow() throws IOException;
+
+    /** Returns the line number of the last row read. */
+    int lineNumber();
+  }
+
+  private static final class CsvRowReader implements RowReader {
+    private final CsvReader reader;
+    private final ImmutableList<String> header;
+
+    CsvRowReader(CsvReader reader) throws IOException {
+      this.reader = reader;
+      List<String> headerRow = reader.readRow();
+      ImmutableList.Builder<String> names = ImmutableList.builder();
+      if (headerRow != null) {
+        for (String name : headerRow) {
+          names.add(name.trim().toLowerCase(Locale.US));
+        }
+      }
+      this.header = names.build();
+    }
+
+    @Override
+    public Map<String, String> readRow() throws IOException {
+      List<String> fields;
+      do {
+        fields = reader.readRow();
+      } while (fields != null && fields.size() == 1 && fields.get(0).trim().isEmpty());
+      if (fields == null) {
+        return null;
+      }
+      if (fields.size() > header.size()) {
+        throw new IllegalArgumentException(String.format(
+            "The row has %d fields but the header only names %d", fields.size(), header.size()));
+      }
+      Map<String, String> row = new HashMap<>();
+      for (int i = 0; i < fields.size(); i++) {
+        row.put(header.get(i), fields.get(i));
+      }
+      return row;
+    }
+
+    @Override
+    public int lineNumber() {
+      return reader.lineNumber();
+    }
+  }
+
+  private static final class JsonRowReader implements RowReader {
+    private final BufferedReader reader;
+    private int lineNumber;
+
+    JsonRowReader(BufferedReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public Map<String, String> readRow() throws IOException {
+      String line;
+      do {
+        line = reader.readLine();
+        lineNumber++;
+      } while (line != null && line.trim().isEmpty());
+      if (line == null) {
+        return null;
+      }
+      Map<?, ?> values = Marshaller.readJson(line, Map.class);
+      Map<String, String> row = new HashMap<>();
+      for (Map.Entry<?, ?> entry : values.entrySet()) {
+        if (entry.getValue() != null) {
+          row.put(String.valueOf(entry.getKey()), entry.getValue().toString());
+        }
+      }
+      return row;
+    }
+
+    @Override
+    public int lineNumber() {
+      return lineNumber;
+    }
+  }
+}
@@ -1,40 +1,94 @@
 package net.pryden.accounts.commands;
 
 import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableMap;
 import net.pryden.accounts.Console;
 import net.pryden.accounts.Storage;
+import net.pryden.accounts.commands.Annotations.CommandArgs;
 import net.pryden.accounts.model.AccountsMonth;
 import net.pryden.accounts.model.ComputedTotals;
 import net.pryden.accounts.model.Money;
 import net.pryden.accounts.model.Reconciliation;
 import net.pryden.accounts.model.UnreconciledTransaction;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
+import java.nio.file.Paths;
 import java.time.Clock;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/**
+ * Reconciles a month's checking transactions with the bank statement.
+ *
+ * <p>By default the user is asked about each transaction in turn. Given a statement file with
+ * {@code --statement}, the transactions are instead matched against the lines of the statement
+ * (see {@link BankStatement}). The transactions are indexed by amount, so each statement line is
+ * only compared with the transactions of the same amount, and a transaction matches when its date
+ * is within {@code --date-tolerance} days of the line's date. The user is only asked about lines
+ * that match several transactions that can be told apart, and about lines whose only transactions
+ * of the same amount are further away than that. If the statement records its closing date and
+ * balance, they are shown to the user to accept or correct.
+ */
 final class ReconcileCommand implements Command {
+  static final String STATEMENT_ARG = "statement";
+  static final String DATE_TOLERANCE_ARG = "date-tolerance";
+  static final int DEFAULT_DATE_TOLERANCE_DAYS = 5;
+
   private final Console console;
   private final Storage storage;
   private final Clock clock;
+  private final ImmutableMap<String, String> args;
 
   @Inject
-  ReconcileCommand(Console console, Storage storage, Clock clock) {
+  ReconcileCommand(
+      Console console,
+      Storage storage,
+      Clock clock,
+      @CommandArgs ImmutableMap<String, String> args) {
     this.console = console;
     this.storage = storage;
     this.clock = clock;
+    this.args = args;
   }
 
   @Override
   public void run() throws Exception {
-    LocalDate closingDate = console.readDate("Statement closing date [YYYY-MM-DD]: ");
-    Money closingBalance = console.readMoney("Closing balance: ");
+    int toleranceDays = dateToleranceDays();
+    BankStatement statement = args.containsKey(STATEMENT_ARG)
+        ? BankStatement.read(Paths.get(args.get(STATEMENT_ARG)))
+        : null;
+    LocalDate closingDate;
+    Money closingBalance;
+    if (statement != null
+        && statement.closingDate().isPresent()
+        && statement.closingBalance().isPresent()) {
+      // The statement's ledger balance is not always as of the closing date of the paper statement
+      // (downloads often give it as of the day they were made), so let the user correct it.
+      LocalDate statementDate = statement.closingDate().get();
+      Money statementBalance = statement.closingBalance().get();
+      console.printf("The statement gives a closing date of %s and a closing balance of %s.\n"
+              + "Press Enter to accept each of them, or enter the value to use instead.\n",
+          statementDate.format(DateTimeFormatter.ISO_DATE), statementBalance);
+      closingDate = console.readDate(
+          String.format("Statement closing date [%s]: ",
+              statementDate.format(DateTimeFormatter.ISO_DATE)),
+          statementDate);
+      closingBalance = console.readMoney(
+          String.format("Closing balance [%s]: ", statementBalance), statementBalance);
+    } else {
+      closingDate = console.readDate("Statement closing date [YYYY-MM-DD]: ");
+      closingBalance = console.readMoney("Closing balance: ");
+    }
     YearMonth yearMonth = YearMonth.of(closingDate.getYear(), closingDate.getMonth());
     AccountsMonth previousMonth = storage.readMonth(yearMonth.minusMonths(1));
     AccountsMonth month = storage.readMonth(yearMonth);
@@ -81,21 +135,17 @@ final class ReconcileCommand implements Command {
             .result())
         .collect(Collectors.toList());
 
+    List<UnreconciledTransaction> candidates = toBeReconciled.stream()
+        .filter(t -> !t.date().isAfter(closingDate))
+        .collect(Collectors.toList());
+    List<UnreconciledTransaction> unreconciled = statement == null
+        ? askWhichAreUnreconciled(candidates)
+        : matchStatement(statement, candidates, toleranceDays);
+
     // We start the reconciliation with the closing balance from the bank statement.
     Money reconciledBalance = closingBalance;
-    List<UnreconciledTransaction> unreconciled = new ArrayList<>();
-    for (UnreconciledTransaction transaction : toBeReconciled) {
-      if (transaction.date().isAfter(closingDate)) {
-        continue;
-      }
-      console.printf("%s: %s - %s\n",
-          transaction.date().format(DateTimeFormatter.ISO_DATE),
-          transaction.amount(),
-          transaction.description());
-      if (!console.readConfirmation("Does the statement contain this transaction?")) {
-        reconciledBalance = reconciledBalance.plus(transaction.amount());
-        unreconciled.add(transaction);
-      }
+    for (UnreconciledTransaction transaction : unreconciled) {
+      reconciledBalance = reconciledBalance.plus(transaction.amount());
     }
     ComputedTotals totals = month.computeTotals();
     if (reconciledBalance.equals(totals.checkingBalance())) {
@@ -123,4 +173,176 @@ final class ReconcileCommand implements Command {
     }
     // TODO(dpryden): Generate reconciliation report
   }
+
+  private int dateToleranceDays() {
+    if (!args.containsKey(DATE_TOLERANCE_ARG)) {
+      return DEFAULT_DATE_TOLERANCE_DAYS;
+    }
+    int toleranceDays = Integer.parseInt(args.get(DATE_TOLERANCE_ARG));
+    if (toleranceDays < 0) {
+      throw new IllegalArgumentException("--" + DATE_TOLERANCE_ARG + " must be at least 0");
+    }
+    return toleranceDays;
+  }
+
+  /** Asks about each candidate in turn, and returns the ones that are not on the statement. */
+  private List<UnreconciledTransaction> askWhichAreUnreconciled(
+      List<UnreconciledTransaction> candidates) {
+    List<UnreconciledTransaction> unreconciled = new ArrayList<>();
+    for (UnreconciledTransaction transaction : candidates) {
+      printTransaction("", transaction);
+      if (!console.readConfirmation("Does the statement contain this transaction?")) {
+        unreconciled.add(transaction);
+      }
+    }
+    return unreconciled;
+  }
+
+  /**
+   * Matches the statement's lines against the candidates, and returns the candidates that are not
+   * on the statement.
+   *
+   * <p>Lines with exactly one candidate are matched first, so that those candidates are out of the
+   * way before the remaining lines are looked at again. A line that still has several candidates
+   * is matched with the first of them if they are all the same, and otherwise the user is asked.
+   * Finally the user is asked about each line that is still unmatched but has unmatched candidates
+   * of the same amount outside the date tolerance, in case the bank was slow to post it.
+   */
+  private List<UnreconciledTransaction> matchStatement(
+      BankStatement statement, List<UnreconciledTransaction> candidates, int toleranceDays) {
+    Map<Money, List<Integer>> candidatesByAmount = new HashMap<>();
+    for (int i = 0; i < candidates.size(); i++) {
+      candidatesByAmount
+          .computeIfAbsent(candidates.get(i).amount(), amount -> new ArrayList<>())
+          .add(i);
+    }
+    boolean[] matched = new boolean[candidates.size()];
+
+    List<BankStatement.Line> remaining = new ArrayList<>();
+    for (BankStatement.Line line : statement.lines()) {
+      List<Integer> matches =
+          unmatchedNear(line, toleranceDays, candidatesByAmount, candidates, matched);
+      if (matches.size() == 1) {
+        matched[matches.get(0)] = true;
+      } else {
+        remaining.add(line);
+      }
+    }
+    List<BankStatement.Line> unmatchedLines = new ArrayList<>();
+    for (BankStatement.Line line : remaining) {
+      List<Integer> matches =
+          unmatchedNear(line, toleranceDays, candidatesByAmount, candidates, matched);
+      Integer choice = null;
+      if (matches.size() == 1 || (matches.size() > 1 && areAllSame(matches, candidates))) {
+        choice = matches.get(0);
+      } else if (!matches.isEmpty()) {
+        choice = chooseMatch(line, "could be any of", matches, candidates);
+      }
+      if (choice != null) {
+        matched[choice] = true;
+      } else {
+        unmatchedLines.add(line);
+      }
+    }
+    List<BankStatement.Line> notInAccounts = new ArrayList<>();
+    for (BankStatement.Line line : unmatchedLines) {
+      List<Integer> matches =
+          unmatchedNear(line, Integer.MAX_VALUE, candidatesByAmount, candidates, matched);
+      Integer choice = null;
+      if (!matches.isEmpty()) {
+        choice = chooseMatch(
+            line,
+            String.format("is more than %d days from any transaction, but could be", toleranceDays),
+            matches,
+            candidates);
+      }
+      if (choice != null) {
+        matched[choice] = true;
+      } else {
+        notInAccounts.add(line);
+      }
+    }
+
+    console.printf("Matched %d of %d statement lines\n",
+        statement.lines().size() - notInAccounts.size(), statement.lines().size());
+    if (!notInAccounts.isEmpty()) {
+      console.print("These statement lines do not match any transaction:\n");
+      for (BankStatement.Line line : notInAccounts) {
+        console.printf("    %s: %s - %s\n",
+            line.date().format(DateTimeFormatter.ISO_DATE), line.amount(), line.description());
+      }
+    }
+    List<UnreconciledTransaction> unreconciled = new ArrayList<>();
+    for (int i = 0; i < candidates.size(); i++) {
+      if (!matched[i]) {
+        unreconciled.add(candidates.get(i));
+      }
+    }
+    if (!unreconciled.isEmpty()) {
+      console.print("These transactions are not on the statement:\n");
+      for (UnreconciledTransaction transaction : unreconciled) {
+        printTransaction("    ", transaction);
+      }
+    }
+    return unreconciled;
+  }
+
+  /**
+   * Returns the indexes of the candidates that have not been matched yet, and have the same amount
+   * as {@code line} and a date within {@code toleranceDays} of it.
+   */
+  private static List<Integer> unmatchedNear(
+      BankStatement.Line line,
+      int toleranceDays,
+      Map<Money, List<Integer>> candidatesByAmount,
+      List<UnreconciledTransaction> candidates,
+      boolean[] matched) {
+    List<Integer> result = new ArrayList<>();
+    for (int i : candidatesByAmount.getOrDefault(line.amount(), Collections.emptyList())) {
+      long days = Math.abs(ChronoUnit.DAYS.between(line.date(), candidates.get(i).date()));
+      if (!matched[i] && days <= toleranceDays) {
+        result.add(i);
+      }
+    }
+    return result;
+  }
+
+  private static boolean areAllSame(
+      List<Integer> matches, List<UnreconciledTransaction> candidates) {
+    UnreconciledTransaction first = candidates.get(matches.get(0));
+    return matches.stream().allMatch(i -> candidates.get(i).equals(first));
+  }
+
+  /**
+   * Asks which of {@code matches} a statement line is, introducing them with {@code question}.
+   * Returns {@code null} for none.
+   */
+  @Nullable
+  private Integer chooseMatch(
+      BankStatement.Line line,
+      String question,
+      List<Integer> matches,
+      List<UnreconciledTransaction> candidates) {
+    console.printf("The statement line %s: %s - %s %s:\n",
+        line.date().format(DateTimeFormatter.ISO_DATE),
+        line.amount(),
+        line.description(),
+        question);
+    for (int i = 0; i < matches.size(); i++) {
+      printTransaction(String.format("    %d. ", i + 1), candidates.get(matches.get(i)));
+    }
+    int choice = console.readInt(
+        String.format("Which transaction is it? [1-%d, or 0 for none] ", matches.size()),
+        0,
+        matches.size());
+    return choice == 0 ? null : matches.get(choice - 1);
+  }
+
+  private void printTransaction(String prefix, UnreconciledTransaction transaction) {
+    console.printf("%s%s: %s - %s\n",
+        prefix,
+        transaction.date().format(DateTimeFormatter.ISO_DATE),
+        transaction.amount(),
+        transaction.description());
+  }
 }
@@ -0,0 +1,67 @@
+package net.pryden.accounts.commands;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.pryden.accounts.Console;
+import net.pryden.accounts.SearchHit;
+import net.pryden.accounts.TransactionSearch;
+import net.pryden.accounts.commands.Annotations.CommandArgs;
+import net.pryden.accounts.commands.Annotations.CurrentMonth;
+
+import javax.inject.Inject;
+import java.time.YearMonth;
+
+/**
+ * Finds the transactions whose descriptions contain some words. The search uses
+ * {@link TransactionSearch}, so months that have not changed since they were last indexed are
+ * not read.
+ */
+final class SearchCommand implements Command {
+  static final String QUERY_ARG = "query";
+  static final String FROM_ARG = "from";
+  static final String TO_ARG = "to";
+
+  /** The first month searched when {@code --from} is not given. */
+  private static final YearMonth EARLIEST_MONTH = YearMonth.of(1900, 1);
+
+  private final Console console;
+  private final TransactionSearch search;
+  private final YearMonth currentMonth;
+  private final ImmutableMap<String, String> args;
+
+  @Inject
+  SearchCommand(
+      Console console,
+      TransactionSearch search,
+      @CurrentMonth YearMonth currentMonth,
+      @CommandArgs ImmutableMap<String, String> args) {
+    this.console = console;
+    this.search = search;
+    this.currentMonth = currentMonth;
+    this.args = args;
+  }
+
+  @Override
+  public void run() {
+    String query = args.get(QUERY_ARG);
+    if (query == null) {
+      throw new IllegalArgumentException("Missing --" + QUERY_ARG + " argument");
+    }
+    YearMonth from =
+        args.containsKey(FROM_ARG) ? YearMonth.parse(args.get(FROM_ARG)) : EARLIEST_MONTH;
+    YearMonth to = args.containsKey(TO_ARG) ? YearMonth.parse(args.get(TO_ARG)) : currentMonth;
+    if (to.isBefore(from)) {
+      throw new IllegalArgumentException(
+          String.format("--%s=%s is before --%s=%s", TO_ARG, to, FROM_ARG, from));
+    }
+    ImmutableList<SearchHit> hits = search.search(query, from, to);
+    for (SearchHit hit : hits) {
+      console.printf("%s  %s  %s  %s\n",
+          hit.date(),
+          hit.category().codeAsString(),
+          hit.amount().toPaddedString(10),
+          hit.description());
+    }
+    console.printf("Found %d transaction%s\n", hits.size(), hits.size() == 1 ? "" : "s");
+  }
+}
@@ -0,0 +1,64 @@
+package net.pryden.accounts.commands;
+
+import com.google.common.collect.ImmutableMap;
+import net.pryden.accounts.Console;
+import net.pryden.accounts.Marshaller;
+import net.pryden.accounts.Rollups;
+import net.pryden.accounts.commands.Annotations.CommandArgs;
+import net.pryden.accounts.commands.Annotations.CurrentMonth;
+import net.pryden.accounts.model.ComputedTotals;
+
+import javax.inject.Inject;
+import java.time.Month;
+import java.time.YearMonth;
+
+/**
+ * Prints the totals of a range of months, by default the year to date. The totals come from
+ * {@link Rollups}, so only months that have changed since the last time are read.
+ */
+final class TotalsCommand implements Command {
+  static final String FROM_ARG = "from";
+  static final String TO_ARG = "to";
+  static final String YEAR_START_ARG = "year-start";
+
+  private final Console console;
+  private final Marshaller marshaller;
+  private final Rollups rollups;
+  private final YearMonth currentMonth;
+  private final ImmutableMap<String, String> args;
+
+  @Inject
+  TotalsCommand(
+      Console console,
+      Marshaller marshaller,
+      Rollups rollups,
+      @CurrentMonth YearMonth currentMonth,
+      @CommandArgs ImmutableMap<String, String> args) {
+    this.console = console;
+    this.marshaller = marshaller;
+    this.rollups = rollups;
+    this.currentMonth = currentMonth;
+    this.args = args;
+  }
+
+  @Override
+  public void run() {
+    YearMonth to = args.containsKey(TO_ARG) ? YearMonth.parse(args.get(TO_ARG)) : currentMonth;
+    YearMonth from;
+    if (args.containsKey(FROM_ARG)) {
+      from = YearMonth.parse(args.get(FROM_ARG));
+    } else {
+      Month firstMonth = args.containsKey(YEAR_START_ARG)
+          ? Month.of(Integer.parseInt(args.get(YEAR_START_ARG)))
+          : Month.JANUARY;
+      from = Rollups.startOfYear(to, firstMonth);
+    }
+    if (to.isBefore(from)) {
+      throw new IllegalArgumentException(
+          String.format("--%s=%s is before --%s=%s", TO_ARG, to, FROM_ARG, from));
+    }
+    ComputedTotals totals = rollups.totalsBetween(from, to);
+    console.printf("Totals from %s to %s:\n", from, to);
+    marshaller.dumpToConsole(totals);
+  }
+}
@@ -79,14 +79,66 @@ public abstract class AccountsMonth {
 
   /**
    * Returns an updated {@link AccountsMonth} object with the given transactions added to it.
+   *
+   * <p>The new transactions are merged into the existing (already sorted) ones, and if this
+   * month's totals have already been computed, the new month's totals are derived from them
+   * rather than being recomputed from scratch.
    */
   public AccountsMonth withNewTransactions(Iterable<Transaction> newTransactions) {
+    List<Transaction> added = Lists.newArrayList(newTransactions);
+    Collections.sort(added);
     AccountsMonth.Builder builder = toBuilder();
-    List<Transaction> allTransactions =
-        Lists.newArrayList(Iterables.concat(transactions(), newTransactions));
-    Collections.sort(allTransactions);
-    builder.setTransactions(ImmutableList.copyOf(allTransactions));
-    return builder.build();
+    builder.setTransactions(mergeSorted(transactions(), added));
+    AccountsMonth result = builder.build();
+
+    ComputedTotals totals = cachedComputedTotals;
+    if (totals != null) {
+      AccountsMonth delta = AccountsMonth.builder()
+          .setDate(date())
+          .setOpeningBalance(Money.ZERO)
+          .setReceiptsCarriedForward(Money.ZERO)
+          .setTransactions(ImmutableList.copyOf(added))
+          .build();
+      try {
+        result.cachedComputedTotals = totals.plus(delta.computeTotals());
+      } catch (IllegalStateException ex) {
+        // Leave the new month to report the invalid transaction when its totals are requested.
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the result of stably sorting {@code existing} followed by {@code added}, where
+   * {@code added} is already sorted. If {@code existing} is sorted too (which it always is unless
+   * the month was edited by hand) this is a linear merge; otherwise everything is sorted.
+   */
+  private static ImmutableList<Transaction> mergeSorted(
+      ImmutableList<Transaction> existing, List<Transaction> added) {
+    if (added.isEmpty()) {
+      return existing;
+    }
+    for (int i = 1; i < existing.size(); i++) {
+      if (existing.get(i - 1).compareTo(existing.get(i)) > 0) {
+        List<Transaction> all = Lists.newArrayList(Iterables.concat(existing, added));
+        Collections.sort(all);
+        return ImmutableList.copyOf(all);
+      }
+    }
+    ImmutableList.Builder<Transaction> merged = ImmutableList.builder();
+    int i = 0;
+    int j = 0;
+    while (i < existing.size() && j < added.size()) {
+      // Existing transactions go first among equals, as they would in a stable sort.
+      if (added.get(j).compareTo(existing.get(i)) < 0) {
+        merged.add(added.get(j++));
+      } else {
+        merged.add(existing.get(i++));
+      }
+    }
+    merged.addAll(existing.subList(i, existing.size()));
+    merged.addAll(added.subList(j, added.size()));
+    return merged.build();
   }
 
   /**
@@ -96,77 +148,32 @@ public abstract class AccountsMonth {
    */
   private ComputedTotals cachedComputedTotals;
 
+  /**
+   * Cached {@link TransactionColumns} instance. Like {@link #cachedComputedTotals}, this is not
+   * serialized.
+   */
+  private TransactionColumns cachedColumns;
+
+  /**
+   * Returns a column-oriented view of {@link #transactions()}, which is built the first time it is
+   * requested.
+   */
+  public TransactionColumns columns() {
+    TransactionColumns local = cachedColumns;
+    if (local == null) {
+      cachedColumns = local = TransactionColumns.of(transactions());
+    }
+    return local;
+  }
+
   /** Computes monthly totals of all columns. */
   public ComputedTotals computeTotals() {
     // Probably not necessary, but using a local variable prevents a subtle race condition if this
     // method is ever invoked from multiple threads.
     ComputedTotals local = cachedComputedTotals;
     if (local == null) {
-      Money totalCongregationReceipts = Money.ZERO;
-      Money totalWorldwideReceipts = Money.ZERO;
-      Money totalReceiptsIn = Money.ZERO;
-      Money totalReceiptsOut = Money.ZERO;
-      Money totalCheckingIn = Money.ZERO;
-      Money totalCheckingOut = Money.ZERO;
-      Money totalCongregationExpenses = Money.ZERO;
-      Money totalWorldwideTransfer = Money.ZERO;
-      Money receiptsBalance = receiptsCarriedForward();
-      Money checkingBalance = openingBalance();
-
-      for (Transaction transaction : transactions()) {
-        if (!transaction.receiptsIn().isZero()) {
-          switch (transaction.category()) {
-            case WORLDWIDE_WORK:
-              totalWorldwideReceipts = totalWorldwideReceipts.plus(transaction.receiptsIn());
-              break;
-
-            case LOCAL_CONGREGATION_EXPENSES:
-              totalCongregationReceipts = totalCongregationReceipts.plus(transaction.receiptsIn());
-              break;
-
-            default:
-              throw new IllegalStateException(
-                  "Unexpected receipts in value found for transaction category "
-                      + transaction.category());
-          }
-        }
-        totalReceiptsIn = totalReceiptsIn.plus(transaction.receiptsIn());
-        totalReceiptsOut = totalReceiptsOut.plus(transaction.receiptsOut());
-        totalCheckingIn = totalCheckingIn.plus(transaction.checkingIn());
-        totalCheckingOut = totalCheckingOut.plus(transaction.checkingOut());
-        if (transaction.category() == TransactionCategory.EXPENSE) {
-          totalCongregationExpenses = totalCongregationExpenses.plus(transaction.checkingOut());
-        }
-        for (SubTransaction subTransaction : transaction.subTransactions()) {
-          if (subTransaction.category() == TransactionCategory.EXPENSE) {
-            totalCongregationExpenses = totalCongregationExpenses.plus(subTransaction.amount());
-          }
-          if (subTransaction.type()
-              == BranchResolutionType.WORLDWIDE_WORK_FROM_CONTRIBUTION_BOXES) {
-            totalWorldwideTransfer = totalWorldwideTransfer.plus(subTransaction.amount());
-          }
-        }
-        receiptsBalance = receiptsBalance
-            .plus(transaction.receiptsIn())
-            .minus(transaction.receiptsOut());
-        checkingBalance = checkingBalance
-            .plus(transaction.checkingIn())
-            .minus(transaction.checkingOut());
-      }
-
-      cachedComputedTotals = local = ComputedTotals.builder()
-          .setTotalCongregationReceipts(totalCongregationReceipts)
-          .setTotalWorldwideReceipts(totalWorldwideReceipts)
-          .setTotalReceiptsIn(totalReceiptsIn)
-          .setTotalReceiptsOut(totalReceiptsOut)
-          .setTotalCheckingIn(totalCheckingIn)
-          .setTotalCheckingOut(totalCheckingOut)
-          .setTotalCongregationExpenses(totalCongregationExpenses)
-          .setTotalWorldwideTransfer(totalWorldwideTransfer)
-          .setReceiptsOutstandingBalance(receiptsBalance)
-          .setCheckingBalance(checkingBalance)
-          .setTotalOfAllBalances(receiptsBalance.plus(checkingBalance))
-          .build();
+      cachedComputedTotals = local =
+          columns().computeTotals(receiptsCarriedForward(), openingBalance());
     }
     return local;
   }
@@ -63,6 +63,67 @@ public abstract class ComputedTotals {
   @JsonProperty("total-of-all-balances")
   public abstract Money totalOfAllBalances();
 
+  /**
+   * Returns the totals of a month whose transactions are those of this month followed by those of
+   * {@code delta}, where {@code delta} was computed with zero opening balances.
+   */
+  ComputedTotals plus(ComputedTotals delta) {
+    return builder()
+        .setTotalCongregationReceipts(
+            totalCongregationReceipts().plus(delta.totalCongregationReceipts()))
+        .setTotalWorldwideReceipts(totalWorldwideReceipts().plus(delta.totalWorldwideReceipts()))
+        .setTotalReceiptsIn(totalReceiptsIn().plus(delta.totalReceiptsIn()))
+        .setTotalReceiptsOut(totalReceiptsOut().plus(delta.totalReceiptsOut()))
+        .setTotalCheckingIn(totalCheckingIn().plus(delta.totalCheckingIn()))
+        .setTotalCheckingOut(totalCheckingOut().plus(delta.totalCheckingOut()))
+        .setTotalWorldwideTransfer(totalWorldwideTransfer().plus(delta.totalWorldwideTransfer()))
+        .setTotalCongregationExpenses(
+            totalCongregationExpenses().plus(delta.totalCongregationExpenses()))
+        .setReceiptsOutstandingBalance(
+            receiptsOutstandingBalance().plus(delta.receiptsOutstandingBalance()))
+        .setCheckingBalance(checkingBalance().plus(delta.checkingBalance()))
+        .setTotalOfAllBalances(totalOfAllBalances().plus(delta.totalOfAllBalances()))
+        .build();
+  }
+
+  /**
+   * Returns the totals of a run of months that starts with the months these totals cover and
+   * continues with the months {@code next} covers: the column totals of both are added together,
+   * and the balances are those of {@code next}.
+   */
+  public ComputedTotals followedBy(ComputedTotals next) {
+    return withColumns(next, 1).setBalancesFrom(next).build();
+  }
+
+  /**
+   * Returns the totals of a run of months with the months {@code earlier} covers taken off the
+   * start. This is the inverse of {@link #followedBy}: the column totals of {@code earlier} are
+   * subtracted, and the balances are left as they are.
+   */
+  public ComputedTotals withoutColumnsOf(ComputedTotals earlier) {
+    return withColumns(earlier, -1).setBalancesFrom(this).build();
+  }
+
+  private Builder withColumns(ComputedTotals other, int sign) {
+    return builder()
+        .setTotalCongregationReceipts(addOrSubtract(
+            totalCongregationReceipts(), other.totalCongregationReceipts(), sign))
+        .setTotalWorldwideReceipts(
+            addOrSubtract(totalWorldwideReceipts(), other.totalWorldwideReceipts(), sign))
+        .setTotalReceiptsIn(addOrSubtract(totalReceiptsIn(), other.totalReceiptsIn(), sign))
+        .setTotalReceiptsOut(addOrSubtract(totalReceiptsOut(), other.totalReceiptsOut(), sign))
+        .setTotalCheckingIn(addOrSubtract(totalCheckingIn(), other.totalCheckingIn(), sign))
+        .setTotalCheckingOut(addOrSubtract(totalCheckingOut(), other.totalCheckingOut(), sign))
+        .setTotalWorldwideTransfer(
+            addOrSubtract(totalWorldwideTransfer(), other.totalWorldwideTransfer(), sign))
+        .setTotalCongregationExpenses(addOrSubtract(
+            totalCongregationExpenses(), other.totalCongregationExpenses(), sign));
+  }
+
+  private static Money addOrSubtract(Money value, Money other, int sign) {
+    return sign > 0 ? value.plus(other) : value.minus(other);
+  }
+
   /** Returns a new {@link Builder} instance. */
   public static Builder builder() {
     return new AutoValue_ComputedTotals.Builder();
@@ -95,6 +156,12 @@ public abstract class ComputedTotals {
 
     public abstract Builder setTotalOfAllBalances(Money totalOfAllBalances);
 
+    Builder setBalancesFrom(ComputedTotals totals) {
+      return setReceiptsOutstandingBalance(totals.receiptsOutstandingBalance())
+          .setCheckingBalance(totals.checkingBalance())
+          .setTotalOfAllBalances(totals.totalOfAllBalances());
+    }
+
     public abstract ComputedTotals build();
   }
 }
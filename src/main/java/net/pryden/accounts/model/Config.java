@@ -43,6 +43,13 @@ public abstract class Config {
   @JsonProperty("root-dir")
   public abstract String rootDir();
 
+  /**
+   * Whether to keep a compact index of every month's file alongside the accounts data, so that
+   * totals and other history lookups can be answered without re-reading each month's file.
+   */
+  @JsonProperty("use-month-index")
+  public abstract boolean useMonthIndex();
+
   /** The resolutions currently active for sending extra funds to the branch each month. */
   @JsonProperty("branch-resolutions")
   public abstract ImmutableList<BranchResolution> branchResolutions();
@@ -71,6 +78,7 @@ public abstract class Config {
   public abstract static class Builder {
     Builder() {
       setBranchResolutions(ImmutableList.of());
+      setUseMonthIndex(false);
     }
 
     @JsonProperty("congregation-name")
@@ -94,6 +102,9 @@ public abstract class Config {
     @JsonProperty("root-dir")
     public abstract Builder setRootDir(String path);
 
+    @JsonProperty("use-month-index")
+    public abstract Builder setUseMonthIndex(boolean useMonthIndex);
+
     public abstract Builder setBranchResolutions(ImmutableList<BranchResolution> branchResolutions);
 
     @JsonProperty("branch-resolutions")
@@ -7,16 +7,26 @@ import com.google.common.base.Strings;
 import net.pryden.accounts.model.Money.MoneyStringConverter;
 import net.pryden.accounts.model.Money.StringMoneyConverter;
 
+import javax.annotation.Nullable;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Objects;
 
 /**
  * Represents an amount of money in US dollars.
+ *
+ * <p>Amounts are stored as a {@code long} number of cents, which is plenty for any real set of
+ * accounts. Amounts too large for that are stored as a {@link BigDecimal} instead, so arithmetic
+ * never silently overflows.
  */
 @JsonSerialize(converter = MoneyStringConverter.class)
 @JsonDeserialize(converter = StringMoneyConverter.class)
 public final class Money {
   /** A convenience constant representing zero dollars. */
-  public static final Money ZERO = Money.parse("0.00");
+  public static final Money ZERO = new Money(0);
+
+  /** The number of integer digits that can always be parsed into a {@code long} of cents. */
+  private static final int MAX_FAST_PARSE_DIGITS = 16;
 
   /**
    * Parses a string into a {@link Money} value. This method should parse any value returned from
@@ -27,51 +37,169 @@ public final class Money {
    */
   public static Money parse(String value) {
     value = value.trim();
+    boolean parenthesized = value.startsWith("(") && value.endsWith(")");
+    String number = parenthesized ? value.substring(1, value.length() - 1) : value;
+    long cents = parseCents(number);
+    if (cents != Long.MIN_VALUE) {
+      return new Money(parenthesized ? -cents : cents);
+    }
     try {
-      if (value.startsWith("(") && value.endsWith(")")) {
-        return new Money(new BigDecimal(value.substring(1, value.length() - 1)).negate());
-      }
-      return new Money(new BigDecimal(value));
+      BigDecimal decimal = new BigDecimal(number);
+      return of(parenthesized ? decimal.negate() : decimal);
     } catch (NumberFormatException ex) {
       throw new IllegalArgumentException(
           String.format("Cannot parse string \"%s\" as an amount of money", value));
     }
   }
 
-  private final BigDecimal value;
+  /**
+   * Parses the common forms of amount ({@code 12}, {@code -12.3}, {@code 12.34}) directly into
+   * cents. Returns {@link Long#MIN_VALUE} for anything else, which is then left to
+   * {@link BigDecimal} to parse and round.
+   */
+  private static long parseCents(String number) {
+    int length = number.length();
+    int i = 0;
+    boolean negative = false;
+    if (i < length && number.charAt(i) == '-') {
+      negative = true;
+      i++;
+    }
+    int integerStart = i;
+    long cents = 0;
+    while (i < length && isDigit(number.charAt(i))) {
+      cents = cents * 10 + (number.charAt(i) - '0');
+      i++;
+    }
+    int integerDigits = i - integerStart;
+    if (integerDigits == 0 || integerDigits > MAX_FAST_PARSE_DIGITS) {
+      return Long.MIN_VALUE;
+    }
+    cents *= 100;
+    if (i < length && number.charAt(i) == '.') {
+      i++;
+      if (i < length && isDigit(number.charAt(i))) {
+        cents += (number.charAt(i) - '0') * 10;
+        i++;
+        if (i < length && isDigit(number.charAt(i))) {
+          cents += number.charAt(i) - '0';
+          i++;
+        }
+      }
+    }
+    if (i != length) {
+      // More decimal places (which need rounding), an exponent, or something unparseable.
+      return Long.MIN_VALUE;
+    }
+    return negative ? -cents : cents;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /** Returns a Money instance representing the given whole number of cents. */
+  static Money ofCents(long cents) {
+    return new Money(cents);
+  }
+
+  /** Returns a Money instance for {@code value}, rounded to a whole number of cents. */
+  private static Money of(BigDecimal value) {
+    BigDecimal rounded = value.setScale(2, BigDecimal.ROUND_HALF_EVEN);
+    BigInteger unscaled = rounded.unscaledValue();
+    if (unscaled.bitLength() < Long.SIZE) {
+      return new Money(unscaled.longValue());
+    }
+    return new Money(rounded);
+  }
+
+  /** The amount in cents. Only meaningful if {@link #bigValue} is null. */
+  private final long cents;
+
+  /** The amount, with a scale of 2, if it is too large to be represented in {@link #cents}. */
+  @Nullable private final BigDecimal bigValue;
+
+  private Money(long cents) {
+    this.cents = cents;
+    this.bigValue = null;
+  }
 
-  private Money(BigDecimal value) {
-    this.value = value.setScale(2, BigDecimal.ROUND_HALF_EVEN);
+  private Money(BigDecimal bigValue) {
+    this.cents = 0;
+    this.bigValue = bigValue;
   }
 
   /** Returns a new Money instance that represents the sum of this amount and {@code other}. */
   public Money plus(Money other) {
-    return new Money(value.add(other.value));
+    if (bigValue == null && other.bigValue == null) {
+      long sum = cents + other.cents;
+      // Overflow happened iff both operands have the opposite sign to the result.
+      if (((cents ^ sum) & (other.cents ^ sum)) >= 0) {
+        return new Money(sum);
+      }
+    }
+    return of(toBigDecimal().add(other.toBigDecimal()));
   }
 
   /** Returns a new Money instance that represents this amount minus the {@code other} amount. */
   public Money minus(Money other) {
-    return new Money(value.subtract(other.value));
+    if (bigValue == null && other.bigValue == null) {
+      long difference = cents - other.cents;
+      // Overflow happened iff the operands have different signs, and the result doesn't have the
+      // sign of this amount.
+      if (((cents ^ other.cents) & (cents ^ difference)) >= 0) {
+        return new Money(difference);
+      }
+    }
+    return of(toBigDecimal().subtract(other.toBigDecimal()));
   }
 
   /** Returns a new Money instance representing the negation of this amount. */
   public Money negate() {
-    return new Money(value.negate());
+    if (bigValue == null && cents != Long.MIN_VALUE) {
+      return new Money(-cents);
+    }
+    return of(toBigDecimal().negate());
+  }
+
+  /**
+   * Returns this amount as a whole number of cents.
+   *
+   * @throws ArithmeticException if the amount is too large to be represented as a {@code long}
+   */
+  long toCents() {
+    if (bigValue != null) {
+      throw new ArithmeticException("Amount does not fit in a long number of cents: " + this);
+    }
+    return cents;
+  }
+
+  /** Returns whether {@link #toCents()} can represent this amount. */
+  boolean fitsInCents() {
+    return bigValue == null;
+  }
+
+  private BigDecimal toBigDecimal() {
+    return bigValue != null ? bigValue : BigDecimal.valueOf(cents, 2);
+  }
+
+  private int signum() {
+    return bigValue != null ? bigValue.signum() : Long.signum(cents);
   }
 
   /** Returns whether this Money object represents a negative amount of money. */
   public boolean isNegative() {
-    return value.signum() < 0;
+    return signum() < 0;
   }
 
   /** Returns whether this Money object represents zero dollars. */
   public boolean isZero() {
-    return value.signum() == 0;
+    return signum() == 0;
   }
 
   /** Returns whether this Money object represents a positive amount of money. */
   public boolean isPositive() {
-    return value.signum() > 0;
+    return signum() > 0;
   }
 
   /**
@@ -91,10 +219,28 @@ public final class Money {
    * "0.00" rather than the empty string.
    */
   public String toFormattedStringPreserveZero() {
-    if (isNegative()) {
-      return "(" + value.negate().toPlainString() + ")";
+    if (bigValue != null || cents == Long.MIN_VALUE) {
+      BigDecimal value = toBigDecimal();
+      if (isNegative()) {
+        return "(" + value.negate().toPlainString() + ")";
+      }
+      return value.toPlainString();
     }
-    return value.toPlainString();
+    long absolute = Math.abs(cents);
+    long fraction = absolute % 100;
+    String formatted = (absolute / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    return cents < 0 ? "(" + formatted + ")" : formatted;
+  }
+
+  /**
+   * Returns the amount as a plain decimal number, such as "-12.50", for other programs to read.
+   * Unlike {@link #toFormattedStringPreserveZero()}, negative amounts have a minus sign instead of
+   * parentheses.
+   */
+  public String toPlainString() {
+    return isNegative()
+        ? "-" + negate().toFormattedStringPreserveZero()
+        : toFormattedStringPreserveZero();
   }
 
   /**
@@ -107,13 +253,17 @@ public final class Money {
 
   @Override
   public int hashCode() {
-    return value.hashCode();
+    return bigValue != null ? bigValue.hashCode() : Long.hashCode(cents);
   }
 
   @Override
   public boolean equals(Object other) {
-    return other instanceof Money
-        && ((Money) other).value.equals(value);
+    if (!(other instanceof Money)) {
+      return false;
+    }
+    // Every amount has exactly one representation, so there is no need to compare across them.
+    Money that = (Money) other;
+    return cents == that.cents && Objects.equals(bigValue, that.bigValue);
   }
 
   @Override
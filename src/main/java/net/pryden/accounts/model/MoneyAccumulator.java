@@ -0,0 +1,67 @@
+package net.pryden.accounts.model;
+
+import javax.annotation.Nullable;
+
+/**
+ * A mutable running total of {@link Money} amounts. Unlike summing with {@link Money#plus}, adding
+ * an amount to an accumulator doesn't allocate anything, so it's suitable for summing columns of
+ * transactions. Call {@link #total()} to get the result as a {@link Money} value.
+ *
+ * <p>This class is not thread-safe.
+ */
+public final class MoneyAccumulator {
+  private long cents;
+
+  /**
+   * The running total, once it no longer fits in {@link #cents}. This never happens for real
+   * accounts, but keeps the result exact if it does.
+   */
+  @Nullable private Money overflowTotal;
+
+  /** Creates an accumulator starting at zero. */
+  public MoneyAccumulator() {}
+
+  /** Creates an accumulator starting at {@code initial}. */
+  public MoneyAccumulator(Money initial) {
+    add(initial);
+  }
+
+  /** Adds {@code amount} to the running total. */
+  public void add(Money amount) {
+    if (overflowTotal == null && amount.fitsInCents()) {
+      addCents(amount.toCents());
+    } else {
+      overflowTotal = total().plus(amount);
+    }
+  }
+
+  /** Adds {@code amount}, a whole number of cents, to the running total. */
+  public void addCents(long amount) {
+    if (overflowTotal == null) {
+      long sum = cents + amount;
+      if (((cents ^ sum) & (amount ^ sum)) >= 0) {
+        cents = sum;
+        return;
+      }
+    }
+    overflowTotal = total().plus(Money.ofCents(amount));
+  }
+
+  /** Subtracts {@code amount} from the running total. */
+  public void subtract(Money amount) {
+    if (overflowTotal == null && amount.fitsInCents()) {
+      long other = amount.toCents();
+      long difference = cents - other;
+      if (((cents ^ other) & (cents ^ difference)) >= 0) {
+        cents = difference;
+        return;
+      }
+    }
+    overflowTotal = total().minus(amount);
+  }
+
+  /** Returns the running total. */
+  public Money total() {
+    return overflowTotal != null ? overflowTotal : Money.ofCents(cents);
+  }
+}
@@ -0,0 +1,224 @@
+package net.pryden.accounts.model;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compact binary encoding of an {@link AccountsMonth}, used as a derived cache of the month's
+ * YAML file. Amounts are stored as fixed-width counts of cents, categories as their one-byte
+ * codes, and every distinct description is stored once in a string table at the start of the
+ * snapshot.
+ *
+ * <p>Each snapshot records a checksum of the YAML file it was derived from, so that a snapshot
+ * is only ever used while it still matches its source.
+ */
+public final class MonthSnapshot {
+  private static final int MAGIC = 0x414d5353; // "AMSS"
+  private static final int VERSION = 1;
+
+  private MonthSnapshot() {}
+
+  /**
+   * Writes {@code month} to {@code out}, tagged with the checksum of the YAML file it was read
+   * from or written to.
+   *
+   * @throws IOException if the month cannot be written
+   * @throws IllegalArgumentException if the month cannot be represented in this format (for
+   *     example because an amount does not fit in a {@code long} number of cents)
+   */
+  public static void write(AccountsMonth month, long sourceChecksum, DataOutput out)
+      throws IOException {
+    StringTable strings = new StringTable();
+    for (Transaction transaction : month.transactions()) {
+      strings.add(transaction.description());
+      transaction.optionalSummaryDescription().ifPresent(strings::add);
+      for (SubTransaction subTransaction : transaction.subTransactions()) {
+        strings.add(subTransaction.description());
+      }
+    }
+    month.reconciliation().ifPresent(reconciliation -> {
+      for (UnreconciledTransaction transaction : reconciliation.unreconciledTransactions()) {
+        strings.add(transaction.description());
+      }
+    });
+
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeLong(sourceChecksum);
+    strings.write(out);
+
+    out.writeInt(month.date().getYear());
+    out.writeByte(month.date().getMonthValue());
+    writeMoney(out, month.openingBalance());
+    writeMoney(out, month.receiptsCarriedForward());
+    out.writeBoolean(month.isClosed());
+
+    out.writeInt(month.transactions().size());
+    for (Transaction transaction : month.transactions()) {
+      writeTransaction(out, strings, transaction);
+    }
+
+    out.writeBoolean(month.reconciliation().isPresent());
+    if (month.reconciliation().isPresent()) {
+      Reconciliation reconciliation = month.reconciliation().get();
+      out.writeLong(reconciliation.dateReconciled().toEpochDay());
+      writeMoney(out, reconciliation.statementBalance());
+      writeMoney(out, reconciliation.reconciledBalance());
+      out.writeInt(reconciliation.unreconciledTransactions().size());
+      for (UnreconciledTransaction transaction : reconciliation.unreconciledTransactions()) {
+        out.writeLong(transaction.date().toEpochDay());
+        out.writeInt(strings.indexOf(transaction.description()));
+        writeMoney(out, transaction.amount());
+      }
+    }
+  }
+
+  /**
+   * Reads a month from {@code in}. Returns {@link Optional#empty()} if the snapshot was written
+   * in a different format version, or was derived from a file whose checksum is not
+   * {@code expectedChecksum}.
+   *
+   * @throws IOException if the snapshot cannot be read
+   */
+  public static Optional<AccountsMonth> read(DataInput in, long expectedChecksum)
+      throws IOException {
+    if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != expectedChecksum) {
+      return Optional.empty();
+    }
+    String[] strings = StringTable.read(in);
+
+    AccountsMonth.Builder month = AccountsMonth.builder()
+        .setDate(YearMonth.of(in.readInt(), in.readByte()))
+        .setOpeningBalance(readMoney(in))
+        .setReceiptsCarriedForward(readMoney(in))
+        .setIsClosed(in.readBoolean());
+
+    int transactionCount = in.readInt();
+    List<Transaction> transactions = new ArrayList<>(transactionCount);
+    for (int i = 0; i < transactionCount; i++) {
+      transactions.add(readTransaction(in, strings));
+    }
+    month.setTransactions(ImmutableList.copyOf(transactions));
+
+    if (in.readBoolean()) {
+      Reconciliation.Builder reconciliation = Reconciliation.builder()
+          .setDateReconciled(LocalDate.ofEpochDay(in.readLong()))
+          .setStatementBalance(readMoney(in))
+          .setReconciledBalance(readMoney(in));
+      int unreconciledCount = in.readInt();
+      List<UnreconciledTransaction> unreconciled = new ArrayList<>(unreconciledCount);
+      for (int i = 0; i < unreconciledCount; i++) {
+        unreconciled.add(UnreconciledTransaction.builder()
+            .setDate(LocalDate.ofEpochDay(in.readLong()))
+            .setDescription(strings[in.readInt()])
+            .setAmount(readMoney(in))
+            .build());
+      }
+      month.setReconciliation(reconciliation.setUnreconciledTransactions(unreconciled).build());
+    }
+    return Optional.of(month.build());
+  }
+
+  private static void writeTransaction(DataOutput out, StringTable strings, Transaction transaction)
+      throws IOException {
+    out.writeInt(transaction.date());
+    out.writeInt(strings.indexOf(transaction.description()));
+    out.writeInt(transaction.optionalSummaryDescription().map(strings::indexOf).orElse(-1));
+    out.writeByte(transaction.category().code());
+    writeMoney(out, transaction.receiptsIn());
+    writeMoney(out, transaction.receiptsOut());
+    writeMoney(out, transaction.checkingIn());
+    writeMoney(out, transaction.checkingOut());
+    out.writeInt(transaction.subTransactions().size());
+    for (SubTransaction subTransaction : transaction.subTransactions()) {
+      out.writeInt(strings.indexOf(subTransaction.description()));
+      out.writeByte(subTransaction.category().code());
+      out.writeByte(subTransaction.type().ordinal());
+      writeMoney(out, subTransaction.amount());
+    }
+  }
+
+  private static Transaction readTransaction(DataInput in, String[] strings) throws IOException {
+    Transaction.Builder transaction = Transaction.builder()
+        .setDate(in.readInt())
+        .setDescription(strings[in.readInt()]);
+    int summaryIndex = in.readInt();
+    transaction
+        .setOptionalSummaryDescription(
+            summaryIndex < 0 ? Optional.empty() : Optional.of(strings[summaryIndex]))
+        .setCategory(TransactionCategory.fromCode((char) in.readByte()))
+        .setReceiptsIn(readMoney(in))
+        .setReceiptsOut(readMoney(in))
+        .setCheckingIn(readMoney(in))
+        .setCheckingOut(readMoney(in));
+    int subTransactionCount = in.readInt();
+    if (subTransactionCount > 0) {
+      BranchResolutionType[] types = BranchResolutionType.values();
+      ImmutableList.Builder<SubTransaction> subTransactions = ImmutableList.builder();
+      for (int i = 0; i < subTransactionCount; i++) {
+        subTransactions.add(SubTransaction.builder()
+            .setDescription(strings[in.readInt()])
+            .setCategory(TransactionCategory.fromCode((char) in.readByte()))
+            .setType(types[in.readByte()])
+            .setAmount(readMoney(in))
+            .build());
+      }
+      transaction.setSubTransactions(subTransactions.build());
+    }
+    return transaction.build();
+  }
+
+  private static void writeMoney(DataOutput out, Money value) throws IOException {
+    try {
+      out.writeLong(value.toCents());
+    } catch (ArithmeticException ex) {
+      throw new IllegalArgumentException("Amount too large for a snapshot: " + value, ex);
+    }
+  }
+
+  private static Money readMoney(DataInput in) throws IOException {
+    return Money.ofCents(in.readLong());
+  }
+
+  /** Table of the distinct strings in a snapshot, each of which is written only once. */
+  private static final class StringTable {
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    void add(String value) {
+      if (!indexes.containsKey(value)) {
+        indexes.put(value, strings.size());
+        strings.add(value);
+      }
+    }
+
+    int indexOf(String value) {
+      return indexes.get(value);
+    }
+
+    void write(DataOutput out) throws IOException {
+      out.writeInt(strings.size());
+      for (String value : strings) {
+        out.writeUTF(value);
+      }
+    }
+
+    static String[] read(DataInput in) throws IOException {
+      String[] strings = new String[in.readInt()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = in.readUTF();
+      }
+      return strings;
+    }
+  }
+}
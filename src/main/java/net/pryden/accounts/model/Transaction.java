@@ -99,6 +99,9 @@ public abstract class Transaction implements Comparable<Transaction> {
         .result();
   }
 
+  /** Returns a {@link Builder} instance initialized with this object's fields. */
+  public abstract Builder toBuilder();
+
   /** Returns a new {@link Builder} instance. */
   public static Builder builder() {
     return new AutoValue_Transaction.Builder();
@@ -46,6 +46,10 @@ public enum TransactionCategory {
     this.ordering = ordering;
   }
 
+  char code() {
+    return code;
+  }
+
   public String codeAsString() {
     return String.valueOf(code);
   }
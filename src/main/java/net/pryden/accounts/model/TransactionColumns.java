@@ -0,0 +1,274 @@
+package net.pryden.accounts.model;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Column-oriented copy of a month's transactions, for code that scans every transaction. Each
+ * field of the transactions is stored in its own primitive array, indexed by the transaction's
+ * position in {@link AccountsMonth#transactions()}. Amounts are stored as whole numbers of cents.
+ * An amount too large for that is kept to one side as a {@link Money} value instead, so that every
+ * month has columns; real accounts never have one.
+ *
+ * <p>The sub-transactions of all the transactions are stored in a second set of columns. The
+ * sub-transactions of transaction {@code i} are those from {@link #subTransactionStart(int)
+ * subTransactionStart(i)} (inclusive) to {@link #subTransactionEnd(int) subTransactionEnd(i)}
+ * (exclusive).
+ *
+ * <p>Instances are immutable, and are obtained from {@link AccountsMonth#columns()}.
+ */
+public final class TransactionColumns {
+  private static final TransactionCategory[] CATEGORIES = TransactionCategory.values();
+  private static final BranchResolutionType[] TYPES = BranchResolutionType.values();
+
+  private final int[] dates;
+  private final byte[] categories;
+  private final AmountColumn receiptsIn;
+  private final AmountColumn receiptsOut;
+  private final AmountColumn checkingIn;
+  private final AmountColumn checkingOut;
+  private final int[] subTransactionOffsets;
+  private final byte[] subCategories;
+  private final byte[] subTypes;
+  private final AmountColumn subAmounts;
+
+  private TransactionColumns(int size, int subTransactionCount) {
+    dates = new int[size];
+    categories = new byte[size];
+    receiptsIn = new AmountColumn(size);
+    receiptsOut = new AmountColumn(size);
+    checkingIn = new AmountColumn(size);
+    checkingOut = new AmountColumn(size);
+    subTransactionOffsets = new int[size + 1];
+    subCategories = new byte[subTransactionCount];
+    subTypes = new byte[subTransactionCount];
+    subAmounts = new AmountColumn(subTransactionCount);
+  }
+
+  /** Builds the columns for {@code transactions}. */
+  static TransactionColumns of(List<Transaction> transactions) {
+    int subTransactionCount = 0;
+    for (Transaction transaction : transactions) {
+      subTransactionCount += transaction.subTransactions().size();
+    }
+    TransactionColumns columns = new TransactionColumns(transactions.size(), subTransactionCount);
+    int sub = 0;
+    for (int i = 0; i < transactions.size(); i++) {
+      Transaction transaction = transactions.get(i);
+      columns.dates[i] = transaction.date();
+      columns.categories[i] = (byte) transaction.category().ordinal();
+      columns.receiptsIn.set(i, transaction.receiptsIn());
+      columns.receiptsOut.set(i, transaction.receiptsOut());
+      columns.checkingIn.set(i, transaction.checkingIn());
+      columns.checkingOut.set(i, transaction.checkingOut());
+      columns.subTransactionOffsets[i] = sub;
+      for (SubTransaction subTransaction : transaction.subTransactions()) {
+        columns.subCategories[sub] = (byte) subTransaction.category().ordinal();
+        columns.subTypes[sub] = (byte) subTransaction.type().ordinal();
+        columns.subAmounts.set(sub, subTransaction.amount());
+        sub++;
+      }
+    }
+    columns.subTransactionOffsets[transactions.size()] = sub;
+    return columns;
+  }
+
+  /** Returns the number of transactions. */
+  public int size() {
+    return dates.length;
+  }
+
+  /** Returns the day of the month of transaction {@code i}. */
+  public int date(int i) {
+    return dates[i];
+  }
+
+  /** Returns the category of transaction {@code i}. */
+  public TransactionCategory category(int i) {
+    return CATEGORIES[categories[i]];
+  }
+
+  /**
+   * Returns the receipts-in amount of transaction {@code i}, in cents.
+   *
+   * @throws ArithmeticException if the amount does not fit in a {@code long} number of cents
+   */
+  public long receiptsInCents(int i) {
+    return receiptsIn.cents(i);
+  }
+
+  /**
+   * Returns the receipts-out amount of transaction {@code i}, in cents.
+   *
+   * @throws ArithmeticException if the amount does not fit in a {@code long} number of cents
+   */
+  public long receiptsOutCents(int i) {
+    return receiptsOut.cents(i);
+  }
+
+  /**
+   * Returns the checking-in amount of transaction {@code i}, in cents.
+   *
+   * @throws ArithmeticException if the amount does not fit in a {@code long} number of cents
+   */
+  public long checkingInCents(int i) {
+    return checkingIn.cents(i);
+  }
+
+  /**
+   * Returns the checking-out amount of transaction {@code i}, in cents.
+   *
+   * @throws ArithmeticException if the amount does not fit in a {@code long} number of cents
+   */
+  public long checkingOutCents(int i) {
+    return checkingOut.cents(i);
+  }
+
+  /** Returns the index of the first sub-transaction of transaction {@code i}. */
+  public int subTransactionStart(int i) {
+    return subTransactionOffsets[i];
+  }
+
+  /** Returns the index after the last sub-transaction of transaction {@code i}. */
+  public int subTransactionEnd(int i) {
+    return subTransactionOffsets[i + 1];
+  }
+
+  /** Returns the category of sub-transaction {@code j}. */
+  public TransactionCategory subTransactionCategory(int j) {
+    return CATEGORIES[subCategories[j]];
+  }
+
+  /** Returns the branch resolution type of sub-transaction {@code j}. */
+  public BranchResolutionType subTransactionType(int j) {
+    return TYPES[subTypes[j]];
+  }
+
+  /**
+   * Returns the amount of sub-transaction {@code j}, in cents.
+   *
+   * @throws ArithmeticException if the amount does not fit in a {@code long} number of cents
+   */
+  public long subTransactionAmountCents(int j) {
+    return subAmounts.cents(j);
+  }
+
+  /** Computes the totals of all columns, as documented on {@link AccountsMonth#computeTotals()}. */
+  ComputedTotals computeTotals(Money receiptsCarriedForward, Money openingBalance) {
+    final byte worldwideWork = (byte) TransactionCategory.WORLDWIDE_WORK.ordinal();
+    final byte localCongregationExpenses =
+        (byte) TransactionCategory.LOCAL_CONGREGATION_EXPENSES.ordinal();
+    final byte expense = (byte) TransactionCategory.EXPENSE.ordinal();
+    final byte fromContributionBoxes =
+        (byte) BranchResolutionType.WORLDWIDE_WORK_FROM_CONTRIBUTION_BOXES.ordinal();
+
+    MoneyAccumulator totalCongregationReceipts = new MoneyAccumulator();
+    MoneyAccumulator totalWorldwideReceipts = new MoneyAccumulator();
+    MoneyAccumulator totalReceiptsIn = new MoneyAccumulator();
+    MoneyAccumulator totalReceiptsOut = new MoneyAccumulator();
+    MoneyAccumulator totalCheckingIn = new MoneyAccumulator();
+    MoneyAccumulator totalCheckingOut = new MoneyAccumulator();
+    MoneyAccumulator totalCongregationExpenses = new MoneyAccumulator();
+    MoneyAccumulator totalWorldwideTransfer = new MoneyAccumulator();
+
+    for (int i = 0; i < dates.length; i++) {
+      byte category = categories[i];
+      if (!receiptsIn.isZero(i)) {
+        if (category == worldwideWork) {
+          receiptsIn.addTo(totalWorldwideReceipts, i);
+        } else if (category == localCongregationExpenses) {
+          receiptsIn.addTo(totalCongregationReceipts, i);
+        } else {
+          throw new IllegalStateException(
+              "Unexpected receipts in value found for transaction category " + category(i));
+        }
+      }
+      receiptsIn.addTo(totalReceiptsIn, i);
+      receiptsOut.addTo(totalReceiptsOut, i);
+      checkingIn.addTo(totalCheckingIn, i);
+      checkingOut.addTo(totalCheckingOut, i);
+      if (category == expense) {
+        checkingOut.addTo(totalCongregationExpenses, i);
+      }
+      for (int j = subTransactionOffsets[i]; j < subTransactionOffsets[i + 1]; j++) {
+        if (subCategories[j] == expense) {
+          subAmounts.addTo(totalCongregationExpenses, j);
+        }
+        if (subTypes[j] == fromContributionBoxes) {
+          subAmounts.addTo(totalWorldwideTransfer, j);
+        }
+      }
+    }
+
+    MoneyAccumulator receiptsBalance = new MoneyAccumulator(receiptsCarriedForward);
+    receiptsBalance.add(totalReceiptsIn.total());
+    receiptsBalance.subtract(totalReceiptsOut.total());
+    MoneyAccumulator checkingBalance = new MoneyAccumulator(openingBalance);
+    checkingBalance.add(totalCheckingIn.total());
+    checkingBalance.subtract(totalCheckingOut.total());
+    MoneyAccumulator totalOfAllBalances = new MoneyAccumulator(receiptsBalance.total());
+    totalOfAllBalances.add(checkingBalance.total());
+    return ComputedTotals.builder()
+        .setTotalCongregationReceipts(totalCongregationReceipts.total())
+        .setTotalWorldwideReceipts(totalWorldwideReceipts.total())
+        .setTotalReceiptsIn(totalReceiptsIn.total())
+        .setTotalReceiptsOut(totalReceiptsOut.total())
+        .setTotalCheckingIn(totalCheckingIn.total())
+        .setTotalCheckingOut(totalCheckingOut.total())
+        .setTotalCongregationExpenses(totalCongregationExpenses.total())
+        .setTotalWorldwideTransfer(totalWorldwideTransfer.total())
+        .setReceiptsOutstandingBalance(receiptsBalance.total())
+        .setCheckingBalance(checkingBalance.total())
+        .setTotalOfAllBalances(totalOfAllBalances.total())
+        .build();
+  }
+
+  /**
+   * A column of amounts, stored as cents. An amount that does not fit in a {@code long} number of
+   * cents is stored as zero, with the amount itself in {@link #oversized}.
+   */
+  private static final class AmountColumn {
+    final long[] cents;
+    @Nullable Money[] oversized;
+
+    AmountColumn(int size) {
+      cents = new long[size];
+    }
+
+    void set(int i, Money amount) {
+      if (amount.fitsInCents()) {
+        cents[i] = amount.toCents();
+      } else {
+        if (oversized == null) {
+          oversized = new Money[cents.length];
+        }
+        oversized[i] = amount;
+      }
+    }
+
+    @Nullable
+    Money oversized(int i) {
+      return oversized == null ? null : oversized[i];
+    }
+
+    long cents(int i) {
+      if (oversized(i) != null) {
+        throw new ArithmeticException(oversized[i] + " does not fit in a long number of cents");
+      }
+      return cents[i];
+    }
+
+    boolean isZero(int i) {
+      return cents[i] == 0 && oversized(i) == null;
+    }
+
+    void addTo(MoneyAccumulator sum, int i) {
+      Money amount = oversized(i);
+      if (amount == null) {
+        sum.addCents(cents[i]);
+      } else {
+        sum.add(amount);
+      }
+    }
+  }
+}
@@ -9,10 +9,10 @@ import net.pryden.accounts.model.AccountsMonth;
 import net.pryden.accounts.model.ComputedTotals;
 import net.pryden.accounts.model.Config;
 import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.MoneyAccumulator;
 import net.pryden.accounts.model.Transaction;
 import net.pryden.accounts.model.TransactionCategory;
 
-import javax.inject.Inject;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -27,13 +27,10 @@ import java.util.Locale;
 final class AccountsReportForm implements Report {
   private static final String FILENAME = "S-30-E Monthly Congregation Accounts Report.pdf";
 
-  private final Console console;
   private final Config config;
   private final FormHelper.Factory factory;
 
-  @Inject
-  AccountsReportForm(Console console, Config config, FormHelper.Factory factory) {
-    this.console = console;
+  AccountsReportForm(Config config, FormHelper.Factory factory) {
     this.config = config;
     this.factory = factory;
   }
@@ -44,7 +41,7 @@ final class AccountsReportForm implements Report {
   }
 
   @Override
-  public void generate(AccountsMonth month) throws IOException {
+  public void generate(AccountsMonth month, Console console) throws IOException {
     console.print("Generating " + FILENAME + "\n");
     Path outputFilePath = Paths.get(config.rootDir(), month.date().toString(), FILENAME);
     try (FormHelper form = factory.create(config.accountsReportFormPath(), outputFilePath)) {
@@ -122,10 +119,11 @@ final class AccountsReportForm implements Report {
       }
       List<Expenditure> expenditures = new ArrayList<>();
       for (String description : groupedExpenditures.keySet()) {
-        Money amount = groupedExpenditures.get(description).stream()
-            .map(Expenditure::amount)
-            .reduce(Money.ZERO, Money::plus);
-        expenditures.add(Expenditure.create(description, amount));
+        MoneyAccumulator amount = new MoneyAccumulator();
+        for (Expenditure expenditure : groupedExpenditures.get(description)) {
+          amount.add(expenditure.amount());
+        }
+        expenditures.add(Expenditure.create(description, amount.total()));
       }
 
       int index = 13;
@@ -7,8 +7,8 @@ import net.pryden.accounts.model.Config;
 import net.pryden.accounts.model.SubTransaction;
 import net.pryden.accounts.model.Transaction;
 
-import javax.inject.Inject;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.format.DateTimeFormatter;
@@ -16,17 +16,20 @@ import java.util.Locale;
 
 /**
  * Represents the S-26 Accounts Sheet form.
+ *
+ * <p>A month with more transactions than fit in the grid is continued on further copies of the
+ * form, saved next to the first one as {@code "S-26-E Accounts Sheet (sheet N).pdf"}. Only one
+ * sheet is held in memory at a time, and the totals are written on the last sheet.
  */
 final class AccountsSheetForm implements Report {
   private static final String FILENAME = "S-26-E Accounts Sheet.pdf";
+  private static final String CONTINUATION_FILENAME_FORMAT =
+      "S-26-E Accounts Sheet (sheet %d).pdf";
 
-  private final Console console;
   private final Config config;
   private final FormHelper.Factory factory;
 
-  @Inject
-  AccountsSheetForm(Console console, Config config, FormHelper.Factory factory) {
-    this.console = console;
+  AccountsSheetForm(Config config, FormHelper.Factory factory) {
     this.config = config;
     this.factory = factory;
   }
@@ -37,16 +40,23 @@ final class AccountsSheetForm implements Report {
   }
 
   @Override
-  public void generate(AccountsMonth month) throws IOException {
+  public void generate(AccountsMonth month, Console console) throws IOException {
     console.print("Generating " + FILENAME + "\n");
-    Path outputFilePath = Paths.get(config.rootDir(), month.date().toString(), FILENAME);
-    try (FormHelper form = factory.create(config.accountsSheetFormPath(), outputFilePath)) {
-      new AccountsSheetGenerator(config, month, form).run();
-      console.printf("Writing %s\n", outputFilePath);
-      form.save();
+    Path monthDir = Paths.get(config.rootDir(), month.date().toString());
+    int sheetCount = new AccountsSheetGenerator(config, month, factory, monthDir, console).run();
+    // Remove any continuation sheets left over from an earlier run with more transactions.
+    for (int sheet = sheetCount + 1; Files.deleteIfExists(sheetPath(monthDir, sheet)); sheet++) {
+      console.printf("Deleted %s\n", sheetPath(monthDir, sheet));
     }
   }
 
+  /** Returns the path of the given sheet (counting from 1) of the accounts sheet. */
+  static Path sheetPath(Path monthDir, int sheet) {
+    return sheet == 1
+        ? monthDir.resolve(FILENAME)
+        : monthDir.resolve(String.format(CONTINUATION_FILENAME_FORMAT, sheet));
+  }
+
   /** Helper class to actually populate the form. */
   private static final class AccountsSheetGenerator {
     private static final DateTimeFormatter MONTH_ENDING_FORMAT =
@@ -55,32 +65,102 @@ final class AccountsSheetForm implements Report {
     private static final DateTimeFormatter MONTH_NAME =
         DateTimeFormatter.ofPattern("MMMM", Locale.US);
 
+    /** The number of lines in the grid on the first page of each sheet. */
+    private static final int GRID_LINES = 52;
+
+    // The names of the fields in each column of the grid, indexed by line. These are built once
+    // rather than concatenated for every field that is set.
+    private static final String[] DATE_FIELDS = gridFieldNames("Text7.0.");
+    private static final String[] DESCRIPTION_FIELDS = gridFieldNames("Text8.0.");
+    private static final String[] CATEGORY_FIELDS = gridFieldNames("Text9.");
+    private static final String[] RECEIPTS_IN_FIELDS = gridFieldNames("Text10.");
+    private static final String[] RECEIPTS_OUT_FIELDS = gridFieldNames("Text12.");
+    private static final String[] CHECKING_IN_FIELDS = gridFieldNames("Text14.");
+    private static final String[] CHECKING_OUT_FIELDS = gridFieldNames("Text16.");
+
+    private static String[] gridFieldNames(String prefix) {
+      String[] names = new String[GRID_LINES];
+      for (int i = 0; i < GRID_LINES; i++) {
+        names[i] = prefix + i;
+      }
+      return names;
+    }
+
     private final Config config;
     private final AccountsMonth month;
-    private final FormHelper form;
-
-    AccountsSheetGenerator(Config config, AccountsMonth month, FormHelper form) {
+    private final FormHelper.Factory factory;
+    private final Path monthDir;
+    private final Console console;
+    private FormHelper form;
+    private int sheet;
+    private int index;
+
+    AccountsSheetGenerator(
+        Config config,
+        AccountsMonth month,
+        FormHelper.Factory factory,
+        Path monthDir,
+        Console console) {
       this.config = config;
       this.month = month;
-      this.form = form;
+      this.factory = factory;
+      this.monthDir = monthDir;
+      this.console = console;
     }
 
-    void run() throws IOException {
-      writeHeader();
-      int index = 0;
-      for (Transaction transaction : month.transactions()) {
-        writeGridLine(index, transaction);
-        index++;
-        for (SubTransaction subTransaction : transaction.subTransactions()) {
-          writeSubGridLine(index, subTransaction);
-          index++;
+    /** Writes every sheet needed for the month, and returns how many there were. */
+    int run() throws IOException {
+      try {
+        startSheet();
+        for (Transaction transaction : month.transactions()) {
+          // Keep a transaction together with its sub-transactions where they fit on one sheet.
+          int lines = 1 + transaction.subTransactions().size();
+          if (index > 0 && index + lines > GRID_LINES && lines <= GRID_LINES) {
+            finishSheet();
+            startSheet();
+          }
+          writeGridLine(nextLine(), transaction);
+          for (SubTransaction subTransaction : transaction.subTransactions()) {
+            writeSubGridLine(nextLine(), subTransaction);
+          }
+        }
+        if (month.isClosed()) {
+          ComputedTotals totals = month.computeTotals();
+          writeTotals(totals);
+        }
+        // TODO(dpryden): Support "Obligations at end of month"
+        finishSheet();
+      } finally {
+        if (form != null) {
+          form.close();
         }
       }
-      if (month.isClosed()) {
-        ComputedTotals totals = month.computeTotals();
-        writeTotals(totals);
+      return sheet;
+    }
+
+    private void startSheet() throws IOException {
+      sheet++;
+      index = 0;
+      form = factory.create(config.accountsSheetFormPath(), sheetPath(monthDir, sheet));
+      writeHeader();
+    }
+
+    private void finishSheet() throws IOException {
+      Path outputFilePath = sheetPath(monthDir, sheet);
+      console.printf("Writing %s\n", outputFilePath);
+      form.save();
+      FormHelper finished = form;
+      form = null;
+      finished.close();
+    }
+
+    /** Returns the index of the next free grid line, continuing on a new sheet if necessary. */
+    private int nextLine() throws IOException {
+      if (index == GRID_LINES) {
+        finishSheet();
+        startSheet();
       }
-      // TODO(dpryden): Support "Obligations at end of month"
+      return index++;
     }
 
     private void writeHeader() throws IOException {
@@ -91,32 +171,22 @@ final class AccountsSheetForm implements Report {
       form.setValue("Text5", String.valueOf(month.date().getYear()));
     }
 
-    private void checkGridIndex(int index) {
-      // TODO(dpryden): Support wrapping to the second page
-      if (index > 51) {
-        throw new UnsupportedOperationException(
-            "Wrapping to page 2 of the form is not yet implemented");
-      }
-    }
-
     private void writeGridLine(int index, Transaction transaction) throws IOException {
-      checkGridIndex(index);
-      form.setValue("Text7.0." + index, String.valueOf(transaction.date()));
-      form.setValue("Text8.0." + index, transaction.description());
-      form.setValue("Text9." + index, transaction.category().codeAsString());
-      form.setMoney("Text10." + index, transaction.receiptsIn());
-      form.setMoney("Text12." + index, transaction.receiptsOut());
-      form.setMoney("Text14." + index, transaction.checkingIn());
-      form.setMoney("Text16." + index, transaction.checkingOut());
+      form.setValue(DATE_FIELDS[index], String.valueOf(transaction.date()));
+      form.setValue(DESCRIPTION_FIELDS[index], transaction.description());
+      form.setValue(CATEGORY_FIELDS[index], transaction.category().codeAsString());
+      form.setMoney(RECEIPTS_IN_FIELDS[index], transaction.receiptsIn());
+      form.setMoney(RECEIPTS_OUT_FIELDS[index], transaction.receiptsOut());
+      form.setMoney(CHECKING_IN_FIELDS[index], transaction.checkingIn());
+      form.setMoney(CHECKING_OUT_FIELDS[index], transaction.checkingOut());
     }
 
     private void writeSubGridLine(int index, SubTransaction subTransaction) throws IOException {
-      checkGridIndex(index);
       String description = String.format("%s [%s]",
           subTransaction.description(),
           subTransaction.amount().toFormattedStringPreserveZero());
-      form.setValue("Text8.0." + index, description);
-      form.setValue("Text9." + index, subTransaction.category().codeAsString());
+      form.setValue(DESCRIPTION_FIELDS[index], description);
+      form.setValue(CATEGORY_FIELDS[index], subTransaction.category().codeAsString());
     }
 
     private void writeTotals(ComputedTotals totals) throws IOException {
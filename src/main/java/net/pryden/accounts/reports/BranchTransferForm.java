@@ -6,7 +6,6 @@ import net.pryden.accounts.model.Config;
 import net.pryden.accounts.model.SubTransaction;
 import net.pryden.accounts.model.Transaction;
 
-import javax.inject.Inject;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -17,13 +16,10 @@ import java.nio.file.Paths;
 final class BranchTransferForm implements Report {
   private static final String FILENAME = "TO-62-E Record of Electronic Funds Transfer.pdf";
 
-  private final Console console;
   private final Config config;
   private final FormHelper.Factory factory;
 
-  @Inject
-  BranchTransferForm(Console console, Config config, FormHelper.Factory factory) {
-    this.console = console;
+  BranchTransferForm(Config config, FormHelper.Factory factory) {
     this.config = config;
     this.factory = factory;
   }
@@ -34,7 +30,7 @@ final class BranchTransferForm implements Report {
   }
 
   @Override
-  public void generate(AccountsMonth month) throws IOException {
+  public void generate(AccountsMonth month, Console console) throws IOException {
     console.print("Generating " + FILENAME + "\n");
     Path outputFilePath = Paths.get(config.rootDir(), month.date().toString(), FILENAME);
     try (FormHelper form = factory.create(config.fundsTransferFormPath(), outputFilePath)) {
@@ -8,7 +8,6 @@ import net.pryden.accounts.model.Money;
 import net.pryden.accounts.model.Transaction;
 
 import javax.annotation.Nullable;
-import javax.inject.Inject;
 import java.io.IOException;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
@@ -25,12 +24,9 @@ import java.util.Locale;
 final class CheckbookEntriesText implements Report {
   private static final String FILENAME = "CheckbookEntries.txt";
 
-  private final Console console;
   private final Config config;
 
-  @Inject
-  CheckbookEntriesText(Console console, Config config) {
-    this.console = console;
+  CheckbookEntriesText(Config config) {
     this.config = config;
   }
 
@@ -40,7 +36,7 @@ final class CheckbookEntriesText implements Report {
   }
 
   @Override
-  public void generate(AccountsMonth month) throws IOException {
+  public void generate(AccountsMonth month, Console console) throws IOException {
     console.print("Generating " + FILENAME + "\n");
     Path outputFilePath = Paths.get(config.rootDir(), month.date().toString(), FILENAME);
     try (Writer out = Files.newBufferedWriter(outputFilePath, StandardCharsets.UTF_8)) {
@@ -6,23 +6,84 @@ import org.apache.pdfbox.pdmodel.interactive.form.PDCheckbox;
 import org.apache.pdfbox.pdmodel.interactive.form.PDField;
 import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Concrete implementation of {@link FormHelper}. Basically wraps the PDFBox API.
+ *
+ * <p>When to build the appearance streams of filled-in text fields is controlled by the
+ * {@value #APPEARANCES_PROPERTY} system property; see {@link AppearanceMode}.
+ *
+ * <p>Completed forms are written through a buffered stream to a temporary file, which then
+ * replaces the output file.
  */
 final class FormHelperImpl extends FormHelper {
+  static final String APPEARANCES_PROPERTY = "accounts.formAppearances";
+
+  private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+  /** When the appearance streams of text fields are built. */
+  enum AppearanceMode {
+    /** Each field's appearance is rebuilt every time its value is set. This is the default. */
+    IMMEDIATE,
+
+    /**
+     * Appearances are built once per field when the form is saved, no matter how many times its
+     * value was set.
+     */
+    DEFERRED,
+
+    /**
+     * Appearances are not built at all. Instead the form's NeedAppearances flag is set, which asks
+     * the PDF viewer to build them when the form is opened.
+     */
+    VIEWER,
+  }
+
   private final String formFilePath;
   private final PDDocument document;
   private final PDAcroForm form;
+  private final Map<String, PDField> fields;
   private final File outputFile;
+  private final AppearanceMode appearanceMode;
+  private final boolean templateNeedsAppearances;
+  private final Set<PDTextField> deferredFields = new LinkedHashSet<>();
+
+  static final FormHelper.Factory FACTORY = new Factory(
+      AppearanceMode.valueOf(
+          System.getProperty(APPEARANCES_PROPERTY, AppearanceMode.IMMEDIATE.name())
+              .toUpperCase(Locale.ROOT)));
 
-  static final FormHelper.Factory FACTORY = new Factory();
+  /** Returns a factory for forms that build appearances according to {@code appearanceMode}. */
+  static FormHelper.Factory factory(AppearanceMode appearanceMode) {
+    return new Factory(appearanceMode);
+  }
 
-  /** Implementation of {@link FormHelper.Factory}. */
+  /**
+   * Implementation of {@link FormHelper.Factory}. Templates are read through a {@link
+   * TemplateCache} shared by the whole process. PDFBox has no way to copy a parsed document, so
+   * each form is still parsed from the cached bytes, but the template file is only read once.
+   */
   private static final class Factory implements FormHelper.Factory {
+    private static final TemplateCache TEMPLATES = new TemplateCache();
+
+    private final AppearanceMode appearanceMode;
+
+    Factory(AppearanceMode appearanceMode) {
+      this.appearanceMode = appearanceMode;
+    }
+
     @Override
     public FormHelper create(String formFilePath, Path outputFilePath) throws IOException {
       File formFile = new File(formFilePath);
@@ -33,25 +94,51 @@ final class FormHelperImpl extends FormHelper {
       if (outputFile.exists() && !outputFile.canWrite()) {
         throw new IllegalArgumentException("Output file " + outputFilePath + " cannot be written.");
       }
-      PDDocument document = PDDocument.load(formFile);
+      PDDocument document = PDDocument.load(TEMPLATES.get(formFile.toPath()));
       PDAcroForm form = document.getDocumentCatalog().getAcroForm();
       if (form == null) {
         document.close();
         throw new IllegalStateException("PDF file " + formFilePath + " is not a PDF form.");
       }
-      return new FormHelperImpl(formFilePath, document, form, outputFile);
+      return new FormHelperImpl(formFilePath, document, form, indexFields(form), outputFile,
+          appearanceMode);
     }
   }
 
-  FormHelperImpl(String formFilePath, PDDocument document, PDAcroForm form, File outputFile) {
+  FormHelperImpl(
+      String formFilePath,
+      PDDocument document,
+      PDAcroForm form,
+      Map<String, PDField> fields,
+      File outputFile,
+      AppearanceMode appearanceMode) {
     this.formFilePath = formFilePath;
     this.document = document;
     this.form = form;
+    this.fields = fields;
     this.outputFile = outputFile;
+    this.appearanceMode = appearanceMode;
+    this.templateNeedsAppearances = form.getNeedAppearances();
+    if (appearanceMode != AppearanceMode.IMMEDIATE) {
+      // PDFBox skips building appearances while this flag is set.
+      form.setNeedAppearances(true);
+    }
+  }
+
+  /**
+   * Returns every field in {@code form}, keyed by fully qualified name. Looking fields up in this
+   * map is much cheaper than {@link PDAcroForm#getField}, which walks the whole field tree.
+   */
+  private static Map<String, PDField> indexFields(PDAcroForm form) {
+    Map<String, PDField> fields = new HashMap<>();
+    for (PDField field : form.getFieldTree()) {
+      fields.put(field.getFullyQualifiedName(), field);
+    }
+    return fields;
   }
 
   private <T extends PDField> T getField(String fieldName, Class<T> fieldType) {
-    PDField field = form.getField(fieldName);
+    PDField field = fields.get(fieldName);
     if (field == null) {
       throw new IllegalArgumentException(
           String.format("No such field %s in form %s", fieldName, formFilePath));
@@ -61,7 +148,11 @@ final class FormHelperImpl extends FormHelper {
 
   @Override
   public void setValue(String fieldName, String value) throws IOException {
-    getField(fieldName, PDTextField.class).setValue(value);
+    PDTextField field = getField(fieldName, PDTextField.class);
+    field.setValue(value);
+    if (appearanceMode == AppearanceMode.DEFERRED) {
+      deferredFields.add(field);
+    }
   }
 
   @Override
@@ -76,14 +167,25 @@ final class FormHelperImpl extends FormHelper {
 
   @Override
   public void save() throws IOException {
-    if (outputFile.exists()) {
-      File backupFile = new File(outputFile.getPath() + ".bak");
-      if (backupFile.exists()) {
-        backupFile.delete();
+    if (appearanceMode == AppearanceMode.DEFERRED && !templateNeedsAppearances) {
+      // Setting a field's value again with the flag cleared builds its appearance.
+      form.setNeedAppearances(false);
+      for (PDTextField field : deferredFields) {
+        field.setValue(field.getValue());
       }
-      outputFile.renameTo(backupFile);
+      deferredFields.clear();
+    }
+    Path outputPath = outputFile.toPath();
+    Path tempPath = outputPath.resolveSibling(outputPath.getFileName() + ".tmp");
+    try (OutputStream out =
+        new BufferedOutputStream(Files.newOutputStream(tempPath), OUTPUT_BUFFER_SIZE)) {
+      document.save(out);
+    }
+    if (Files.exists(outputPath)) {
+      Files.move(outputPath, outputPath.resolveSibling(outputPath.getFileName() + ".bak"),
+          StandardCopyOption.REPLACE_EXISTING);
     }
-    document.save(outputFile);
+    Files.move(tempPath, outputPath, StandardCopyOption.ATOMIC_MOVE);
   }
 
   @Override
@@ -4,10 +4,10 @@ import net.pryden.accounts.Console;
 import net.pryden.accounts.model.AccountsMonth;
 import net.pryden.accounts.model.Config;
 import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.MoneyAccumulator;
 import net.pryden.accounts.model.Reconciliation;
 import net.pryden.accounts.model.UnreconciledTransaction;
 
-import javax.inject.Inject;
 import java.io.IOException;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
@@ -25,12 +25,9 @@ import java.util.stream.Stream;
 final class ReconciliationText implements Report {
   private static final String FILENAME = "Reconciliation.txt";
 
-  private final Console console;
   private final Config config;
 
-  @Inject
-  ReconciliationText(Console console, Config config) {
-    this.console = console;
+  ReconciliationText(Config config) {
     this.config = config;
   }
 
@@ -40,7 +37,7 @@ final class ReconciliationText implements Report {
   }
 
   @Override
-  public void generate(AccountsMonth month) throws IOException {
+  public void generate(AccountsMonth month, Console console) throws IOException {
     console.print("Generating " + FILENAME + "\n");
     Path outputFilePath = Paths.get(config.rootDir(), month.date().toString(), FILENAME);
     try (Writer out = Files.newBufferedWriter(outputFilePath, StandardCharsets.UTF_8)) {
@@ -87,7 +84,7 @@ final class ReconciliationText implements Report {
     private Money printAndSumTransactions(Stream<UnreconciledTransaction> stream)
         throws IOException {
       Iterator<UnreconciledTransaction> iter = stream.iterator();
-      Money sum = Money.ZERO;
+      MoneyAccumulator sum = new MoneyAccumulator();
       while (iter.hasNext()) {
         UnreconciledTransaction transaction = iter.next();
         Money amount = transaction.amount();
@@ -96,14 +93,15 @@ final class ReconciliationText implements Report {
         if (amount.isNegative()) {
           amount = amount.negate();
         }
-        sum = sum.plus(amount);
+        sum.add(amount);
         printf(String.format("    %s %s %s\n",
             transaction.date().format(DateTimeFormatter.ISO_DATE),
             amount.toPaddedString(10),
             transaction.description()));
       }
-      printf("Total: %s\n", sum.toFormattedStringPreserveZero());
-      return sum;
+      Money total = sum.total();
+      printf("Total: %s\n", total.toFormattedStringPreserveZero());
+      return total;
     }
 
     void printf(String message, Object... args) throws IOException {
@@ -1,6 +1,9 @@
 package net.pryden.accounts.reports;
 
+import com.google.common.collect.ImmutableSet;
+import net.pryden.accounts.Console;
 import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.Config;
 
 import java.io.IOException;
 
@@ -8,6 +11,15 @@ import java.io.IOException;
  * An implementation of a specific report.
  */
 public interface Report {
+  /**
+   * Factory for the full set of reports, for commands that generate reports for more than one
+   * congregation at once.
+   */
+  interface Factory {
+    /** Returns every report, configured for the congregation described by {@code config}. */
+    ImmutableSet<Report> create(Config config);
+  }
+
   /**
    * Returns whether this report can be generated for the given month.
    *
@@ -17,6 +29,9 @@ public interface Report {
 
   /**
    * Generates a report on disk in the given month's folder.
+   *
+   * <p>Progress messages are printed to {@code console}. Reports may be generated concurrently,
+   * so implementations must not share mutable state between calls.
    */
-  void generate(AccountsMonth month) throws IOException;
+  void generate(AccountsMonth month, Console console) throws IOException;
 }
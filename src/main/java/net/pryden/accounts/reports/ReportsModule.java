@@ -3,6 +3,7 @@ package net.pryden.accounts.reports;
 import com.google.common.collect.ImmutableSet;
 import dagger.Module;
 import dagger.Provides;
+import net.pryden.accounts.model.Config;
 
 /**
  * Module that provides bindings for {@link Report}s.
@@ -10,22 +11,25 @@ import dagger.Provides;
 @Module
 public final class ReportsModule {
   @Provides
-  ImmutableSet<Report> provideReports(
-      AccountsReportForm accountsReportForm,
-      AccountsSheetForm accountsSheetForm,
-      BranchTransferForm branchTransferForm,
-      CheckbookEntriesText checkbookEntriesText,
-      ReconciliationText reconciliationText) {
-    return ImmutableSet.of(
-        accountsReportForm,
-        accountsSheetForm,
-        branchTransferForm,
-        checkbookEntriesText,
-        reconciliationText);
+  ImmutableSet<Report> provideReports(Config config, Report.Factory factory) {
+    return factory.create(config);
+  }
+
+  @Provides
+  Report.Factory provideReportFactory(FormHelper.Factory formHelperFactory) {
+    return config -> ImmutableSet.of(
+        new AccountsReportForm(config, formHelperFactory),
+        new AccountsSheetForm(config, formHelperFactory),
+        new BranchTransferForm(config, formHelperFactory),
+        new CheckbookEntriesText(config),
+        new ReconciliationText(config));
   }
 
   @Provides
   FormHelper.Factory provideFormHelperFactory() {
-    return FormHelperImpl.FACTORY;
+    // Refer to FormHelperImpl only once a form is actually filled in, so that PDFBox is not loaded
+    // for months (or commands) that only need the text reports.
+    return (formFilePath, outputFilePath) ->
+        FormHelperImpl.FACTORY.create(formFilePath, outputFilePath);
   }
 }
@@ -0,0 +1,101 @@
+package net.pryden.accounts.reports;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the contents of recently used PDF form templates in memory, so that generating the same
+ * form for many months reads each template from disk only once.
+ *
+ * <p>Entries are keyed by path and are only used while the file's size and modification time are
+ * unchanged. The total size of the cached templates is bounded; the least recently used templates
+ * are evicted first, and a template larger than the whole bound is never cached.
+ */
+final class TemplateCache {
+  static final long DEFAULT_MAX_BYTES = 32 * 1024 * 1024;
+  static final String MAX_BYTES_PROPERTY = "accounts.templateCacheBytes";
+
+  private final long maxBytes;
+  private final Map<Path, Template> templates = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes;
+  private long hitCount;
+  private long missCount;
+
+  TemplateCache() {
+    this(Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES));
+  }
+
+  TemplateCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns the current contents of the template at {@code path}. The returned array may be shared
+   * with other callers, so it must not be modified.
+   */
+  synchronized byte[] get(Path path) throws IOException {
+    long size = Files.size(path);
+    long lastModified = Files.getLastModifiedTime(path).toMillis();
+    Template cached = templates.get(path);
+    if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+      hitCount++;
+      return cached.contents;
+    }
+    missCount++;
+    byte[] contents = Files.readAllBytes(path);
+    remove(path);
+    if (contents.length <= maxBytes) {
+      templates.put(path, new Template(size, lastModified, contents));
+      totalBytes += contents.length;
+      evict();
+    }
+    return contents;
+  }
+
+  /** Returns the number of lookups that were answered from memory. */
+  synchronized long hitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of lookups that had to read the template from disk. */
+  synchronized long missCount() {
+    return missCount;
+  }
+
+  /** Returns the total size of the templates currently held in memory. */
+  synchronized long totalBytes() {
+    return totalBytes;
+  }
+
+  private void remove(Path path) {
+    Template removed = templates.remove(path);
+    if (removed != null) {
+      totalBytes -= removed.contents.length;
+    }
+  }
+
+  private void evict() {
+    Iterator<Template> iterator = templates.values().iterator();
+    while (totalBytes > maxBytes && iterator.hasNext()) {
+      totalBytes -= iterator.next().contents.length;
+      iterator.remove();
+    }
+  }
+
+  /** The contents of a template, with the size and modification time they were read at. */
+  private static final class Template {
+    final long size;
+    final long lastModified;
+    final byte[] contents;
+
+    Template(long size, long lastModified, byte[] contents) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.contents = contents;
+    }
+  }
+}
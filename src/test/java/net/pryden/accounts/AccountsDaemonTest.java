@@ -0,0 +1,171 @@
+package net.pryden.accounts;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public final class AccountsDaemonTest {
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private Path portFile;
+  private Path workingDir;
+  private Thread serverThread;
+  private int port;
+  private String secret;
+
+  @Before
+  public void setUp() throws Exception {
+    portFile = temp.getRoot().toPath().resolve(AccountsDaemon.PORT_FILE_NAME);
+    workingDir = temp.newFolder("work").toPath();
+    AccountsDaemon daemon =
+        new AccountsDaemon(portFile, workingDir, 60_000, 500, (args, console) -> {
+          if (args.get(0).equals("fail")) {
+            throw new IllegalStateException("Broken");
+          }
+          if (args.get(0).equals("ask")) {
+            String answer = console.readString("Name? ");
+            console.printf("Hello, %s\n", answer);
+            return;
+          }
+          console.printf("Ran %s\n", Joiner.on(' ').join(args));
+        });
+    port = daemon.start();
+    List<String> portFileParts =
+        Splitter.on(' ').splitToList(new String(Files.readAllBytes(portFile), UTF_8).trim());
+    assertThat(portFileParts.get(0)).isEqualTo(String.valueOf(port));
+    secret = portFileParts.get(1);
+    serverThread = new Thread(() -> {
+      try {
+        daemon.serve();
+      } catch (Exception ex) {
+        throw new RuntimeException(ex);
+      }
+    });
+    serverThread.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (serverThread.isAlive()) {
+      request(secret, workingDir.toString(), ImmutableList.of("stop-daemon"), ImmutableList.of());
+      serverThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+  }
+
+  /** Sends a request, answering any prompts in order, and returns the daemon's replies. */
+  private List<String> request(
+      String secret, String dir, List<String> args, List<String> answers) throws Exception {
+    List<String> replies = new ArrayList<>();
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      Writer out = new OutputStreamWriter(socket.getOutputStream(), UTF_8);
+      BufferedReader in =
+          new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+      out.write(secret + "\n" + AccountsDaemon.escape(dir) + "\n");
+      for (String arg : args) {
+        out.write(AccountsDaemon.escape(arg) + "\n");
+      }
+      out.write("\n");
+      out.flush();
+      Iterator<String> answerIterator = answers.iterator();
+      String line;
+      while ((line = in.readLine()) != null) {
+        replies.add(line);
+        if (line.startsWith("P")) {
+          out.write(AccountsDaemon.escape(answerIterator.next()) + "\n");
+          out.flush();
+        }
+      }
+    }
+    return replies;
+  }
+
+  private List<String> request(String... args) throws Exception {
+    return request(secret, workingDir.toString(), ImmutableList.copyOf(args), ImmutableList.of());
+  }
+
+  @Test
+  public void testRunsCommand() throws Exception {
+    assertThat(request("dump-month", "--month=2015-10"))
+        .containsExactly("ORan dump-month --month=2015-10\\n", "X0").inOrder();
+    assertThat(request("help")).containsExactly("ORan help\\n", "X0").inOrder();
+  }
+
+  @Test
+  public void testForwardsPrompts() throws Exception {
+    List<String> replies = request(
+        secret, workingDir.toString(), ImmutableList.of("ask"), ImmutableList.of("World"));
+
+    assertThat(replies).containsExactly("PName? ", "OHello, World\\n", "X0").inOrder();
+  }
+
+  @Test
+  public void testReportsFailure() throws Exception {
+    List<String> replies = request("fail");
+
+    assertThat(replies).hasSize(2);
+    assertThat(replies.get(0)).startsWith("Ejava.lang.IllegalStateException: Broken\\n");
+    assertThat(replies.get(1)).isEqualTo("X1");
+  }
+
+  @Test
+  public void testOtherWorkingDirectory_clientRunsCommand() throws Exception {
+    assertThat(request(secret, temp.getRoot().toString(), ImmutableList.of("help"),
+        ImmutableList.of())).containsExactly("R");
+  }
+
+  @Test
+  public void testWrongSecret_isIgnored() throws Exception {
+    assertThat(request("bogus", workingDir.toString(), ImmutableList.of("help"),
+        ImmutableList.of())).isEmpty();
+    assertThat(request("help")).contains("X0");
+  }
+
+  @Test
+  public void testSilentClient_doesNotBlockOthers() throws Exception {
+    try (Socket silent = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      assertThat(request("help")).containsExactly("ORan help\\n", "X0").inOrder();
+      // The daemon gave up on the silent client without replying.
+      assertThat(silent.getInputStream().read()).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  public void testStop() throws Exception {
+    assertThat(request("stop-daemon")).containsExactly("OStopping the daemon.\\n", "X0");
+
+    serverThread.join(TimeUnit.SECONDS.toMillis(10));
+    assertThat(serverThread.isAlive()).isFalse();
+    assertThat(Files.exists(portFile)).isFalse();
+  }
+
+  @Test
+  public void testEscaping() {
+    String text = "C:\\Accounts\nnext line\\n";
+    assertThat(AccountsDaemon.escape(text)).isEqualTo("C:\\\\Accounts\\nnext line\\\\n");
+    assertThat(AccountsDaemon.unescape(AccountsDaemon.escape(text))).isEqualTo(text);
+  }
+}
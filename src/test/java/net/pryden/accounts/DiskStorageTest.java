@@ -2,9 +2,13 @@ package net.pryden.accounts;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.io.Files;
 import net.pryden.accounts.model.AccountsMonth;
 import net.pryden.accounts.model.Config;
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.Transaction;
+import net.pryden.accounts.model.TransactionCategory;
 import net.pryden.accounts.testing.TestHelper;
 import org.junit.Before;
 import org.junit.Rule;
@@ -16,10 +20,15 @@ import org.junit.runners.JUnit4;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
 
 @RunWith(JUnit4.class)
 public final class DiskStorageTest {
+  private static final YearMonth DATE = YearMonth.of(2015, 10);
+
   @Rule public final TemporaryFolder temp = new TemporaryFolder();
 
   private TestHelper helper = TestHelper.create();
@@ -69,4 +78,162 @@ public final class DiskStorageTest {
     AccountsMonth roundTrip = storage.readMonth(date);
     assertThat(roundTrip).isEqualTo(month);
   }
+
+  @Test
+  public void testReadMonths() {
+    YearMonth from = YearMonth.of(2014, 11);
+    YearMonth to = YearMonth.of(2015, 10);
+    ImmutableList.Builder<AccountsMonth> expected = ImmutableList.builder();
+    for (YearMonth date = from; !date.isAfter(to); date = date.plusMonths(1)) {
+      AccountsMonth month = helper.newEmptyMonth(date).toBuilder()
+          .setOpeningBalance(Money.parse(String.valueOf(date.getMonthValue())))
+          .build();
+      storage.writeMonth(month);
+      expected.add(month);
+    }
+
+    assertThat(storage.readMonths(from, to)).containsExactlyElementsIn(expected.build()).inOrder();
+    assertThat(storage.readMonths(to, to)).containsExactly(storage.readMonth(to));
+  }
+
+  @Test(expected = Marshaller.MarshallingException.class)
+  public void testReadMonths_missingMonth() {
+    storage.writeMonth(helper.newEmptyMonth(YearMonth.of(2015, 9)));
+    storage.readMonths(YearMonth.of(2015, 8), YearMonth.of(2015, 9));
+  }
+
+  private static Transaction newReceipt(int day, String amount) {
+    return Transaction.builder()
+        .setDate(day)
+        .setDescription("Contributions - Worldwide Work")
+        .setCategory(TransactionCategory.WORLDWIDE_WORK)
+        .setReceiptsIn(Money.parse(amount))
+        .build();
+  }
+
+  private File journalFile() {
+    return new File(new File(storageFolder, DATE.toString()), MonthJournal.JOURNAL_FILE_NAME);
+  }
+
+  private File yamlFile() {
+    return new File(new File(storageFolder, DATE.toString()), DiskStorage.ACCOUNTS_FILE_NAME);
+  }
+
+  private DiskStorage newStorage() {
+    return new DiskStorage(homeFolder.getPath(), config, new Marshaller(helper.console()));
+  }
+
+  @Test
+  public void testWriteMonth_appendsNewTransactionsToJournal() throws IOException {
+    storage.writeMonth(helper.newEmptyMonth(DATE));
+    byte[] yaml = Files.toByteArray(yamlFile());
+
+    AccountsMonth month = storage.readMonth(DATE).withNewTransactions(newReceipt(3, "12.34"));
+    storage.writeMonth(month);
+    month = month.withNewTransactions(newReceipt(1, "5.00"), newReceipt(9, "6.00"));
+    storage.writeMonth(month);
+
+    assertThat(Files.toByteArray(yamlFile())).isEqualTo(yaml);
+    assertThat(Files.readLines(journalFile(), StandardCharsets.UTF_8)).hasSize(3);
+    assertThat(newStorage().readMonth(DATE)).isEqualTo(month);
+  }
+
+  @Test
+  public void testForEachMonth_doesNotRememberMonths() {
+    storage.writeMonth(helper.newEmptyMonth(DATE.minusMonths(1)));
+    storage.writeMonth(helper.newEmptyMonth(DATE));
+    DiskStorage reader = newStorage();
+    List<AccountsMonth> months = new ArrayList<>();
+
+    reader.forEachMonth(DATE.minusMonths(1), DATE, months::add);
+
+    assertThat(months).containsExactly(
+        helper.newEmptyMonth(DATE.minusMonths(1)), helper.newEmptyMonth(DATE)).inOrder();
+    // A month that was not remembered is written in full rather than through its journal.
+    reader.writeMonth(months.get(1).withNewTransactions(newReceipt(3, "12.34")));
+    assertThat(journalFile().exists()).isFalse();
+  }
+
+  @Test
+  public void testReadMonth_remembersOnlyRecentMonths() {
+    for (int i = 0; i <= DiskStorage.MAX_KNOWN_MONTHS; i++) {
+      storage.writeMonth(helper.newEmptyMonth(DATE.plusMonths(i)));
+    }
+    DiskStorage reader = newStorage();
+    AccountsMonth month = reader.readMonth(DATE);
+    for (int i = 1; i <= DiskStorage.MAX_KNOWN_MONTHS; i++) {
+      reader.readMonth(DATE.plusMonths(i));
+    }
+
+    // The first month has been forgotten, so it is written in full rather than through its journal.
+    reader.writeMonth(month.withNewTransactions(newReceipt(3, "12.34")));
+    assertThat(journalFile().exists()).isFalse();
+  }
+
+  @Test
+  public void testWriteMonth_compactsJournal() throws IOException {
+    storage.writeMonth(helper.newEmptyMonth(DATE));
+    AccountsMonth month = storage.readMonth(DATE);
+    for (int i = 0; i <= DiskStorage.MAX_JOURNAL_RECORDS; i++) {
+      month = month.withNewTransactions(newReceipt(1 + i % 28, "1.00"));
+      storage.writeMonth(month);
+    }
+
+    assertThat(journalFile().exists()).isFalse();
+    assertThat(newStorage().readMonth(DATE)).isEqualTo(month);
+  }
+
+  @Test
+  public void testWriteMonth_otherChangesRewriteYaml() {
+    storage.writeMonth(helper.newEmptyMonth(DATE));
+    AccountsMonth month = storage.readMonth(DATE).withNewTransactions(newReceipt(3, "12.34"));
+    storage.writeMonth(month);
+    assertThat(journalFile().exists()).isTrue();
+
+    month = month.toBuilder().setIsClosed(true).build();
+    storage.writeMonth(month);
+
+    assertThat(journalFile().exists()).isFalse();
+    assertThat(newStorage().readMonth(DATE)).isEqualTo(month);
+  }
+
+  @Test
+  public void testReadMonth_ignoresTornRecord() throws IOException {
+    storage.writeMonth(helper.newEmptyMonth(DATE));
+    AccountsMonth month = storage.readMonth(DATE).withNewTransactions(newReceipt(3, "12.34"));
+    storage.writeMonth(month);
+    Files.append("[{\"date\":4,\"descr", journalFile(), StandardCharsets.UTF_8);
+
+    DiskStorage recovered = newStorage();
+    assertThat(recovered.readMonth(DATE)).isEqualTo(month);
+
+    month = month.withNewTransactions(newReceipt(5, "1.00"));
+    recovered.writeMonth(month);
+    assertThat(newStorage().readMonth(DATE)).isEqualTo(month);
+  }
+
+  @Test
+  public void testReadMonth_recoversInterruptedCompaction() throws IOException {
+    storage.writeMonth(helper.newEmptyMonth(DATE));
+    AccountsMonth month = storage.readMonth(DATE).withNewTransactions(newReceipt(3, "12.34"));
+    storage.writeMonth(month);
+
+    // Simulate a crash after the journal was moved aside but before the YAML was replaced.
+    File compacting = new File(journalFile().getParentFile(), MonthJournal.COMPACTING_FILE_NAME);
+    java.nio.file.Files.move(
+        journalFile().toPath(), compacting.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+    assertThat(newStorage().readMonth(DATE)).isEqualTo(month);
+    assertThat(compacting.exists()).isFalse();
+    assertThat(journalFile().exists()).isTrue();
+  }
+
+  @Test(expected = Marshaller.MarshallingException.class)
+  public void testReadMonth_yamlEditedWhileJournalPending() throws IOException {
+    storage.writeMonth(helper.newEmptyMonth(DATE));
+    storage.writeMonth(storage.readMonth(DATE).withNewTransactions(newReceipt(3, "12.34")));
+    Files.append("# edited by hand\n", yamlFile(), StandardCharsets.UTF_8);
+
+    newStorage().readMonth(DATE);
+  }
 }
@@ -0,0 +1,219 @@
+package net.pryden.accounts;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.Config;
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.Transaction;
+import net.pryden.accounts.model.TransactionCategory;
+import net.pryden.accounts.testing.TestHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public final class IndexedStorageTest {
+  private static final YearMonth DATE = YearMonth.of(2015, 10);
+
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private TestHelper helper = TestHelper.create();
+  private final DeferredWrites deferredWrites = new DeferredWrites();
+  private DiskStorage disk;
+
+  @Before
+  public void setUp() throws IOException {
+    File homeFolder = temp.newFolder("home");
+    File storageFolder = temp.newFolder("storage");
+    Config config = helper.newFakeConfig().toBuilder()
+        .setRootDir(storageFolder.getPath())
+        .setUseMonthIndex(true)
+        .build();
+    disk = new DiskStorage(homeFolder.getPath(), config, new Marshaller(helper.console()));
+  }
+
+  private IndexedStorage newStorage() {
+    return new IndexedStorage(disk, deferredWrites);
+  }
+
+  private Path indexPath() {
+    return disk.rootDir().resolve(IndexedStorage.INDEX_FILE_NAME);
+  }
+
+  private AccountsMonth newMonth() {
+    return helper.newEmptyMonth(DATE).withNewTransactions(
+        Transaction.builder()
+            .setDate(3)
+            .setDescription("Contributions - Worldwide Work")
+            .setCategory(TransactionCategory.WORLDWIDE_WORK)
+            .setReceiptsIn(Money.parse("12.34"))
+            .build());
+  }
+
+  @Test
+  public void testReadMonth_isCachedUntilFileChanges() throws IOException {
+    IndexedStorage storage = newStorage();
+    storage.writeMonth(newMonth());
+
+    AccountsMonth first = storage.readMonth(DATE);
+    assertThat(storage.readMonth(DATE)).isSameAs(first);
+
+    disk.writeMonth(first.toBuilder().setIsClosed(true).build());
+    Files.setLastModifiedTime(
+        disk.monthPath(DATE), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+    AccountsMonth second = storage.readMonth(DATE);
+    assertThat(second.isClosed()).isTrue();
+  }
+
+  @Test
+  public void testReadTotals_answeredFromPersistedIndex() throws IOException {
+    AccountsMonth month = newMonth();
+    disk.writeMonth(month);
+    // Index a file that was last modified long enough ago for its stamp to be trusted.
+    Path monthPath = disk.monthPath(DATE);
+    FileTime modified = FileTime.fromMillis(System.currentTimeMillis() - 10_000);
+    Files.setLastModifiedTime(monthPath, modified);
+    newStorage().readMonth(DATE);
+    deferredWrites.flush();
+    assertThat(Files.exists(indexPath())).isTrue();
+
+    // Scribble over the month file without changing its size or modification time. A fresh
+    // instance should still answer from the index without trying to parse the file.
+    byte[] garbage = new byte[(int) Files.size(monthPath)];
+    Arrays.fill(garbage, (byte) '?');
+    Files.write(monthPath, garbage);
+    Files.setLastModifiedTime(monthPath, modified);
+
+    assertThat(newStorage().readTotals(DATE)).isEqualTo(month.computeTotals());
+  }
+
+  @Test
+  public void testReadTotals_touchedFileWithSameContents() throws IOException {
+    AccountsMonth month = newMonth();
+    newStorage().writeMonth(month);
+    deferredWrites.flush();
+    Path monthPath = disk.monthPath(DATE);
+    Files.setLastModifiedTime(monthPath, FileTime.fromMillis(0));
+
+    assertThat(newStorage().readTotals(DATE)).isEqualTo(month.computeTotals());
+  }
+
+  @Test
+  public void testIndexChecksums_matchFilesWithoutReadingThemAgain() throws IOException {
+    IndexedStorage storage = newStorage();
+    storage.writeMonth(newMonth());
+    deferredWrites.flush();
+    assertThat(MonthIndex.load(indexPath()).get(DATE).checksum())
+        .isEqualTo(disk.checksumMonth(DATE));
+
+    // Adding a transaction goes through the journal, which the checksum has to cover too.
+    storage.writeMonth(storage.readMonth(DATE).withNewTransactions(newMonth().transactions()));
+    assertThat(Files.exists(new MonthJournal(disk.monthDir(DATE)).path())).isTrue();
+    deferredWrites.flush();
+    assertThat(MonthIndex.load(indexPath()).get(DATE).checksum())
+        .isEqualTo(disk.checksumMonth(DATE));
+
+    Files.delete(indexPath());
+    newStorage().readMonth(DATE);
+    deferredWrites.flush();
+    assertThat(MonthIndex.load(indexPath()).get(DATE).checksum())
+        .isEqualTo(disk.checksumMonth(DATE));
+  }
+
+  @Test
+  public void testReadMonth_savesIndexOnlyWhenFlushed() throws IOException {
+    disk.writeMonth(newMonth());
+    IndexedStorage storage = newStorage();
+
+    storage.readMonth(DATE);
+    assertThat(Files.exists(indexPath())).isFalse();
+
+    deferredWrites.flush();
+    assertThat(MonthIndex.load(indexPath()).get(DATE)).isNotNull();
+  }
+
+  @Test
+  public void testSameSizeEditWithinStampResolution_isNoticed() throws IOException {
+    IndexedStorage storage = newStorage();
+    storage.writeMonth(newMonth());
+    deferredWrites.flush();
+    storage.readMonth(DATE);
+
+    // Edit the file without changing its size, as quickly as a coarse modification time would
+    // hide the change.
+    Path monthPath = disk.monthPath(DATE);
+    FileTime modified = Files.getLastModifiedTime(monthPath);
+    String yaml = new String(Files.readAllBytes(monthPath), StandardCharsets.UTF_8);
+    assertThat(yaml).contains("12.34");
+    Files.write(monthPath, yaml.replace("12.34", "12.43").getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(monthPath, modified);
+
+    Money edited = Money.parse("12.43");
+    assertThat(storage.readMonth(DATE).computeTotals().totalReceiptsIn()).isEqualTo(edited);
+    assertThat(newStorage().readTotals(DATE).totalReceiptsIn()).isEqualTo(edited);
+  }
+
+  @Test
+  public void testReadTotals_reindexesChangedFile() throws IOException {
+    newStorage().writeMonth(newMonth());
+    deferredWrites.flush();
+    AccountsMonth changed = helper.newEmptyMonth(DATE).toBuilder()
+        .setOpeningBalance(Money.parse("10.00"))
+        .build();
+    Files.write(disk.monthPath(DATE), (""
+        + "date: 2015-10\n"
+        + "opening-balance: 10.00\n"
+        + "receipts-carried-forward: 0.00\n").getBytes(StandardCharsets.UTF_8));
+
+    assertThat(newStorage().readTotals(DATE))
+        .isEqualTo(changed.computeTotals());
+  }
+
+  @Test
+  public void testReadMonths_mixesCachedAndFreshMonths() {
+    IndexedStorage storage = newStorage();
+    AccountsMonth previous = helper.newEmptyMonth(DATE.minusMonths(1));
+    disk.writeMonth(previous);
+    storage.writeMonth(newMonth());
+    AccountsMonth cached = storage.readMonth(DATE);
+
+    assertThat(storage.readMonths(DATE.minusMonths(1), DATE))
+        .containsExactly(previous, cached)
+        .inOrder();
+    assertThat(storage.readMonths(DATE, DATE).get(0)).isSameAs(cached);
+  }
+
+  @Test
+  public void testReadMonths_monthFiledUnderAnotherDate() throws IOException {
+    IndexedStorage storage = newStorage();
+    storage.writeMonth(newMonth());
+    // A copy of October's file, saved in September's folder by mistake.
+    YearMonth misfiled = DATE.minusMonths(1);
+    Files.createDirectories(disk.monthDir(misfiled));
+    Files.write(disk.monthPath(misfiled), (""
+        + "date: 2015-10\n"
+        + "opening-balance: 10.00\n"
+        + "receipts-carried-forward: 0.00\n").getBytes(StandardCharsets.UTF_8));
+
+    ImmutableList<AccountsMonth> months = storage.readMonths(misfiled, DATE);
+    assertThat(months).hasSize(2);
+    assertThat(months.get(0).openingBalance()).isEqualTo(Money.parse("10.00"));
+    assertThat(months.get(1)).isEqualTo(storage.readMonth(DATE));
+    assertThat(storage.readMonth(misfiled)).isSameAs(months.get(0));
+  }
+}
@@ -2,6 +2,8 @@ package net.pryden.accounts;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.google.common.collect.ImmutableList;
 import net.pryden.accounts.model.AccountsMonth;
 import net.pryden.accounts.model.Config;
@@ -20,6 +22,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.YearMonth;
 
 @RunWith(JUnit4.class)
@@ -111,4 +114,89 @@ public final class MarshallerTest {
     AccountsMonth month = marshaller.read(path, AccountsMonth.class);
     assertThat(month).isEqualTo(SAMPLE_MONTH);
   }
+
+  @Test
+  public void testAccountsMonthWithSnapshot_roundTrip() throws Exception {
+    Path snapshotPath = temp.getRoot().toPath().resolve("temp.snapshot");
+
+    marshaller.writeMonth(path, snapshotPath, SAMPLE_MONTH);
+
+    assertThat(Files.exists(snapshotPath)).isTrue();
+    assertThat(marshaller.readMonth(path, snapshotPath)).isEqualTo(SAMPLE_MONTH);
+    assertThat(marshaller.read(path, AccountsMonth.class)).isEqualTo(SAMPLE_MONTH);
+  }
+
+  @Test
+  public void testAccountsMonthWithSnapshot_prefersMatchingSnapshot() throws Exception {
+    Path snapshotPath = temp.getRoot().toPath().resolve("temp.snapshot");
+    AccountsMonth otherMonth = SAMPLE_MONTH.toBuilder().setIsClosed(true).build();
+    Path otherPath = temp.newFile("other.yaml").toPath();
+    marshaller.writeMonth(otherPath, snapshotPath, otherMonth);
+
+    // Rewriting the YAML with the same bytes keeps the other month's snapshot valid...
+    Files.copy(otherPath, path, StandardCopyOption.REPLACE_EXISTING);
+    assertThat(marshaller.readMonth(path, snapshotPath)).isEqualTo(otherMonth);
+
+    // ... but once the YAML changes the stale snapshot is ignored and replaced.
+    Files.write(path, SAMPLE_MONTH_STRING.getBytes(StandardCharsets.UTF_8));
+    assertThat(marshaller.readMonth(path, snapshotPath)).isEqualTo(SAMPLE_MONTH);
+    assertThat(marshaller.readMonth(path, snapshotPath)).isEqualTo(SAMPLE_MONTH);
+  }
+
+  @Test
+  public void testAccountsMonthWithSnapshot_damagedSnapshotIsIgnored() throws Exception {
+    Path snapshotPath = temp.getRoot().toPath().resolve("temp.snapshot");
+    Files.write(path, SAMPLE_MONTH_STRING.getBytes(StandardCharsets.UTF_8));
+    Files.write(snapshotPath, new byte[] {1, 2, 3});
+
+    assertThat(marshaller.readMonth(path, snapshotPath)).isEqualTo(SAMPLE_MONTH);
+  }
+
+  @Test
+  public void testMappedReads() throws Exception {
+    Marshaller mapping = new Marshaller(new FakeConsole(), 0);
+    Path snapshotPath = temp.getRoot().toPath().resolve("temp.snapshot");
+    Files.write(path, SAMPLE_MONTH_STRING.getBytes(StandardCharsets.UTF_8));
+
+    assertThat(mapping.read(path, AccountsMonth.class)).isEqualTo(SAMPLE_MONTH);
+    assertThat(mapping.readMonth(path, snapshotPath)).isEqualTo(SAMPLE_MONTH);
+    assertThat(mapping.readCount()).isEqualTo(2);
+    assertThat(mapping.mappedReadCount()).isEqualTo(2);
+    assertThat(mapping.bytesMapped()).isEqualTo(2 * Files.size(path));
+  }
+
+  @Test
+  public void testSmallFilesAreNotMapped() throws Exception {
+    Marshaller notMapping = new Marshaller(new FakeConsole(), Long.MAX_VALUE);
+    Files.write(path, SAMPLE_CONFIG_STRING.getBytes(StandardCharsets.UTF_8));
+
+    assertThat(notMapping.read(path, Config.class)).isEqualTo(SAMPLE_CONFIG);
+    assertThat(notMapping.readCount()).isEqualTo(1);
+    assertThat(notMapping.mappedReadCount()).isEqualTo(0);
+    assertThat(notMapping.bytesMapped()).isEqualTo(0);
+  }
+
+  @Test
+  public void testWarmUp_createsWritersForModelValues() {
+    Marshaller.warmUp();
+
+    assertThat(Marshaller.hasWriterFor(SAMPLE_MONTH.getClass())).isTrue();
+    assertThat(Marshaller.hasWriterFor(SAMPLE_MONTH.computeTotals().getClass())).isTrue();
+    assertThat(Marshaller.hasWriterFor(SAMPLE_CONFIG.getClass())).isTrue();
+  }
+
+  @Test
+  public void testSharedWritersMatchPlainMapper() throws Exception {
+    Marshaller.warmUp();
+    ObjectMapper plain = new ObjectMapper(new YAMLFactory());
+    Path configPath = temp.newFile("config.yaml").toPath();
+
+    marshaller.write(path, SAMPLE_MONTH);
+    marshaller.write(configPath, SAMPLE_CONFIG);
+
+    assertThat(new String(Files.readAllBytes(path), StandardCharsets.UTF_8))
+        .isEqualTo(plain.writeValueAsString(SAMPLE_MONTH));
+    assertThat(new String(Files.readAllBytes(configPath), StandardCharsets.UTF_8))
+        .isEqualTo(plain.writeValueAsString(SAMPLE_CONFIG));
+  }
 }
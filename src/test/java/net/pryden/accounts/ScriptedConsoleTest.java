@@ -0,0 +1,90 @@
+package net.pryden.accounts;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.testing.FakeConsole;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public final class ScriptedConsoleTest {
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private final FakeConsole output = new FakeConsole();
+
+  private ScriptedConsole load(String... lines) throws Exception {
+    Path path = temp.getRoot().toPath().resolve("answers.yaml");
+    Files.write(path, Arrays.asList(lines), UTF_8);
+    return ScriptedConsole.load(output, path);
+  }
+
+  @Test
+  public void testAnswersByExactPromptThenLongestPrefix() throws Exception {
+    ScriptedConsole console = load(
+        "\"Statement closing date [YYYY-MM-DD]:\": \"2015-10-31\"",
+        "\"Closing balance:\": 1234.56",
+        "\"Confirm\": n",
+        "\"Confirm closing month\": yes");
+
+    assertThat(console.readDate("Statement closing date [YYYY-MM-DD]: "))
+        .isEqualTo(LocalDate.of(2015, 10, 31));
+    assertThat(console.readMoney("Closing balance: ")).isEqualTo(Money.parse("1234.56"));
+    assertThat(console.readConfirmation("Confirm closing month %s", "2015-10")).isTrue();
+    assertThat(console.readConfirmation("Confirm writing")).isFalse();
+    assertThat(output.getOutput())
+        .contains("Confirm closing month 2015-10 [Y/n] y\nConfirm writing [Y/n] n\n");
+  }
+
+  @Test
+  public void testListAnswersAreGivenInOrder() throws Exception {
+    ScriptedConsole console = load(
+        "\"Does the statement contain this transaction?\": [Y, N]",
+        "\"Amount:\": \"5.00\"");
+
+    assertThat(console.readConfirmation("Does the statement contain this transaction?")).isTrue();
+    assertThat(console.readConfirmation("Does the statement contain this transaction?"))
+        .isFalse();
+    assertThat(console.readMoney("Amount: ")).isEqualTo(Money.parse("5.00"));
+    assertThat(console.readMoney("Amount: ")).isEqualTo(Money.parse("5.00"));
+    try {
+      console.readConfirmation("Does the statement contain this transaction?");
+      throw new AssertionError("Expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+      assertThat(expected.getMessage()).contains("only has 2 answers");
+    }
+  }
+
+  @Test
+  public void testMissingAnswer_throws() throws Exception {
+    ScriptedConsole console = load("\"Amount:\": \"5.00\"");
+
+    try {
+      console.readInt("Date (day of the month): ");
+      throw new AssertionError("Expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+      assertThat(expected.getMessage()).contains("Date (day of the month):");
+    }
+  }
+
+  @Test
+  public void testInvalidAnswer_throwsInsteadOfAskingAgain() throws Exception {
+    ScriptedConsole console = load("\"Date (day of the month):\": soon");
+
+    try {
+      console.readInt("Date (day of the month): ");
+      throw new AssertionError("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected.getMessage()).contains("Unable to parse \"soon\" as an integer");
+    }
+  }
+}
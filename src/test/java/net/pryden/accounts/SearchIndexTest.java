@@ -0,0 +1,188 @@
+package net.pryden.accounts;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.BranchResolutionType;
+import net.pryden.accounts.model.Config;
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.SubTransaction;
+import net.pryden.accounts.model.Transaction;
+import net.pryden.accounts.model.TransactionCategory;
+import net.pryden.accounts.testing.TestHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(JUnit4.class)
+public final class SearchIndexTest {
+  private static final YearMonth SEPTEMBER = YearMonth.of(2015, 9);
+  private static final YearMonth OCTOBER = YearMonth.of(2015, 10);
+
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private TestHelper helper = TestHelper.create();
+  private Config config;
+  private File homeFolder;
+  private DiskStorage disk;
+
+  @Before
+  public void setUp() throws IOException {
+    homeFolder = temp.newFolder("home");
+    File storageFolder = temp.newFolder("storage");
+    config = helper.newFakeConfig().toBuilder()
+        .setRootDir(storageFolder.getPath())
+        .build();
+    disk = newDiskStorage();
+    disk.writeMonth(helper.newEmptyMonth(SEPTEMBER).withNewTransactions(
+        expense(3, "Kingdom Hall cleaning supplies", "12.50"),
+        expense(20, "Electricity bill", "80.00")));
+    disk.writeMonth(helper.newEmptyMonth(OCTOBER).withNewTransactions(
+        expense(5, "Cleaning of carpets", "45.00"),
+        Transaction.builder()
+            .setDate(31)
+            .setDescription("jw.org Transfer")
+            .setCategory(TransactionCategory.OTHER)
+            .setCheckingOut(Money.parse("30.00"))
+            .setSubTransactions(ImmutableList.of(
+                SubTransaction.builder()
+                    .setDescription("Kingdom Hall Construction")
+                    .setCategory(TransactionCategory.LOCAL_CONGREGATION_EXPENSES)
+                    .setType(BranchResolutionType.KINGDOM_HALL_AND_ASSEMBLY_HALL_WORLDWIDE)
+                    .setAmount(Money.parse("30.00"))
+                    .build()))
+            .build()));
+  }
+
+  private DiskStorage newDiskStorage() {
+    return new DiskStorage(homeFolder.getPath(), config, new Marshaller(helper.console()));
+  }
+
+  private static Transaction expense(int day, String description, String amount) {
+    return Transaction.builder()
+        .setDate(day)
+        .setDescription(description)
+        .setCategory(TransactionCategory.EXPENSE)
+        .setCheckingOut(Money.parse(amount))
+        .build();
+  }
+
+  private static List<String> descriptions(List<SearchHit> hits) {
+    return hits.stream().map(SearchHit::description).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testSearch_matchesEveryWordAndPrefixes() {
+    SearchIndex index = disk.searchIndex();
+
+    assertThat(descriptions(index.search("clean", SEPTEMBER, OCTOBER)))
+        .containsExactly("Kingdom Hall cleaning supplies", "Cleaning of carpets").inOrder();
+    assertThat(descriptions(index.search("KINGDOM hall", SEPTEMBER, OCTOBER)))
+        .containsExactly(
+            "Kingdom Hall cleaning supplies", "jw.org Transfer: Kingdom Hall Construction")
+        .inOrder();
+    assertThat(index.search("hall electricity", SEPTEMBER, OCTOBER)).isEmpty();
+    assertThat(descriptions(index.search("clean", OCTOBER, OCTOBER)))
+        .containsExactly("Cleaning of carpets");
+  }
+
+  @Test
+  public void testSearch_returnsDetailsOfHits() {
+    ImmutableList<SearchHit> hits = disk.searchIndex().search("construction", SEPTEMBER, OCTOBER);
+
+    assertThat(hits).containsExactly(SearchHit.create(
+        LocalDate.of(2015, 10, 31),
+        "jw.org Transfer: Kingdom Hall Construction",
+        TransactionCategory.LOCAL_CONGREGATION_EXPENSES,
+        Money.parse("30.00")));
+  }
+
+  @Test
+  public void testSearch_usesSavedIndexWithoutReadingMonths() {
+    SearchIndex index = newDiskStorage().searchIndex();
+
+    assertThat(index.search("carpets", SEPTEMBER, OCTOBER)).hasSize(1);
+    assertThat(index.indexedMonthCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testSearch_findsTransactionsAddedThroughJournal() {
+    AccountsMonth october = disk.readMonth(OCTOBER);
+    disk.writeMonth(october.withNewTransactions(expense(12, "Carpet shampoo", "9.99")));
+    assertThat(Files.exists(new MonthJournal(disk.monthDir(OCTOBER)).path())).isTrue();
+
+    SearchIndex index = newDiskStorage().searchIndex();
+    assertThat(descriptions(index.search("carpet", SEPTEMBER, OCTOBER)))
+        .containsExactly("Cleaning of carpets", "Carpet shampoo").inOrder();
+    assertThat(index.indexedMonthCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testSearch_reindexesMonthEditedByHand() throws IOException {
+    Path monthPath = disk.monthPath(SEPTEMBER);
+    String yaml = new String(Files.readAllBytes(monthPath), UTF_8);
+    Files.write(monthPath, yaml.replace("Electricity bill", "Water bill").getBytes(UTF_8));
+    Files.setLastModifiedTime(
+        monthPath, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+
+    SearchIndex index = newDiskStorage().searchIndex();
+    assertThat(descriptions(index.search("bill", SEPTEMBER, OCTOBER)))
+        .containsExactly("Water bill");
+    assertThat(index.indexedMonthCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testSearch_rebuildsDamagedIndex() throws IOException {
+    Path indexPath = disk.rootDir().resolve(SearchIndex.INDEX_FILE_NAME);
+    Files.write(indexPath, new byte[] {0, 0, 1}, StandardOpenOption.APPEND);
+
+    SearchIndex index = newDiskStorage().searchIndex();
+    assertThat(index.search("carpets", SEPTEMBER, OCTOBER)).hasSize(1);
+    assertThat(index.search("bill", SEPTEMBER, OCTOBER)).hasSize(1);
+    assertThat(index.indexedMonthCount()).isEqualTo(0);
+
+    Files.write(indexPath, new byte[] {1, 2, 3});
+    index = newDiskStorage().searchIndex();
+    assertThat(index.search("carpets", SEPTEMBER, OCTOBER)).hasSize(1);
+    assertThat(index.indexedMonthCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testWriteMonth_keepsLogSizeBoundedWithoutSearching() throws IOException {
+    Path indexPath = disk.rootDir().resolve(SearchIndex.INDEX_FILE_NAME);
+    AccountsMonth october = disk.readMonth(OCTOBER);
+    long largest = 0;
+    for (int i = 0; i < 500; i++) {
+      disk.writeMonth(october.toBuilder().setIsClosed(i % 2 == 0).build());
+      largest = Math.max(largest, Files.size(indexPath));
+    }
+    assertThat(largest).isLessThan(SearchIndex.MAX_EXTRA_LOG_BYTES + 8 * 1024);
+
+    SearchIndex index = newDiskStorage().searchIndex();
+    assertThat(descriptions(index.search("carpets", SEPTEMBER, OCTOBER)))
+        .containsExactly("Cleaning of carpets");
+    assertThat(index.indexedMonthCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testTokenize() {
+    assertThat(SearchIndex.tokenize("jw.org Transfer - Kingdom Hall #2"))
+        .containsExactly("jw", "org", "transfer", "kingdom", "hall", "2").inOrder();
+  }
+}
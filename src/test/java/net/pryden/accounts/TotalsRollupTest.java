@@ -0,0 +1,136 @@
+package net.pryden.accounts;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.ComputedTotals;
+import net.pryden.accounts.model.Config;
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.Transaction;
+import net.pryden.accounts.model.TransactionCategory;
+import net.pryden.accounts.testing.TestHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Month;
+import java.time.YearMonth;
+
+@RunWith(JUnit4.class)
+public final class TotalsRollupTest {
+  private static final YearMonth AUGUST = YearMonth.of(2015, 8);
+  private static final YearMonth SEPTEMBER = YearMonth.of(2015, 9);
+  private static final YearMonth OCTOBER = YearMonth.of(2015, 10);
+
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private TestHelper helper = TestHelper.create();
+  private DiskStorage disk;
+  private long nextModifiedTime = System.currentTimeMillis();
+
+  @Before
+  public void setUp() throws IOException {
+    File homeFolder = temp.newFolder("home");
+    File storageFolder = temp.newFolder("storage");
+    Config config = helper.newFakeConfig().toBuilder()
+        .setRootDir(storageFolder.getPath())
+        .build();
+    disk = new DiskStorage(homeFolder.getPath(), config, new Marshaller(helper.console()));
+    writeMonth(AUGUST, "10.00", "100.00");
+    writeMonth(SEPTEMBER, "20.00", "110.00");
+    writeMonth(OCTOBER, "30.00", "130.00");
+  }
+
+  /** Writes a month with a worldwide receipt that is deposited into the checking account. */
+  private void writeMonth(YearMonth date, String receipts, String openingBalance)
+      throws IOException {
+    Money amount = Money.parse(receipts);
+    AccountsMonth month = helper.newEmptyMonth(date).toBuilder()
+        .setOpeningBalance(Money.parse(openingBalance))
+        .build()
+        .withNewTransactions(
+            Transaction.builder()
+                .setDate(1)
+                .setDescription("Contributions - Worldwide Work")
+                .setCategory(TransactionCategory.WORLDWIDE_WORK)
+                .setReceiptsIn(amount)
+                .build(),
+            Transaction.builder()
+                .setDate(2)
+                .setDescription("Deposit to checking account")
+                .setCategory(TransactionCategory.DEPOSIT)
+                .setReceiptsOut(amount)
+                .setCheckingIn(amount)
+                .build());
+    disk.writeMonth(month);
+    // Make sure that rewriting a month is noticed even within the file system's time resolution.
+    nextModifiedTime += 10_000;
+    Files.setLastModifiedTime(disk.monthPath(date), FileTime.fromMillis(nextModifiedTime));
+  }
+
+  @Test
+  public void testTotalsBetween_sumsColumnsAndKeepsLastBalances() {
+    ComputedTotals totals = new TotalsRollup(disk, disk).totalsBetween(AUGUST, OCTOBER);
+
+    assertThat(totals.totalWorldwideReceipts()).isEqualTo(Money.parse("60.00"));
+    assertThat(totals.totalCheckingIn()).isEqualTo(Money.parse("60.00"));
+    assertThat(totals.checkingBalance()).isEqualTo(Money.parse("160.00"));
+    assertThat(totals).isEqualTo(
+        disk.readMonth(AUGUST).computeTotals()
+            .followedBy(disk.readMonth(SEPTEMBER).computeTotals())
+            .followedBy(disk.readMonth(OCTOBER).computeTotals()));
+  }
+
+  @Test
+  public void testTotalsBetween_readsEachMonthOnce() {
+    TotalsRollup rollup = new TotalsRollup(disk, disk);
+    rollup.totalsBetween(AUGUST, OCTOBER);
+    assertThat(rollup.computedMonthCount()).isEqualTo(3);
+
+    ComputedTotals totals = rollup.totalsBetween(SEPTEMBER, OCTOBER);
+    assertThat(rollup.computedMonthCount()).isEqualTo(3);
+    assertThat(totals.totalWorldwideReceipts()).isEqualTo(Money.parse("50.00"));
+
+    // A new instance picks up where the last one left off.
+    TotalsRollup reloaded = new TotalsRollup(disk, disk);
+    assertThat(reloaded.totalsBetween(AUGUST, OCTOBER).totalWorldwideReceipts())
+        .isEqualTo(Money.parse("60.00"));
+    assertThat(reloaded.computedMonthCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testTotalsBetween_recomputesChangedMonth() throws IOException {
+    TotalsRollup rollup = new TotalsRollup(disk, disk);
+    rollup.totalsBetween(AUGUST, OCTOBER);
+
+    writeMonth(AUGUST, "15.00", "100.00");
+
+    assertThat(rollup.totalsBetween(AUGUST, OCTOBER).totalWorldwideReceipts())
+        .isEqualTo(Money.parse("65.00"));
+    assertThat(rollup.computedMonthCount()).isEqualTo(4);
+    assertThat(rollup.totalsBetween(SEPTEMBER, OCTOBER).totalWorldwideReceipts())
+        .isEqualTo(Money.parse("50.00"));
+    assertThat(rollup.computedMonthCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void testYearToDate() {
+    ComputedTotals totals = new TotalsRollup(disk, disk).yearToDate(OCTOBER, Month.SEPTEMBER);
+
+    assertThat(totals.totalWorldwideReceipts()).isEqualTo(Money.parse("50.00"));
+  }
+
+  @Test
+  public void testStartOfYear() {
+    assertThat(Rollups.startOfYear(OCTOBER, Month.JANUARY)).isEqualTo(YearMonth.of(2015, 1));
+    assertThat(Rollups.startOfYear(OCTOBER, Month.SEPTEMBER)).isEqualTo(SEPTEMBER);
+    assertThat(Rollups.startOfYear(AUGUST, Month.SEPTEMBER)).isEqualTo(YearMonth.of(2014, 9));
+  }
+}
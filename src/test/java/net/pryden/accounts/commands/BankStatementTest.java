@@ -0,0 +1,57 @@
+package net.pryden.accounts.commands;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import net.pryden.accounts.model.Money;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.LocalDate;
+
+@RunWith(JUnit4.class)
+public final class BankStatementTest {
+  @Test
+  public void testParseCsv_amountColumn() throws Exception {
+    BankStatement statement = BankStatement.parseCsv(
+        "Posting Date,Amount,Memo\n"
+            + "2015-10-02,\"1,250.00\",Deposit\n"
+            + "\n"
+            + "2015-10-05,-$12.34,\"Check \"\"1001\"\"\"\n");
+
+    assertThat(statement.lines()).containsExactly(
+        BankStatement.Line.create(LocalDate.of(2015, 10, 2), Money.parse("1250.00"), "Deposit"),
+        BankStatement.Line.create(
+            LocalDate.of(2015, 10, 5), Money.parse("-12.34"), "Check \"1001\""))
+        .inOrder();
+    assertThat(statement.closingBalance().isPresent()).isFalse();
+  }
+
+  @Test
+  public void testParseCsv_debitAndCreditColumns() throws Exception {
+    BankStatement statement = BankStatement.parseCsv(
+        "Date,Description,Withdrawals,Deposits\n"
+            + "10/2/15,Deposit,,100.00\n"
+            + "10/5/2015,Check,-12.34,\n");
+
+    assertThat(statement.lines()).containsExactly(
+        BankStatement.Line.create(LocalDate.of(2015, 10, 2), Money.parse("100.00"), "Deposit"),
+        BankStatement.Line.create(LocalDate.of(2015, 10, 5), Money.parse("-12.34"), "Check"))
+        .inOrder();
+  }
+
+  @Test
+  public void testParseOfx_xml() {
+    BankStatement statement = BankStatement.parseOfx(
+        "<?xml version=\"1.0\"?><OFX><BANKTRANLIST>\n"
+            + "<STMTTRN><DTPOSTED>20151002</DTPOSTED><TRNAMT>100.00</TRNAMT>"
+            + "<MEMO>Cash &amp; checks</MEMO></STMTTRN>\n"
+            + "</BANKTRANLIST><LEDGERBAL><BALAMT>100.00</BALAMT>"
+            + "<DTASOF>20151031</DTASOF></LEDGERBAL></OFX>\n");
+
+    assertThat(statement.lines()).containsExactly(BankStatement.Line.create(
+        LocalDate.of(2015, 10, 2), Money.parse("100.00"), "Cash & checks"));
+    assertThat(statement.closingDate().get()).isEqualTo(LocalDate.of(2015, 10, 31));
+    assertThat(statement.closingBalance().get()).isEqualTo(Money.parse("100.00"));
+  }
+}
@@ -0,0 +1,148 @@
+package net.pryden.accounts.commands;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.BranchResolutionType;
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.SubTransaction;
+import net.pryden.accounts.model.Transaction;
+import net.pryden.accounts.model.TransactionCategory;
+import net.pryden.accounts.testing.TestHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public final class ExportCommandTest {
+  private static final YearMonth SEPTEMBER = YearMonth.of(2015, 9);
+  private static final YearMonth OCTOBER = YearMonth.of(2015, 10);
+
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private TestHelper helper = TestHelper.create();
+  private AccountsMonth september;
+  private AccountsMonth october;
+
+  @Before
+  public void setUp() {
+    september = helper.newEmptyMonth(SEPTEMBER).toBuilder()
+        .setOpeningBalance(Money.parse("100.00"))
+        .build()
+        .withNewTransactions(
+            Transaction.builder()
+                .setDate(1)
+                .setDescription("Contributions - Worldwide Work")
+                .setCategory(TransactionCategory.WORLDWIDE_WORK)
+                .setReceiptsIn(Money.parse("20.00"))
+                .build(),
+            Transaction.builder()
+                .setDate(3)
+                .setDescription("Cleaning supplies, \"extra strength\"")
+                .setCategory(TransactionCategory.EXPENSE)
+                .setCheckingOut(Money.parse("112.50"))
+                .build());
+    october = helper.newEmptyMonth(OCTOBER).toBuilder()
+        .setOpeningBalance(Money.parse("-12.50"))
+        .setReceiptsCarriedForward(Money.parse("20.00"))
+        .build()
+        .withNewTransactions(Transaction.builder()
+            .setDate(31)
+            .setDescription("jw.org Transfer")
+            .setCategory(TransactionCategory.OTHER)
+            .setCheckingOut(Money.parse("30.00"))
+            .setSubTransactions(ImmutableList.of(
+                SubTransaction.builder()
+                    .setDescription("Kingdom Hall Construction")
+                    .setCategory(TransactionCategory.LOCAL_CONGREGATION_EXPENSES)
+                    .setType(BranchResolutionType.KINGDOM_HALL_AND_ASSEMBLY_HALL_WORLDWIDE)
+                    .setAmount(Money.parse("30.00"))
+                    .build()))
+            .build());
+    helper.storage().writeMonth(september);
+    helper.storage().writeMonth(october);
+  }
+
+  private List<String> runExport(String fileName) throws Exception {
+    return Files.readAllLines(export(fileName), UTF_8);
+  }
+
+  private Path export(String fileName) throws Exception {
+    Path path = temp.getRoot().toPath().resolve(fileName);
+    new ExportCommand(
+        helper.console(),
+        helper.storage(),
+        OCTOBER,
+        ImmutableMap.of("file", path.toString(), "from", SEPTEMBER.toString()))
+        .run();
+    assertThat(helper.getConsoleOutput()).contains("Exported 3 transactions");
+    return path;
+  }
+
+  @Test
+  public void testExportCsv() throws Exception {
+    assertThat(runExport("history.csv")).containsExactly(
+        "date,description,summary-description,category,type,receipts-in,receipts-out,"
+            + "checking-in,checking-out,amount,receipts-balance,checking-balance",
+        "2015-09-01,Contributions - Worldwide Work,,W,,20.00,0.00,0.00,0.00,,20.00,100.00",
+        "2015-09-03,\"Cleaning supplies, \"\"extra strength\"\"\",,E,,0.00,0.00,0.00,112.50,,"
+            + "20.00,-12.50",
+        "2015-10-31,jw.org Transfer,,None,,0.00,0.00,0.00,30.00,,20.00,-42.50",
+        "2015-10-31,Kingdom Hall Construction,,C,"
+            + "KINGDOM_HALL_AND_ASSEMBLY_HALL_WORLDWIDE,,,,,30.00,,")
+        .inOrder();
+  }
+
+  @Test
+  public void testExportJsonLines() throws Exception {
+    assertThat(runExport("history.jsonl")).containsExactly(
+        "{\"date\":\"2015-09-01\",\"description\":\"Contributions - Worldwide Work\","
+            + "\"category\":\"W\",\"receipts-in\":20.00,\"receipts-out\":0.00,"
+            + "\"checking-in\":0.00,\"checking-out\":0.00,\"receipts-balance\":20.00,"
+            + "\"checking-balance\":100.00}",
+        "{\"date\":\"2015-09-03\",\"description\":\"Cleaning supplies, \\\"extra strength\\\"\","
+            + "\"category\":\"E\",\"receipts-in\":0.00,\"receipts-out\":0.00,"
+            + "\"checking-in\":0.00,\"checking-out\":112.50,\"receipts-balance\":20.00,"
+            + "\"checking-balance\":-12.50}",
+        "{\"date\":\"2015-10-31\",\"description\":\"jw.org Transfer\",\"category\":\"None\","
+            + "\"receipts-in\":0.00,\"receipts-out\":0.00,\"checking-in\":0.00,"
+            + "\"checking-out\":30.00,\"receipts-balance\":20.00,\"checking-balance\":-42.50}",
+        "{\"date\":\"2015-10-31\",\"description\":\"Kingdom Hall Construction\","
+            + "\"category\":\"C\",\"type\":\"KINGDOM_HALL_AND_ASSEMBLY_HALL_WORLDWIDE\","
+            + "\"amount\":30.00}")
+        .inOrder();
+  }
+
+  @Test
+  public void testExportThenImport_recreatesTransactions() throws Exception {
+    for (String fileName : ImmutableList.of("history.csv", "history.jsonl")) {
+      Path path = export(fileName);
+      TestHelper target = TestHelper.create();
+      target.storage().writeMonth(target.newEmptyMonth(SEPTEMBER));
+      target.storage().writeMonth(target.newEmptyMonth(OCTOBER));
+      target.console().addExpectedInput("Y" /* confirmation */);
+
+      new ImportCommand(
+          target.console(), target.storage(), ImmutableMap.of("file", path.toString()))
+          .run();
+
+      assertThat(target.storage().readMonth(SEPTEMBER).transactions())
+          .containsExactlyElementsIn(september.transactions())
+          .inOrder();
+      assertThat(target.storage().readMonth(OCTOBER).transactions())
+          .containsExactlyElementsIn(october.transactions())
+          .inOrder();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package net.pryden.accounts.commands;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import net.pryden.accounts.Console;
+import net.pryden.accounts.Storage;
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.Config;
+import net.pryden.accounts.reports.Report;
+import net.pryden.accounts.testing.FakeStorage;
+import net.pryden.accounts.testing.TestHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@RunWith(JUnit4.class)
+public final class GenerateFormsBatchCommandTest {
+  private static final YearMonth SEPTEMBER = YearMonth.of(2015, 9);
+  private static final YearMonth OCTOBER = YearMonth.of(2015, 10);
+
+  private TestHelper helper = TestHelper.create();
+  private final Map<String, Config> configFiles = new HashMap<>();
+  private final Map<String, FakeStorage> storages = new HashMap<>();
+  private final List<String> generated = new CopyOnWriteArrayList<>();
+  private Config defaultConfig;
+
+  @Before
+  public void setUp() {
+    defaultConfig = addCongregation("Default", "default.yaml");
+  }
+
+  private Config addCongregation(String name, String configFile) {
+    Config config = helper.newFakeConfig().toBuilder().setCongregationName(name).build();
+    configFiles.put(configFile, config);
+    storages.put(name, new FakeStorage(config));
+    return config;
+  }
+
+  private GenerateFormsBatchCommand newCommand(ImmutableMap<String, String> args) {
+    Storage.Factory storageFactory = new Storage.Factory() {
+      @Override
+      public Config readConfig(Path configFilePath) {
+        return configFiles.get(configFilePath.toString());
+      }
+
+      @Override
+      public Storage create(Config config) {
+        return storages.get(config.congregationName());
+      }
+    };
+    Report.Factory reportFactory = config -> ImmutableSet.of(new Report() {
+      @Override
+      public boolean isApplicableFor(AccountsMonth month) {
+        return true;
+      }
+
+      @Override
+      public void generate(AccountsMonth month, Console console) throws IOException {
+        console.print("Generating report\n");
+        generated.add(config.congregationName() + " " + month.date());
+      }
+    });
+    return new GenerateFormsBatchCommand(
+        helper.console(), defaultConfig, storageFactory, reportFactory, args);
+  }
+
+  @Test
+  public void testDefaultsToCurrentMonth() throws Exception {
+    storages.get("Default").writeMonth(helper.newEmptyMonth(OCTOBER));
+
+    newCommand(ImmutableMap.of()).run();
+
+    assertThat(generated).containsExactly("Default 2015-10");
+    assertThat(helper.getConsoleOutput()).startsWith("== Default, 2015-10 ==\n");
+  }
+
+  @Test
+  public void testMonthRangeForSeveralCongregations() throws Exception {
+    addCongregation("North", "north.yaml");
+    addCongregation("South", "south.yaml");
+    for (String name : new String[] {"North", "South"}) {
+      storages.get(name).writeMonth(helper.newEmptyMonth(SEPTEMBER));
+      storages.get(name).writeMonth(helper.newEmptyMonth(OCTOBER));
+    }
+
+    newCommand(ImmutableMap.of(
+        "configs", "north.yaml,south.yaml",
+        "from", "2015-09",
+        "to", "2015-10",
+        "parallelism", "4")).run();
+
+    assertThat(generated)
+        .containsExactly("North 2015-09", "North 2015-10", "South 2015-09", "South 2015-10");
+    assertThat(storages.get("North").readMonthsCount()).isEqualTo(1);
+    assertThat(storages.get("South").readMonthsCount()).isEqualTo(1);
+    String output = helper.getConsoleOutput();
+    assertThat(output).matches("(?s)== North, 2015-09 ==\nGenerating report\nDone in \\d+ ms\n"
+        + "== North, 2015-10 ==\n.*"
+        + "== South, 2015-09 ==\n.*"
+        + "== South, 2015-10 ==\n.*"
+        + "Generated forms for 4 of 4 months in \\d+ ms\n");
+  }
+
+  @Test
+  public void testMissingMonthDoesNotStopOtherMonths() throws Exception {
+    storages.get("Default").writeMonth(helper.newEmptyMonth(OCTOBER));
+
+    try {
+      newCommand(ImmutableMap.of("from", "2015-09", "to", "2015-10")).run();
+      fail("Expected a failure for the missing month");
+    } catch (RuntimeException expected) {
+      assertThat(expected.getMessage()).contains("2015-09");
+    }
+    assertThat(generated).containsExactly("Default 2015-10");
+    assertThat(helper.getConsoleOutput()).contains("Generated forms for 1 of 2 months");
+  }
+}
@@ -1,8 +1,10 @@
 package net.pryden.accounts.commands;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
 
 import com.google.common.collect.ImmutableSet;
+import net.pryden.accounts.Console;
 import net.pryden.accounts.model.AccountsMonth;
 import net.pryden.accounts.reports.Report;
 import net.pryden.accounts.testing.TestHelper;
@@ -11,6 +13,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(JUnit4.class)
 public final class GenerateFormsCommandTest {
@@ -25,8 +29,8 @@ public final class GenerateFormsCommandTest {
         new FakeReport(false),
         new FakeReport(true),
         new FakeReport(false));
-    GenerateFormsCommand command =
-        new GenerateFormsCommand(helper.storage(), helper.currentMonth(), reports);
+    GenerateFormsCommand command = new GenerateFormsCommand(
+        helper.storage(), helper.currentMonth(), reports, helper.console(), 1);
     AccountsMonth month = helper.readCurrentMonth();
 
     command.run();
@@ -39,7 +43,99 @@ public final class GenerateFormsCommandTest {
         });
   }
 
-  private static final class FakeReport implements Report {
+  @Test
+  public void testConcurrentOutputIsInReportOrder() throws Exception {
+    helper.writeEmptyMonth();
+    // The first report cannot finish until the second one has run, so they must run concurrently,
+    // and the second one finishes first.
+    CountDownLatch secondFinished = new CountDownLatch(1);
+    ImmutableSet<Report> reports = ImmutableSet.of(
+        new FakeReport(true) {
+          @Override
+          public void generate(AccountsMonth month, Console console) throws IOException {
+            console.print("first\n");
+            try {
+              assertThat(secondFinished.await(10, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException ex) {
+              throw new AssertionError(ex);
+            }
+          }
+        },
+        new FakeReport(true) {
+          @Override
+          public void generate(AccountsMonth month, Console console) throws IOException {
+            console.print("second\n");
+            secondFinished.countDown();
+          }
+        });
+    GenerateFormsCommand command = new GenerateFormsCommand(
+        helper.storage(), helper.currentMonth(), reports, helper.console(), 2);
+
+    command.run();
+
+    assertThat(helper.console().getOutput()).isEqualTo("first\nsecond\n");
+  }
+
+  @Test
+  public void testFailuresAreAggregated() throws Exception {
+    helper.writeEmptyMonth();
+    IOException firstFailure = new IOException("first failure");
+    IllegalStateException secondFailure = new IllegalStateException("second failure");
+    FakeReport lastReport = new FakeReport(true);
+    ImmutableSet<Report> reports = ImmutableSet.of(
+        new FailingReport(firstFailure),
+        new FailingReport(secondFailure),
+        lastReport);
+    GenerateFormsCommand command = new GenerateFormsCommand(
+        helper.storage(), helper.currentMonth(), reports, helper.console(), 3);
+
+    try {
+      command.run();
+      fail("Expected an IOException");
+    } catch (IOException ex) {
+      assertThat(ex).isSameAs(firstFailure);
+      assertThat(ex.getSuppressed()).asList().containsExactly(secondFailure);
+    }
+    assertThat(lastReport.wasGenerated).isTrue();
+    assertThat(helper.console().getOutput())
+        .isEqualTo("Failed: first failure\nFailed: second failure\n");
+  }
+
+  @Test
+  public void testSerialOutputIsStreamedAndStopsAtFirstFailure() throws Exception {
+    helper.writeEmptyMonth();
+    IOException failure = new IOException("failure");
+    FakeReport lastReport = new FakeReport(true);
+    ImmutableSet<Report> reports = ImmutableSet.of(
+        new FakeReport(true) {
+          @Override
+          public void generate(AccountsMonth month, Console console) throws IOException {
+            console.print("first\n");
+          }
+        },
+        new FailingReport(failure) {
+          @Override
+          public void generate(AccountsMonth month, Console console) throws IOException {
+            // The first report's output has already been printed.
+            assertThat(helper.console().getOutput()).isEqualTo("first\n");
+            super.generate(month, console);
+          }
+        },
+        lastReport);
+    GenerateFormsCommand command = new GenerateFormsCommand(
+        helper.storage(), helper.currentMonth(), reports, helper.console(), 1);
+
+    try {
+      command.run();
+      fail("Expected an IOException");
+    } catch (IOException ex) {
+      assertThat(ex).isSameAs(failure);
+    }
+    assertThat(lastReport.wasGenerated).isFalse();
+    assertThat(helper.console().getOutput()).isEqualTo("first\n");
+  }
+
+  private static class FakeReport implements Report {
     final boolean applicable;
     AccountsMonth month;
     boolean wasGenerated;
@@ -55,9 +151,26 @@ public final class GenerateFormsCommandTest {
     }
 
     @Override
-    public void generate(AccountsMonth month) throws IOException {
+    public void generate(AccountsMonth month, Console console) throws IOException {
       wasGenerated = true;
       assertThat(month).isSameAs(this.month);
     }
   }
+
+  private static class FailingReport extends FakeReport {
+    private final Exception failure;
+
+    FailingReport(Exception failure) {
+      super(true);
+      this.failure = failure;
+    }
+
+    @Override
+    public void generate(AccountsMonth month, Console console) throws IOException {
+      if (failure instanceof IOException) {
+        throw (IOException) failure;
+      }
+      throw (RuntimeException) failure;
+    }
+  }
 }
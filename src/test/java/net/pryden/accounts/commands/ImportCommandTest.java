@@ -0,0 +1,210 @@
+package net.pryden.accounts.commands;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.pryden.accounts.Storage;
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.Config;
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.Transaction;
+import net.pryden.accounts.model.TransactionCategory;
+import net.pryden.accounts.testing.TestHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public final class ImportCommandTest {
+  private static final YearMonth SEPTEMBER = YearMonth.of(2015, 9);
+  private static final YearMonth OCTOBER = YearMonth.of(2015, 10);
+
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private TestHelper helper = TestHelper.create();
+  private final List<YearMonth> writes = new ArrayList<>();
+
+  /** Storage that records which months are written. */
+  private final Storage storage = new Storage() {
+    @Override
+    public AccountsMonth readMonth(YearMonth date) {
+      return helper.storage().readMonth(date);
+    }
+
+    @Override
+    public ImmutableList<AccountsMonth> readMonths(YearMonth from, YearMonth to) {
+      return helper.storage().readMonths(from, to);
+    }
+
+    @Override
+    public void writeMonth(AccountsMonth month) {
+      writes.add(month.date());
+      helper.storage().writeMonth(month);
+    }
+
+    @Override
+    public void updateConfig(Config updatedConfig) {
+      helper.storage().updateConfig(updatedConfig);
+    }
+  };
+
+  @Before
+  public void setUp() {
+    helper.storage().writeMonth(helper.newEmptyMonth(SEPTEMBER));
+    helper.storage().writeMonth(helper.newEmptyMonth(OCTOBER));
+  }
+
+  private void runImport(String fileName, String... lines) throws Exception {
+    Path path = temp.getRoot().toPath().resolve(fileName);
+    Files.write(path, Arrays.asList(lines), UTF_8);
+    new ImportCommand(helper.console(), storage, ImmutableMap.of("file", path.toString())).run();
+  }
+
+  @Test
+  public void testImportCsv_writesEachMonthOnce() throws Exception {
+    helper.console().addExpectedInput("Y" /* confirmation */);
+
+    runImport("transactions.csv",
+        "Date,Description,Category,Amount,Summary-Description",
+        "2015-10-04,Deposit to checking account,D,120.00,",
+        "2015-09-01,Contributions - Worldwide Work,W,120.00,",
+        "2015-10-03,\"Cleaning supplies, soap\",E,12.50,Supplies",
+        "",
+        "2015-10-01,Contributions - Local Congregation Expenses,C,7.00,");
+
+    assertThat(writes).containsExactly(SEPTEMBER, OCTOBER).inOrder();
+    assertThat(helper.storage().readMonth(SEPTEMBER).transactions()).containsExactly(
+        Transaction.builder()
+            .setDate(1)
+            .setDescription("Contributions - Worldwide Work")
+            .setCategory(TransactionCategory.WORLDWIDE_WORK)
+            .setReceiptsIn(Money.parse("120.00"))
+            .build());
+    assertThat(helper.storage().readMonth(OCTOBER).transactions()).containsExactly(
+        Transaction.builder()
+            .setDate(1)
+            .setDescription("Contributions - Local Congregation Expenses")
+            .setCategory(TransactionCategory.LOCAL_CONGREGATION_EXPENSES)
+            .setReceiptsIn(Money.parse("7.00"))
+            .build(),
+        Transaction.builder()
+            .setDate(3)
+            .setDescription("Cleaning supplies, soap")
+            .setSummaryDescription("Supplies")
+            .setCategory(TransactionCategory.EXPENSE)
+            .setCheckingOut(Money.parse("12.50"))
+            .build(),
+        Transaction.builder()
+            .setDate(4)
+            .setDescription("Deposit to checking account")
+            .setCategory(TransactionCategory.DEPOSIT)
+            .setReceiptsOut(Money.parse("120.00"))
+            .setCheckingIn(Money.parse("120.00"))
+            .build())
+        .inOrder();
+    assertThat(helper.getConsoleOutput()).contains("Imported 4 transactions");
+  }
+
+  @Test
+  public void testImportJsonLines_withExplicitColumns() throws Exception {
+    helper.console().addExpectedInput("Y" /* confirmation */);
+
+    runImport("transactions.jsonl",
+        "{\"date\": \"2015-10-31\", \"description\": \"jw.org Transfer\", \"category\": \"None\","
+            + " \"checking-out\": 30.10}");
+
+    assertThat(helper.storage().readMonth(OCTOBER).transactions()).containsExactly(
+        Transaction.builder()
+            .setDate(31)
+            .setDescription("jw.org Transfer")
+            .setCategory(TransactionCategory.OTHER)
+            .setCheckingOut(Money.parse("30.10"))
+            .build());
+  }
+
+  @Test
+  public void testInvalidRows_nothingIsWritten() throws Exception {
+    try {
+      runImport("transactions.csv",
+          "date,description,category,amount",
+          "2015-10-03,Cleaning supplies,E,12.50",
+          "2015-10-04,Mystery,X,1.00",
+          "2015-10-05,Nothing,E,",
+          "2015-10-32,Bad date,E,1.00",
+          "2015-10-06,Other,None,1.00");
+      throw new AssertionError("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected.getMessage()).contains("Nothing was imported");
+    }
+
+    assertThat(writes).isEmpty();
+    String output = helper.getConsoleOutput();
+    assertThat(output).contains("Line 3: Unexpected transaction category: X");
+    assertThat(output).contains("Line 4: The transaction has no amount");
+    assertThat(output).contains("Line 5: ");
+    assertThat(output).contains("Line 6: Transactions in category OTHER need");
+  }
+
+  @Test
+  public void testInvalidSubTransactions_nothingIsWritten() throws Exception {
+    try {
+      runImport("transactions.csv",
+          "date,description,category,type,checking-out,amount",
+          "2015-10-30,Construction,C,KINGDOM_HALL_AND_ASSEMBLY_HALL_WORLDWIDE,,30.00",
+          "2015-10-31,jw.org Transfer,None,,30.00,",
+          "2015-10-31,Construction,C,NO_SUCH_TYPE,,30.00",
+          "2015-10-31,Construction,C,KINGDOM_HALL_AND_ASSEMBLY_HALL_WORLDWIDE,30.00,");
+      throw new AssertionError("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected.getMessage()).contains("Nothing was imported");
+    }
+
+    assertThat(writes).isEmpty();
+    String output = helper.getConsoleOutput();
+    assertThat(output).contains("Line 2: A sub-transaction must follow its transaction");
+    assertThat(output).contains("Line 4: Unknown sub-transaction type: NO_SUCH_TYPE");
+    assertThat(output).contains("Line 5: A sub-transaction has an amount");
+  }
+
+  @Test
+  public void testUnterminatedQuote_reportedOnce() throws Exception {
+    try {
+      runImport("transactions.csv",
+          "date,description,category,amount",
+          "2015-10-03,\"Cleaning supplies,E,12.50");
+      throw new AssertionError("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected.getMessage()).contains("Nothing was imported");
+    }
+
+    assertThat(writes).isEmpty();
+    assertThat(helper.getConsoleOutput()).contains("Line 2: Unterminated quoted field\n");
+  }
+
+  @Test
+  public void testMissingMonth_nothingIsWritten() throws Exception {
+    try {
+      runImport("transactions.csv",
+          "date,description,category,amount",
+          "2015-10-03,Cleaning supplies,E,12.50",
+          "2015-11-03,Cleaning supplies,E,12.50");
+      throw new AssertionError("Expected RuntimeException");
+    } catch (RuntimeException expected) {
+      assertThat(expected.getMessage()).contains("2015-11");
+    }
+
+    assertThat(writes).isEmpty();
+  }
+}
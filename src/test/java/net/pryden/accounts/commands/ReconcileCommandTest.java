@@ -1,8 +1,10 @@
 package net.pryden.accounts.commands;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import net.pryden.accounts.model.AccountsMonth;
 import net.pryden.accounts.model.Money;
 import net.pryden.accounts.model.Reconciliation;
@@ -11,20 +13,28 @@ import net.pryden.accounts.model.TransactionCategory;
 import net.pryden.accounts.model.UnreconciledTransaction;
 import net.pryden.accounts.testing.TestHelper;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.ZoneId;
+import java.util.Arrays;
 
 @RunWith(JUnit4.class)
 public final class ReconcileCommandTest {
   private static final Instant TIME = Instant.parse("2015-02-03T10:15:30.00Z");
 
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
   private TestHelper helper = TestHelper.create();
   private Clock clock = Clock.fixed(TIME, ZoneId.of("UTC"));
 
@@ -35,10 +45,39 @@ public final class ReconcileCommandTest {
   }
 
   private void run() throws Exception {
-    ReconcileCommand command = new ReconcileCommand(helper.console(), helper.storage(), clock);
+    run(ImmutableMap.of());
+  }
+
+  private void run(ImmutableMap<String, String> args) throws Exception {
+    ReconcileCommand command =
+        new ReconcileCommand(helper.console(), helper.storage(), clock, args);
     command.run();
   }
 
+  private void writeEmptyPreviousMonthReconciliation() {
+    writePreviousMonthReconciliation(Reconciliation.builder()
+        .setDateReconciled(LocalDate.of(2015, 11, 17))
+        .setReconciledBalance(Money.ZERO)
+        .setStatementBalance(Money.ZERO)
+        .setUnreconciledTransactions(ImmutableList.of())
+        .build());
+  }
+
+  private static Transaction expense(int date, String description, String amount) {
+    return Transaction.builder()
+        .setDate(date)
+        .setDescription(description)
+        .setCategory(TransactionCategory.EXPENSE)
+        .setCheckingOut(Money.parse(amount))
+        .build();
+  }
+
+  private Path writeStatement(String fileName, String... lines) throws IOException {
+    Path path = temp.getRoot().toPath().resolve(fileName);
+    Files.write(path, Arrays.asList(lines), UTF_8);
+    return path;
+  }
+
   private void writePreviousMonthReconciliation(Reconciliation reconciliation) {
     helper
         .storage()
@@ -128,4 +167,142 @@ public final class ReconcileCommandTest {
             .setAmount(unreconciled.negate())
             .build());
   }
+
+  @Test
+  public void testReconcilingWithCsvStatement() throws Exception {
+    writeEmptyPreviousMonthReconciliation();
+    writeMonthWithTransactions(
+        expense(1, "Electricity", "101.01"),
+        expense(2, "Cleaning supplies", "20.00"),
+        expense(9, "Literature", "20.00"),
+        expense(20, "Hall rental", "66.11"));
+    Path statement = writeStatement("statement.csv",
+        "Date,Description,Debit,Credit,Balance",
+        "02/03/2015,\"POWER CO, INC\",101.01,,",
+        "02/04/2015,CHECK 1001,20.00,,",
+        "02/11/2015,CHECK 1002,20.00,,",
+        "02/12/2015,BANK FEE,1.00,,");
+
+    helper.console()
+        .addExpectedInput("2015-02-28" /* statement date */)
+        .addExpectedInput("-142.02" /* statement closing balance */);
+
+    run(ImmutableMap.of("statement", statement.toString()));
+
+    assertThat(helper.getConsoleOutput()).contains("Matched 3 of 4 statement lines");
+    assertThat(helper.getConsoleOutput()).contains("2015-02-12: (1.00) - BANK FEE");
+    assertThat(helper.getConsoleOutput()).contains("discrepancy");
+  }
+
+  @Test
+  public void testReconcilingWithOfxStatement_asksAboutAmbiguousLines() throws Exception {
+    writeEmptyPreviousMonthReconciliation();
+    writeMonthWithTransactions(
+        expense(1, "Cleaning supplies", "20.00"),
+        expense(3, "Literature", "20.00"),
+        expense(20, "Hall rental", "66.11"));
+    Path statement = writeStatement("statement.ofx",
+        "OFXHEADER:100",
+        "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>",
+        "<STMTTRN><TRNTYPE>CHECK<DTPOSTED>20150204<TRNAMT>-20.00<NAME>CHECK 1002</STMTTRN>",
+        "</BANKTRANLIST>",
+        "<LEDGERBAL><BALAMT>-20.00<DTASOF>20150228120000[-5:EST]</LEDGERBAL>",
+        "</STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>");
+
+    helper.console()
+        .addExpectedInput("" /* accept the statement's closing date */)
+        .addExpectedInput("" /* accept the statement's closing balance */)
+        .addExpectedInput("2" /* the statement line is the literature */)
+        .addExpectedInput("Y" /* confirm write month to storage */);
+
+    run(ImmutableMap.of("statement", statement.toString()));
+
+    assertThat(helper.getConsoleOutput())
+        .contains("closing date of 2015-02-28 and a closing balance of (20.00)");
+    assertThat(helper.getConsoleOutput()).contains("Congratulations");
+    Reconciliation reconciliation =
+        helper.storage().readMonth(YearMonth.of(2015, 2)).reconciliation().get();
+    assertThat(reconciliation.statementBalance()).isEqualTo(Money.parse("-20.00"));
+    assertThat(reconciliation.unreconciledTransactions()).containsExactly(
+        UnreconciledTransaction.builder()
+            .setDate(LocalDate.of(2015, 2, 1))
+            .setDescription("Cleaning supplies")
+            .setAmount(Money.parse("-20.00"))
+            .build(),
+        UnreconciledTransaction.builder()
+            .setDate(LocalDate.of(2015, 2, 20))
+            .setDescription("Hall rental")
+            .setAmount(Money.parse("-66.11"))
+            .build());
+  }
+
+  @Test
+  public void testReconcilingWithCsvStatement_asksAboutLinesOutsideDateTolerance()
+      throws Exception {
+    writeEmptyPreviousMonthReconciliation();
+    writeMonthWithTransactions(
+        expense(1, "Electricity", "101.01"),
+        expense(2, "Hall rental", "66.11"));
+    Path statement = writeStatement("statement.csv",
+        "Date,Description,Debit,Credit,Balance",
+        "02/03/2015,POWER CO,101.01,,",
+        "02/16/2015,CHECK 1003,66.11,,");
+
+    helper.console()
+        .addExpectedInput("2015-02-28" /* statement date */)
+        .addExpectedInput("-167.12" /* statement closing balance */)
+        .addExpectedInput("1" /* the late statement line is the hall rental */)
+        .addExpectedInput("Y" /* confirm write month to storage */);
+
+    run(ImmutableMap.of("statement", statement.toString()));
+
+    assertThat(helper.getConsoleOutput())
+        .contains("CHECK 1003 is more than 5 days from any transaction, but could be:");
+    assertThat(helper.getConsoleOutput()).contains("Matched 2 of 2 statement lines");
+    assertThat(helper.getConsoleOutput()).contains("Congratulations");
+    Reconciliation reconciliation =
+        helper.storage().readMonth(YearMonth.of(2015, 2)).reconciliation().get();
+    assertThat(reconciliation.unreconciledTransactions()).isEmpty();
+  }
+
+  @Test
+  public void testReconcilingWithOfxStatement_closingBalanceCanBeOverridden() throws Exception {
+    writeEmptyPreviousMonthReconciliation();
+    writeMonthWithTransactions(
+        expense(1, "Electricity", "101.01"),
+        expense(20, "Hall rental", "66.11"));
+    // Downloaded on the 10th of the next month, after the hall rental cleared.
+    Path statement = writeStatement("statement.ofx",
+        "OFXHEADER:100",
+        "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>",
+        "<STMTTRN><TRNTYPE>DEBIT<DTPOSTED>20150203<TRNAMT>-101.01<NAME>POWER CO</STMTTRN>",
+        "</BANKTRANLIST>",
+        "<LEDGERBAL><BALAMT>-167.12<DTASOF>20150310</LEDGERBAL>",
+        "</STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>");
+
+    helper.console()
+        .addExpectedInput("2015-02-28" /* the closing date of the paper statement */)
+        .addExpectedInput("-101.01" /* its closing balance */)
+        .addExpectedInput("Y" /* confirm write month to storage */);
+
+    run(ImmutableMap.of("statement", statement.toString()));
+
+    assertThat(helper.getConsoleOutput()).contains("Congratulations");
+    Reconciliation reconciliation =
+        helper.storage().readMonth(YearMonth.of(2015, 2)).reconciliation().get();
+    assertThat(reconciliation.statementBalance()).isEqualTo(Money.parse("-101.01"));
+    assertThat(reconciliation.unreconciledTransactions()).containsExactly(
+        UnreconciledTransaction.builder()
+            .setDate(LocalDate.of(2015, 2, 20))
+            .setDescription("Hall rental")
+            .setAmount(Money.parse("-66.11"))
+            .build());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeDateTolerance_isRejected() throws Exception {
+    Path statement = writeStatement("statement.csv", "Date,Description,Debit,Credit,Balance");
+
+    run(ImmutableMap.of("statement", statement.toString(), "date-tolerance", "-1"));
+  }
 }
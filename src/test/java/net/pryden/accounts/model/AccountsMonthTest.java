@@ -0,0 +1,95 @@
+package net.pryden.accounts.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.YearMonth;
+
+@RunWith(JUnit4.class)
+public final class AccountsMonthTest {
+  private static final AccountsMonth EMPTY_MONTH = AccountsMonth.builder()
+      .setDate(YearMonth.of(2015, 10))
+      .setOpeningBalance(Money.parse("100.00"))
+      .setReceiptsCarriedForward(Money.parse("1.00"))
+      .build();
+
+  private static Transaction newReceipt(int day, String description, String amount) {
+    return Transaction.builder()
+        .setDate(day)
+        .setDescription(description)
+        .setCategory(TransactionCategory.WORLDWIDE_WORK)
+        .setReceiptsIn(Money.parse(amount))
+        .build();
+  }
+
+  private static Transaction newExpense(int day, String amount) {
+    return Transaction.builder()
+        .setDate(day)
+        .setDescription("Expense")
+        .setCategory(TransactionCategory.EXPENSE)
+        .setCheckingOut(Money.parse(amount))
+        .build();
+  }
+
+  /** Returns a copy of {@code month} that has not computed anything yet. */
+  private static AccountsMonth fresh(AccountsMonth month) {
+    return month.toBuilder().build();
+  }
+
+  @Test
+  public void testWithNewTransactions_mergesInSortedOrder() {
+    AccountsMonth month = EMPTY_MONTH.withNewTransactions(
+        newReceipt(5, "first", "1.00"), newReceipt(10, "b", "2.00"));
+    month = month.withNewTransactions(
+        newReceipt(5, "second", "3.00"), newExpense(1, "4.00"), newReceipt(20, "c", "5.00"));
+
+    assertThat(month.transactions()).containsExactly(
+        newExpense(1, "4.00"),
+        newReceipt(5, "first", "1.00"),
+        newReceipt(5, "second", "3.00"),
+        newReceipt(10, "b", "2.00"),
+        newReceipt(20, "c", "5.00"))
+        .inOrder();
+  }
+
+  @Test
+  public void testWithNewTransactions_sortsUnsortedMonth() {
+    AccountsMonth month = EMPTY_MONTH.toBuilder()
+        .setTransactions(ImmutableList.of(newReceipt(9, "a", "1.00"), newReceipt(3, "b", "1.00")))
+        .build()
+        .withNewTransactions(newReceipt(6, "c", "1.00"));
+
+    assertThat(month.transactions()).containsExactly(
+        newReceipt(3, "b", "1.00"), newReceipt(6, "c", "1.00"), newReceipt(9, "a", "1.00"))
+        .inOrder();
+  }
+
+  @Test
+  public void testWithNewTransactions_derivesTotals() {
+    AccountsMonth month = EMPTY_MONTH.withNewTransactions(newReceipt(2, "a", "10.00"));
+    month.computeTotals();
+    for (int day = 3; day < 20; day++) {
+      month = month.withNewTransactions(newReceipt(day, "r", "1.25"), newExpense(day, "0.50"));
+    }
+
+    assertThat(month.computeTotals()).isEqualTo(fresh(month).computeTotals());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testWithNewTransactions_invalidTransactionReportedByTotals() {
+    AccountsMonth month = EMPTY_MONTH.withNewTransactions(newReceipt(2, "a", "10.00"));
+    month.computeTotals();
+    month = month.withNewTransactions(Transaction.builder()
+        .setDate(3)
+        .setDescription("Receipts with no fund")
+        .setCategory(TransactionCategory.EXPENSE)
+        .setReceiptsIn(Money.parse("1.00"))
+        .build());
+
+    month.computeTotals();
+  }
+}
@@ -0,0 +1,45 @@
+package net.pryden.accounts.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class MoneyAccumulatorTest {
+  @Test
+  public void testSums() {
+    MoneyAccumulator sum = new MoneyAccumulator(Money.parse("10.00"));
+    sum.add(Money.parse("1.23"));
+    sum.subtract(Money.parse("(4.56)"));
+    sum.subtract(Money.parse("0.79"));
+
+    assertThat(sum.total()).isEqualTo(Money.parse("15.00"));
+    assertThat(new MoneyAccumulator().total()).isEqualTo(Money.ZERO);
+  }
+
+  @Test
+  public void testOverflow() {
+    Money max = Money.ofCents(Long.MAX_VALUE);
+    MoneyAccumulator sum = new MoneyAccumulator(max);
+    sum.add(max);
+    assertThat(sum.total()).isEqualTo(max.plus(max));
+
+    sum.subtract(max);
+    sum.subtract(max);
+    sum.subtract(Money.parse("0.01"));
+    assertThat(sum.total()).isEqualTo(Money.parse("(0.01)"));
+  }
+
+  @Test
+  public void testAddCents() {
+    MoneyAccumulator sum = new MoneyAccumulator(Money.parse("10.00"));
+    sum.addCents(123);
+    sum.addCents(-23);
+    assertThat(sum.total()).isEqualTo(Money.parse("11.00"));
+
+    sum.addCents(Long.MAX_VALUE);
+    assertThat(sum.total()).isEqualTo(Money.parse("11.00").plus(Money.ofCents(Long.MAX_VALUE)));
+  }
+}
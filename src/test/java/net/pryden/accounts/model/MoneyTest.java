@@ -15,6 +15,48 @@ public final class MoneyTest {
     assertParsesAs("(17)", "-17.00");
     assertParsesAs("-17", "(17.00)");
     assertParsesAs("1.001", "1.00");
+    assertParsesAs("1.005", "1.00");
+    assertParsesAs("1.015", "1.02");
+    assertParsesAs("(-17)", "17.00");
+    assertParsesAs("1.5", "1.50");
+    assertParsesAs("5.", "5.00");
+    assertParsesAs(".5", "0.50");
+    assertParsesAs("+5", "5.00");
+    assertParsesAs("1e2", "100.00");
+  }
+
+  @Test
+  public void testFormatting() {
+    assertThat(Money.parse("1.5").toFormattedStringPreserveZero()).isEqualTo("1.50");
+    assertThat(Money.parse("-0.07").toFormattedStringPreserveZero()).isEqualTo("(0.07)");
+    assertThat(Money.parse("-0").toFormattedStringPreserveZero()).isEqualTo("0.00");
+    assertThat(Money.ZERO.toFormattedString()).isEmpty();
+    assertThat(Money.parse("-0.07").toPlainString()).isEqualTo("-0.07");
+    assertThat(Money.parse("1234.5").toPlainString()).isEqualTo("1234.50");
+    assertThat(Money.ofCents(Long.MIN_VALUE).toPlainString())
+        .isEqualTo("-92233720368547758.08");
+  }
+
+  @Test
+  public void testArithmeticBeyondLongCents() {
+    Money max = Money.ofCents(Long.MAX_VALUE);
+    Money min = Money.ofCents(Long.MIN_VALUE);
+    Money cent = Money.parse("0.01");
+
+    Money aboveMax = max.plus(cent);
+    assertThat(aboveMax.toFormattedStringPreserveZero()).isEqualTo("92233720368547758.08");
+    assertThat(aboveMax).isEqualTo(Money.parse("92233720368547758.08"));
+    assertThat(aboveMax.minus(cent)).isEqualTo(max);
+    assertThat(min.minus(cent).toFormattedStringPreserveZero())
+        .isEqualTo("(92233720368547758.09)");
+    assertThat(min.negate()).isEqualTo(aboveMax);
+    assertThat(min.toFormattedStringPreserveZero()).isEqualTo("(92233720368547758.08)");
+    assertThat(max.plus(max).minus(max)).isEqualTo(max);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParsing_invalid() {
+    Money.parse("1.2.3");
   }
 
   @Test
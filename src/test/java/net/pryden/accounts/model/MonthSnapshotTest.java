@@ -0,0 +1,111 @@
+package net.pryden.accounts.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Optional;
+
+@RunWith(JUnit4.class)
+public final class MonthSnapshotTest {
+  private static final long CHECKSUM = 0x12345678L;
+
+  private static final AccountsMonth MONTH = AccountsMonth.builder()
+      .setDate(YearMonth.of(2015, 11))
+      .setOpeningBalance(Money.parse("1234.56"))
+      .setReceiptsCarriedForward(Money.parse("(0.01)"))
+      .setIsClosed(true)
+      .setTransactions(
+          ImmutableList.of(
+              Transaction.builder()
+                  .setDate(1)
+                  .setDescription("Contributions - Worldwide Work")
+                  .setCategory(TransactionCategory.WORLDWIDE_WORK)
+                  .setReceiptsIn(Money.parse("101.01"))
+                  .build(),
+              Transaction.builder()
+                  .setDate(14)
+                  .setDescription("Electric company")
+                  .setSummaryDescription("Utilities")
+                  .setCategory(TransactionCategory.EXPENSE)
+                  .setCheckingOut(Money.parse("87.65"))
+                  .build(),
+              Transaction.builder()
+                  .setDate(30)
+                  .setDescription("jw.org Transfer")
+                  .setCategory(TransactionCategory.OTHER)
+                  .setCheckingOut(Money.parse("201.01"))
+                  .setSubTransactions(ImmutableList.of(
+                      SubTransaction.builder()
+                          .setDescription("Worldwide Work")
+                          .setCategory(TransactionCategory.WORLDWIDE_WORK)
+                          .setType(BranchResolutionType.WORLDWIDE_WORK_FROM_CONTRIBUTION_BOXES)
+                          .setAmount(Money.parse("101.01"))
+                          .build(),
+                      SubTransaction.builder()
+                          .setDescription("Electric company")
+                          .setType(BranchResolutionType.GLOBAL_ASSISTANCE_ARRANGEMENT)
+                          .setAmount(Money.parse("100.00"))
+                          .build()))
+                  .build()))
+      .setReconciliation(Reconciliation.builder()
+          .setDateReconciled(LocalDate.of(2015, 12, 3))
+          .setStatementBalance(Money.parse("1300.00"))
+          .setReconciledBalance(Money.parse("1246.91"))
+          .setUnreconciledTransactions(ImmutableList.of(
+              UnreconciledTransaction.builder()
+                  .setDate(LocalDate.of(2015, 11, 14))
+                  .setDescription("Electric company")
+                  .setAmount(Money.parse("(87.65)"))
+                  .build()))
+          .build())
+      .build();
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    assertThat(read(write(MONTH), CHECKSUM)).isEqualTo(Optional.of(MONTH));
+  }
+
+  @Test
+  public void testRoundTrip_emptyMonth() throws IOException {
+    AccountsMonth month = AccountsMonth.builder()
+        .setDate(YearMonth.of(2016, 1))
+        .setOpeningBalance(Money.ZERO)
+        .setReceiptsCarriedForward(Money.ZERO)
+        .build();
+    assertThat(read(write(month), CHECKSUM)).isEqualTo(Optional.of(month));
+  }
+
+  @Test
+  public void testChecksumMismatch() throws IOException {
+    assertThat(read(write(MONTH), CHECKSUM + 1)).isEqualTo(Optional.empty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAmountTooLarge() throws IOException {
+    write(MONTH.toBuilder()
+        .setOpeningBalance(Money.parse("12345678901234567890.12"))
+        .build());
+  }
+
+  private static byte[] write(AccountsMonth month) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    MonthSnapshot.write(month, CHECKSUM, new DataOutputStream(bytes));
+    return bytes.toByteArray();
+  }
+
+  private static Optional<AccountsMonth> read(byte[] snapshot, long checksum) throws IOException {
+    return MonthSnapshot.read(
+        new DataInputStream(new ByteArrayInputStream(snapshot)), checksum);
+  }
+}
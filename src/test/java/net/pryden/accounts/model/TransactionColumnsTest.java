@@ -0,0 +1,122 @@
+package net.pryden.accounts.model;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.YearMonth;
+
+@RunWith(JUnit4.class)
+public final class TransactionColumnsTest {
+  private static AccountsMonth newMonth(Transaction... transactions) {
+    return AccountsMonth.builder()
+        .setDate(YearMonth.of(2015, 10))
+        .setOpeningBalance(Money.parse("100.00"))
+        .setReceiptsCarriedForward(Money.ZERO)
+        .build()
+        .withNewTransactions(transactions);
+  }
+
+  private static final Transaction RECEIPTS = Transaction.builder()
+      .setDate(2)
+      .setDescription("Contributions - Worldwide Work")
+      .setCategory(TransactionCategory.WORLDWIDE_WORK)
+      .setReceiptsIn(Money.parse("50.00"))
+      .build();
+
+  private static final Transaction TRANSFER = Transaction.builder()
+      .setDate(5)
+      .setDescription("Transfer to branch")
+      .setCategory(TransactionCategory.OTHER)
+      .setCheckingOut(Money.parse("62.50"))
+      .setSubTransactions(ImmutableList.of(
+          SubTransaction.builder()
+              .setDescription("Worldwide Work")
+              .setCategory(TransactionCategory.WORLDWIDE_WORK)
+              .setType(BranchResolutionType.WORLDWIDE_WORK_FROM_CONTRIBUTION_BOXES)
+              .setAmount(Money.parse("50.00"))
+              .build(),
+          SubTransaction.builder()
+              .setDescription("Kingdom Hall resolution")
+              .setType(BranchResolutionType.KINGDOM_HALL_AND_ASSEMBLY_HALL_WORLDWIDE)
+              .setAmount(Money.parse("12.50"))
+              .build()))
+      .build();
+
+  @Test
+  public void testColumns() {
+    TransactionColumns columns = newMonth(RECEIPTS, TRANSFER).columns();
+
+    assertThat(columns.size()).isEqualTo(2);
+    assertThat(columns.date(0)).isEqualTo(2);
+    assertThat(columns.category(0)).isEqualTo(TransactionCategory.WORLDWIDE_WORK);
+    assertThat(columns.receiptsInCents(0)).isEqualTo(5000L);
+    assertThat(columns.subTransactionStart(0)).isEqualTo(columns.subTransactionEnd(0));
+    assertThat(columns.checkingOutCents(1)).isEqualTo(6250L);
+    assertThat(columns.subTransactionEnd(1) - columns.subTransactionStart(1)).isEqualTo(2);
+    int last = columns.subTransactionEnd(1) - 1;
+    assertThat(columns.subTransactionCategory(last)).isEqualTo(TransactionCategory.EXPENSE);
+    assertThat(columns.subTransactionType(last))
+        .isEqualTo(BranchResolutionType.KINGDOM_HALL_AND_ASSEMBLY_HALL_WORLDWIDE);
+    assertThat(columns.subTransactionAmountCents(last)).isEqualTo(1250L);
+  }
+
+  @Test
+  public void testComputeTotals() {
+    ComputedTotals totals = newMonth(RECEIPTS, TRANSFER).computeTotals();
+
+    assertThat(totals.totalWorldwideReceipts()).isEqualTo(Money.parse("50.00"));
+    assertThat(totals.totalCheckingOut()).isEqualTo(Money.parse("62.50"));
+    assertThat(totals.totalCongregationExpenses()).isEqualTo(Money.parse("12.50"));
+    assertThat(totals.totalWorldwideTransfer()).isEqualTo(Money.parse("50.00"));
+    assertThat(totals.checkingBalance()).isEqualTo(Money.parse("37.50"));
+    assertThat(totals.totalOfAllBalances()).isEqualTo(Money.parse("87.50"));
+  }
+
+  @Test
+  public void testComputeTotals_amountsTooLargeForCents() {
+    // The same transactions as above, plus receipts too large to store as cents.
+    Money huge = Money.parse("100000000000000000.00");
+    AccountsMonth month = newMonth(
+        RECEIPTS,
+        TRANSFER,
+        Transaction.builder()
+            .setDate(6)
+            .setDescription("Contributions - Worldwide Work")
+            .setCategory(TransactionCategory.WORLDWIDE_WORK)
+            .setReceiptsIn(huge)
+            .build());
+    ComputedTotals totals = month.computeTotals();
+
+    assertThat(totals.totalWorldwideReceipts()).isEqualTo(huge.plus(Money.parse("50.00")));
+    assertThat(totals.totalReceiptsIn()).isEqualTo(huge.plus(Money.parse("50.00")));
+    assertThat(totals.receiptsOutstandingBalance()).isEqualTo(huge.plus(Money.parse("50.00")));
+    assertThat(totals.totalCheckingOut()).isEqualTo(Money.parse("62.50"));
+    assertThat(totals.totalCongregationExpenses()).isEqualTo(Money.parse("12.50"));
+    assertThat(totals.totalWorldwideTransfer()).isEqualTo(Money.parse("50.00"));
+    assertThat(totals.checkingBalance()).isEqualTo(Money.parse("37.50"));
+    assertThat(totals.totalOfAllBalances()).isEqualTo(huge.plus(Money.parse("87.50")));
+
+    assertThat(month.columns().receiptsInCents(1)).isEqualTo(0L);
+    try {
+      month.columns().receiptsInCents(2);
+      fail();
+    } catch (ArithmeticException expected) {
+    }
+  }
+
+  @Test
+  public void testComputeTotals_totalsTooLargeForCents() {
+    Money max = Money.ofCents(Long.MAX_VALUE);
+    Transaction receipts = RECEIPTS.toBuilder().setReceiptsIn(max).build();
+    ComputedTotals totals = newMonth(receipts, receipts).computeTotals();
+
+    assertThat(totals.totalWorldwideReceipts()).isEqualTo(max.plus(max));
+    assertThat(totals.totalOfAllBalances())
+        .isEqualTo(max.plus(max).plus(Money.parse("100.00")));
+  }
+}
@@ -36,7 +36,7 @@ public final class AccountsReportFormTest {
   @Before
   public void setUp() {
     helper.setCurrentMonth(YearMonth.of(2015, 10));
-    form = new AccountsReportForm(helper.console(), CONFIG, formHelper);
+    form = new AccountsReportForm(CONFIG, formHelper);
   }
 
   @Test
@@ -119,7 +119,7 @@ public final class AccountsReportFormTest {
         .setIsClosed(true)
         .build();
 
-    form.generate(month);
+    form.generate(month, helper.console());
 
     formHelper.assertValue("Text1", "North Congregation, Anytown, California");
     formHelper.assertValue("Text2", "October 2015");
@@ -0,0 +1,147 @@
+package net.pryden.accounts.reports;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import net.pryden.accounts.model.AccountsMonth;
+import net.pryden.accounts.model.BranchResolutionType;
+import net.pryden.accounts.model.Config;
+import net.pryden.accounts.model.Money;
+import net.pryden.accounts.model.SubTransaction;
+import net.pryden.accounts.model.Transaction;
+import net.pryden.accounts.model.TransactionCategory;
+import net.pryden.accounts.testing.TestHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public final class AccountsSheetFormTest {
+  private static final YearMonth OCTOBER = YearMonth.of(2015, 10);
+
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private TestHelper helper = TestHelper.create();
+  private final Map<String, FakeFormHelper> sheets = new LinkedHashMap<>();
+  private Path monthDir;
+  private AccountsSheetForm form;
+
+  @Before
+  public void setUp() throws Exception {
+    Config config = helper.newFakeConfig().toBuilder()
+        .setRootDir(temp.getRoot().toString())
+        .build();
+    monthDir = temp.newFolder(OCTOBER.toString()).toPath();
+    form = new AccountsSheetForm(config, (formFilePath, outputFilePath) -> {
+      FakeFormHelper sheet = new FakeFormHelper();
+      sheets.put(outputFilePath.getFileName().toString(), sheet);
+      return sheet;
+    });
+  }
+
+  private static Transaction receipt(int index) {
+    return Transaction.builder()
+        .setDate(1)
+        .setDescription("Contributions - Worldwide Work " + index)
+        .setCategory(TransactionCategory.WORLDWIDE_WORK)
+        .setReceiptsIn(Money.parse("10.00"))
+        .build();
+  }
+
+  private static AccountsMonth newMonth(ImmutableList<Transaction> transactions) {
+    return AccountsMonth.builder()
+        .setDate(OCTOBER)
+        .setOpeningBalance(Money.ZERO)
+        .setReceiptsCarriedForward(Money.ZERO)
+        .setTransactions(transactions)
+        .setIsClosed(true)
+        .build();
+  }
+
+  private static ImmutableList.Builder<Transaction> receipts(int count) {
+    ImmutableList.Builder<Transaction> transactions = ImmutableList.builder();
+    for (int i = 0; i < count; i++) {
+      transactions.add(receipt(i));
+    }
+    return transactions;
+  }
+
+  @Test
+  public void testSmallMonthFitsOnOneSheet() throws Exception {
+    form.generate(newMonth(receipts(3).build()), helper.console());
+
+    assertThat(sheets.keySet()).containsExactly("S-26-E Accounts Sheet.pdf");
+    FakeFormHelper sheet = sheets.get("S-26-E Accounts Sheet.pdf");
+    sheet.assertValue("Text8.0.2", "Contributions - Worldwide Work 2");
+    sheet.assertValue("Text11", "30.00");
+  }
+
+  @Test
+  public void testLargeMonthContinuesOnMoreSheets() throws Exception {
+    form.generate(newMonth(receipts(120).build()), helper.console());
+
+    assertThat(sheets.keySet()).containsExactly(
+        "S-26-E Accounts Sheet.pdf",
+        "S-26-E Accounts Sheet (sheet 2).pdf",
+        "S-26-E Accounts Sheet (sheet 3).pdf").inOrder();
+    FakeFormHelper first = sheets.get("S-26-E Accounts Sheet.pdf");
+    FakeFormHelper last = sheets.get("S-26-E Accounts Sheet (sheet 3).pdf");
+    first.assertValue("Text8.0.51", "Contributions - Worldwide Work 51");
+    assertThat(first.getValue("Text11").isPresent()).isFalse();
+    sheets.get("S-26-E Accounts Sheet (sheet 2).pdf")
+        .assertValue("Text8.0.0", "Contributions - Worldwide Work 52");
+    last.assertValue("Text1", "Congregation name");
+    last.assertValue("Text8.0.15", "Contributions - Worldwide Work 119");
+    assertThat(last.getValue("Text8.0.16").isPresent()).isFalse();
+    last.assertValue("Text11", "1200.00");
+  }
+
+  @Test
+  public void testKeepsSubTransactionsWithTheirTransaction() throws Exception {
+    Transaction transfer = Transaction.builder()
+        .setDate(31)
+        .setDescription("jw.org Transfer")
+        .setCategory(TransactionCategory.OTHER)
+        .setCheckingOut(Money.parse("10.00"))
+        .setSubTransactions(ImmutableList.of(
+            SubTransaction.builder()
+                .setDescription("Worldwide Work")
+                .setCategory(TransactionCategory.WORLDWIDE_WORK)
+                .setType(BranchResolutionType.WORLDWIDE_WORK_FROM_CONTRIBUTION_BOXES)
+                .setAmount(Money.parse("10.00"))
+                .build()))
+        .build();
+
+    form.generate(newMonth(receipts(51).add(transfer).build()), helper.console());
+
+    assertThat(sheets).hasSize(2);
+    assertThat(sheets.get("S-26-E Accounts Sheet.pdf").getValue("Text8.0.51").isPresent())
+        .isFalse();
+    FakeFormHelper second = sheets.get("S-26-E Accounts Sheet (sheet 2).pdf");
+    second.assertValue("Text8.0.0", "jw.org Transfer");
+    second.assertValue("Text8.0.1", "Worldwide Work [10.00]");
+  }
+
+  @Test
+  public void testDeletesLeftoverSheets() throws Exception {
+    Path staleSecond = monthDir.resolve("S-26-E Accounts Sheet (sheet 2).pdf");
+    Path staleThird = monthDir.resolve("S-26-E Accounts Sheet (sheet 3).pdf");
+    Files.write(staleSecond, new byte[0]);
+    Files.write(staleThird, new byte[0]);
+
+    form.generate(newMonth(receipts(3).build()), helper.console());
+
+    assertThat(Files.exists(staleSecond)).isFalse();
+    assertThat(Files.exists(staleThird)).isFalse();
+    assertThat(helper.getConsoleOutput()).contains("Deleted " + staleThird);
+  }
+}
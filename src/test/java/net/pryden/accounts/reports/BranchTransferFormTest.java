@@ -35,7 +35,7 @@ public final class BranchTransferFormTest {
 
   @Before
   public void setUp() {
-    form = new BranchTransferForm(helper.console(), CONFIG, formHelper);
+    form = new BranchTransferForm(CONFIG, formHelper);
   }
 
   @Test
@@ -77,7 +77,7 @@ public final class BranchTransferFormTest {
         .setIsClosed(true)
         .build();
 
-    form.generate(month);
+    form.generate(month, helper.console());
 
     formHelper.assertChecked("Check Box1");
     formHelper.assertValue("Text1", "North Congregation, Anytown, California");
@@ -0,0 +1,83 @@
+package net.pryden.accounts.reports;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+@RunWith(JUnit4.class)
+public final class TemplateCacheTest {
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private Path newTemplate(String name, int size) throws Exception {
+    Path path = temp.getRoot().toPath().resolve(name);
+    Files.write(path, new byte[size]);
+    return path;
+  }
+
+  @Test
+  public void testReadsEachTemplateOnce() throws Exception {
+    TemplateCache cache = new TemplateCache(1000);
+    Path template = newTemplate("S-26-E.pdf", 100);
+
+    byte[] first = cache.get(template);
+    byte[] second = cache.get(template);
+
+    assertThat(second).isSameAs(first);
+    assertThat(cache.missCount()).isEqualTo(1);
+    assertThat(cache.hitCount()).isEqualTo(1);
+    assertThat(cache.totalBytes()).isEqualTo(100);
+  }
+
+  @Test
+  public void testRereadsChangedTemplate() throws Exception {
+    TemplateCache cache = new TemplateCache(1000);
+    Path template = newTemplate("S-26-E.pdf", 100);
+    cache.get(template);
+
+    Files.write(template, new byte[] {1, 2, 3});
+    Files.setLastModifiedTime(template, FileTime.fromMillis(0));
+
+    assertThat(cache.get(template)).isEqualTo(new byte[] {1, 2, 3});
+    assertThat(cache.missCount()).isEqualTo(2);
+    assertThat(cache.totalBytes()).isEqualTo(3);
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() throws Exception {
+    TemplateCache cache = new TemplateCache(250);
+    Path first = newTemplate("S-26-E.pdf", 100);
+    Path second = newTemplate("S-30-E.pdf", 100);
+    Path third = newTemplate("TO-62-E.pdf", 100);
+    cache.get(first);
+    cache.get(second);
+    cache.get(first);
+
+    cache.get(third);
+
+    assertThat(cache.totalBytes()).isEqualTo(200);
+    cache.get(first);
+    assertThat(cache.hitCount()).isEqualTo(2);
+    cache.get(second);
+    assertThat(cache.missCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void testDoesNotCacheOversizedTemplate() throws Exception {
+    TemplateCache cache = new TemplateCache(50);
+    Path template = newTemplate("S-26-E.pdf", 100);
+
+    assertThat(cache.get(template)).hasLength(100);
+    cache.get(template);
+
+    assertThat(cache.totalBytes()).isEqualTo(0);
+    assertThat(cache.missCount()).isEqualTo(2);
+  }
+}
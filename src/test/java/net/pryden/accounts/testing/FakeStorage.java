@@ -1,5 +1,6 @@
 package net.pryden.accounts.testing;
 
+import com.google.common.collect.ImmutableList;
 import net.pryden.accounts.Storage;
 import net.pryden.accounts.model.AccountsMonth;
 import net.pryden.accounts.model.Config;
@@ -16,6 +17,7 @@ import java.util.Optional;
 public final class FakeStorage implements Storage {
   private final Map<YearMonth, AccountsMonth> storage = new HashMap<>();
   private Optional<Config> config;
+  private int readMonthsCount;
 
   public FakeStorage() {
     this(null);
@@ -35,6 +37,21 @@ public final class FakeStorage implements Storage {
     return result;
   }
 
+  @Override
+  public ImmutableList<AccountsMonth> readMonths(YearMonth from, YearMonth to) {
+    readMonthsCount++;
+    ImmutableList.Builder<AccountsMonth> months = ImmutableList.builder();
+    for (YearMonth date = from; !date.isAfter(to); date = date.plusMonths(1)) {
+      months.add(readMonth(date));
+    }
+    return months.build();
+  }
+
+  /** Returns the number of times {@link #readMonths} has been called. */
+  public int readMonthsCount() {
+    return readMonthsCount;
+  }
+
   @Override
   public void writeMonth(AccountsMonth month) {
     storage.put(month.date(), month);